@@ -0,0 +1,95 @@
+package edu.ncsu.csc.CoffeeMaker;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import edu.ncsu.csc.CoffeeMaker.services.DatabaseLimitAspect;
+import edu.ncsu.csc.CoffeeMaker.services.DatabasePermits;
+
+/**
+ * Holds a request to the API for one of the `coffeemaker.threads.db-permits` DatabasePermits from
+ * before it is handled until it has been answered. With `spring.jpa.open-in-view` on (Spring
+ * Boot's default), a request keeps the connection its first Service call used until the request
+ * is done, not just until that call returns. Taking the permit per Service call would let it give
+ * the permit back while still holding the connection, and wait for a permit again on its next
+ * call; once every connection is held by a request like that, and every permit by a request
+ * waiting for a connection, neither can go on until one of them times out. Holding the permit for
+ * the whole request, which the Service calls it makes then share, means a request waiting for a
+ * permit holds no connection, and one holding a connection never waits for a permit.
+ *
+ * Requests to /api/v1/async are left out: they only hand the work to the async workers, whose
+ * Service calls take a permit of their own in DatabaseLimitAspect.
+ */
+@Component
+public class DatabaseLimitFilter extends OncePerRequestFilter {
+
+	/**
+	 * Path of the requests that take a permit.
+	 */
+	private static final String API_PATH = "/api/";
+
+	/**
+	 * Path of the async API, which doesn't use the database on the request thread.
+	 */
+	private static final String ASYNC_PATH = "/api/v1/async/";
+
+	/**
+	 * Holds the permits.
+	 */
+	@Autowired
+	private DatabaseLimitAspect limit;
+
+	/**
+	 * Leaves out everything but the API, and everything if there is no limit.
+	 *
+	 * @param request The request
+	 *
+	 * @return true if the request doesn't need a permit
+	 */
+	@Override
+	protected boolean shouldNotFilter(final HttpServletRequest request) {
+		final String path = request.getRequestURI().substring(request.getContextPath().length());
+
+		return limit.getPermits() == null || !path.startsWith(API_PATH)
+				|| path.startsWith(ASYNC_PATH);
+	}
+
+	/**
+	 * Handles the request once a permit is free, and gives the permit back when it is done.
+	 *
+	 * @param request  The request
+	 * @param response The response
+	 * @param chain    The rest of the filters and the controller
+	 *
+	 * @throws ServletException if handling the request failed, or the thread was interrupted
+	 *                          while waiting for a permit
+	 * @throws IOException      if writing the response failed
+	 */
+	@Override
+	protected void doFilterInternal(final HttpServletRequest request,
+			final HttpServletResponse response, final FilterChain chain)
+			throws ServletException, IOException {
+		final DatabasePermits permits = limit.getPermits();
+
+		try {
+			permits.enter();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServletException("Interrupted while waiting for the database", e);
+		}
+
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			permits.exit();
+		}
+	}
+}
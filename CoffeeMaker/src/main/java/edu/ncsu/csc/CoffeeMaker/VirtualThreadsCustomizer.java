@@ -0,0 +1,68 @@
+package edu.ncsu.csc.CoffeeMaker;
+
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.coyote.AbstractProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc.CoffeeMaker.services.VirtualThreads;
+
+/**
+ * Has Tomcat handle each request on a virtual thread of its own when `coffeemaker.threads.virtual`
+ * is true. The Service calls a request makes, transactions included, run on the same thread, so a
+ * request that is waiting on the database no longer holds one of Tomcat's
+ * `server.tomcat.threads.max` threads, and the number of requests in flight is bounded by
+ * `server.tomcat.max-connections` instead. Pair it with `coffeemaker.threads.db-permits`, so that
+ * those requests queue for the database in an orderly way rather than all at once on the
+ * connection pool.
+ *
+ * Virtual threads need Java 21 or later; on older versions a warning is logged and Tomcat's own
+ * thread pool is kept.
+ */
+@Component
+public class VirtualThreadsCustomizer
+		implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+	/**
+	 * Logger for falling back to platform threads.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadsCustomizer.class);
+
+	/**
+	 * Whether to handle requests on virtual threads.
+	 */
+	@Value("${coffeemaker.threads.virtual:false}")
+	private boolean virtual;
+
+	/**
+	 * Replaces Tomcat's thread pool with a virtual thread per request, if enabled and available.
+	 *
+	 * @param factory Factory for the embedded Tomcat
+	 */
+	@Override
+	public void customize(final TomcatServletWebServerFactory factory) {
+		if (!virtual) {
+			return;
+		}
+
+		final ThreadFactory threads = VirtualThreads.factory("tomcat-handler-");
+
+		if (threads == null) {
+			LOG.warn("coffeemaker.threads.virtual needs Java 21 or later; "
+					+ "handling requests on platform threads");
+			return;
+		}
+
+		factory.addProtocolHandlerCustomizers(handler -> {
+			if (handler instanceof AbstractProtocol) {
+				((AbstractProtocol<?>) handler)
+						.setExecutor(command -> threads.newThread(command).start());
+			}
+		});
+	}
+}
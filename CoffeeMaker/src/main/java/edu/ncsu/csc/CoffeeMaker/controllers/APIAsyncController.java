@@ -0,0 +1,201 @@
+package edu.ncsu.csc.CoffeeMaker.controllers;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ncsu.csc.CoffeeMaker.forms.OrderForm;
+
+/**
+ * Non-blocking versions of the endpoints kiosks call most, served under /api/v1/async when
+ * `coffeemaker.api.async.enabled` is true. These are read-only, plus making coffee: listing the
+ * Recipes, the Ingredients and the Inventory, and the two make-coffee endpoints. Creating, editing
+ * and deleting Recipes, Ingredients and the Inventory are only served under /api/v1, as they are
+ * rare and not where request threads pile up. Each one answers exactly as its counterpart under
+ * /api/v1 does, but hands the work to a small pool of workers and lets go of the request thread
+ * straight away; the response is written when the worker finishes. A kiosk waiting on an order
+ * holds an open connection but no thread, so far more kiosks can be connected
+ * (`server.tomcat.max-connections`) than there are request threads (`server.tomcat.threads.max`).
+ *
+ * The workers, `coffeemaker.api.async.workers` of them, are the only threads that touch the
+ * database, so there is no point having more of them than the connection pool has connections.
+ * When all of them are busy, up to `coffeemaker.api.async.queue-capacity` requests wait their turn;
+ * beyond that, requests are turned away with 503 Service Unavailable rather than piling up.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+@ConditionalOnProperty(name = "coffeemaker.api.async.enabled", havingValue = "true")
+@RestController
+public class APIAsyncController extends APIController {
+
+	/**
+	 * Recipe endpoints, answered on a worker.
+	 */
+	@Autowired
+	private APIRecipeController recipeController;
+
+	/**
+	 * Ingredient endpoints, answered on a worker.
+	 */
+	@Autowired
+	private APIIngredientController ingredientController;
+
+	/**
+	 * Inventory endpoints, answered on a worker.
+	 */
+	@Autowired
+	private APIInventoryController inventoryController;
+
+	/**
+	 * Make-coffee endpoints, answered on a worker.
+	 */
+	@Autowired
+	private APICoffeeController coffeeController;
+
+	/**
+	 * Number of workers.
+	 */
+	@Value("${coffeemaker.api.async.workers:10}")
+	private int workers;
+
+	/**
+	 * Most requests that can wait for a worker at once.
+	 */
+	@Value("${coffeemaker.api.async.queue-capacity:1000}")
+	private int capacity;
+
+	/**
+	 * The workers, and the queue of requests waiting for them.
+	 */
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * Starts the workers.
+	 */
+	@PostConstruct
+	public void start() {
+		final AtomicLong count = new AtomicLong();
+
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(capacity), runnable -> {
+					final Thread thread = new Thread(runnable,
+							"api-worker-" + count.getAndIncrement());
+					thread.setDaemon(true);
+
+					return thread;
+				});
+	}
+
+	/**
+	 * Stops taking requests, and gives the workers a few seconds to finish the ones already
+	 * queued.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Non-blocking version of GET /api/v1/recipes.
+	 *
+	 * @param ifNoneMatch ETag the client already has, if any
+	 *
+	 * @return JSON representation of all Recipes, once loaded
+	 */
+	@GetMapping(BASE_PATH + "/async/recipes")
+	public CompletableFuture<ResponseEntity> getRecipes(
+			@RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+		return submit(() -> recipeController.getRecipes(ifNoneMatch));
+	}
+
+	/**
+	 * Non-blocking version of GET /api/v1/ingredients.
+	 *
+	 * @return JSON representation of all Ingredients, once loaded
+	 */
+	@GetMapping(BASE_PATH + "/async/ingredients")
+	public CompletableFuture<ResponseEntity> getIngredients() {
+		return submit(() -> new ResponseEntity(ingredientController.getIngredients(),
+				HttpStatus.OK));
+	}
+
+	/**
+	 * Non-blocking version of GET /api/v1/inventory.
+	 *
+	 * @param ifNoneMatch ETag the client already has, if any
+	 *
+	 * @return the Inventory, once loaded
+	 */
+	@GetMapping(BASE_PATH + "/async/inventory")
+	public CompletableFuture<ResponseEntity> getInventory(
+			@RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+		return submit(() -> inventoryController.getInventory(ifNoneMatch));
+	}
+
+	/**
+	 * Non-blocking version of POST /api/v1/makecoffee/{name}.
+	 *
+	 * @param name    recipe name
+	 * @param amtPaid amount paid
+	 *
+	 * @return The change the customer is due if successful, or the queued order, once made
+	 */
+	@PostMapping(BASE_PATH + "/async/makecoffee/{name}")
+	public CompletableFuture<ResponseEntity> makeCoffee(@PathVariable("name") final String name,
+			@RequestBody final int amtPaid) {
+		return submit(() -> coffeeController.makeCoffee(name, amtPaid));
+	}
+
+	/**
+	 * Non-blocking version of POST /api/v1/makecoffee.
+	 *
+	 * @param orders orders to fill, in order
+	 *
+	 * @return The result of each order, once all have been tried
+	 */
+	@PostMapping(BASE_PATH + "/async/makecoffee")
+	public CompletableFuture<ResponseEntity> makeCoffee(
+			@RequestBody final List<OrderForm> orders) {
+		return submit(() -> coffeeController.makeCoffee(orders));
+	}
+
+	/**
+	 * Hands a request to the workers.
+	 *
+	 * @param request answers the request
+	 *
+	 * @return the answer, once a worker has worked it out; 503 straight away if too many requests
+	 *         are already waiting
+	 */
+	private CompletableFuture<ResponseEntity> submit(final Supplier<ResponseEntity> request) {
+		try {
+			return CompletableFuture.supplyAsync(request, executor);
+		} catch (final RejectedExecutionException e) {
+			return CompletableFuture.completedFuture(new ResponseEntity(
+					errorResponse("The CoffeeMaker is busy; please try again"),
+					HttpStatus.SERVICE_UNAVAILABLE));
+		}
+	}
+}
@@ -1,6 +1,16 @@
 package edu.ncsu.csc.CoffeeMaker.controllers;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Predicate;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -8,10 +18,19 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import edu.ncsu.csc.CoffeeMaker.forms.OrderForm;
 import edu.ncsu.csc.CoffeeMaker.models.Inventory;
 import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.CoffeeOrder;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryEventLog;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryLedger;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryMode;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryRetryPolicy;
 import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.OrderQueue;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeAvailability;
 import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+import edu.ncsu.csc.CoffeeMaker.services.StripedInventory;
 
 /**
  *
@@ -41,14 +60,63 @@ public class APICoffeeController extends APIController {
 
 	private RecipeService recipeService;
 
+	/**
+	 * In-memory Inventory ledger, used instead of InventoryService when the CoffeeMaker is running
+	 * in `LEDGER` or `WRITE_BEHIND` mode.
+	 */
+	@Autowired
+	private InventoryLedger ledger;
+
+	/**
+	 * Inventory event log, used instead of InventoryService when the CoffeeMaker is running in
+	 * `EVENTS` mode.
+	 */
+	@Autowired
+	private InventoryEventLog events;
+
+	/**
+	 * Per-Ingredient locked Inventory, used instead of InventoryService when the CoffeeMaker is
+	 * running in `STRIPED` mode.
+	 */
+	@Autowired
+	private StripedInventory striped;
+
+	/**
+	 * Retries Inventory updates that conflict with a concurrent update.
+	 */
+	@Autowired
+	private InventoryRetryPolicy retryPolicy;
+
+	/**
+	 * Queue for orders brewed in the background, used when `coffeemaker.orders.async` is true.
+	 */
+	@Autowired
+	private OrderQueue orderQueue;
+
+	/**
+	 * Which Recipes can be made now. Needs to hear about every Recipe that is made.
+	 */
+	@Autowired
+	private RecipeAvailability availability;
+
+	/**
+	 * How Ingredients are taken out of the Inventory when coffee is made.
+	 */
+	@Value("${coffeemaker.inventory.mode:ENTITY}")
+	private InventoryMode mode;
+
 	/**
 	 * REST API method to make coffee by completing a POST request with the ID of the Recipe as the
 	 * path variable and the amount that has been paid as the body of the response.
+	 * 
+	 * If orders are queued, the order is accepted as soon as the Recipe and payment have been
+	 * checked, and the response is the queued order, whose status can be polled at
+	 * /api/v1/orders/{id}.
 	 *
 	 * @param name    recipe name
 	 * @param amtPaid amount paid
 	 * 
-	 * @return The change the customer is due if successful
+	 * @return The change the customer is due if successful, or the queued order
 	 */
 	@PostMapping(BASE_PATH + "/makecoffee/{name}")
 	public ResponseEntity makeCoffee(@PathVariable("name") final String name,
@@ -59,7 +127,19 @@ public class APICoffeeController extends APIController {
 			return new ResponseEntity(errorResponse("Recipe does not exist"), HttpStatus.NOT_FOUND);
 		}
 
-		final int change = makeCoffee(recipe, amtPaid);
+		if (orderQueue.isActive()) {
+			return queueCoffee(recipe, amtPaid);
+		}
+
+		final int change;
+
+		try {
+			change = makeCoffee(recipe, amtPaid);
+		} catch (final OptimisticLockingFailureException e) {
+			return new ResponseEntity(errorResponse("Inventory is busy; please try again"),
+					HttpStatus.CONFLICT);
+		}
+
 		if (change == amtPaid) {
 			if (amtPaid < recipe.getPrice()) {
 				return new ResponseEntity(errorResponse("Not enough money paid"),
@@ -76,6 +156,130 @@ public class APICoffeeController extends APIController {
 		return new ResponseEntity<String>(successResponse(String.valueOf(change)), HttpStatus.OK);
 	}
 
+	/**
+	 * Helper method to queue an order to be brewed in the background.
+	 * 
+	 * @param recipe  Recipe ordered
+	 * @param amtPaid amount paid
+	 * 
+	 * @return The queued order, or an error if it couldn't be queued
+	 */
+	private ResponseEntity queueCoffee(final Recipe recipe, final int amtPaid) {
+		if (amtPaid < recipe.getPrice()) {
+			return new ResponseEntity(errorResponse("Not enough money paid"), HttpStatus.CONFLICT);
+		}
+
+		final CoffeeOrder order;
+
+		try {
+			order = orderQueue.submit(recipe, amtPaid, this::useIngredients);
+		} catch (final RejectedExecutionException e) {
+			return new ResponseEntity(errorResponse("Too many orders; please try again"),
+					HttpStatus.SERVICE_UNAVAILABLE);
+		}
+
+		return new ResponseEntity<String>(toJson(order), HttpStatus.ACCEPTED);
+	}
+
+	/**
+	 * REST API method to make several coffees with one POST request. The body is a JSON array of
+	 * orders, each naming a Recipe and the amount paid for it. All of the Recipes are looked up at
+	 * once, the orders are filled in the order given against a single copy of the Inventory, and
+	 * the Inventory is saved once at the end.
+	 * 
+	 * Orders that can't be filled don't stop the rest of the batch. The response is a JSON array
+	 * with one entry per order, in the same order: a success carrying the change due, or a failure
+	 * carrying the reason.
+	 *
+	 * @param orders orders to fill
+	 * 
+	 * @return The result of each order
+	 */
+	@PostMapping(BASE_PATH + "/makecoffee")
+	public ResponseEntity makeCoffee(@RequestBody final List<OrderForm> orders) {
+		final Set<String> names = new HashSet<>();
+
+		for (OrderForm order : orders) {
+			if (order.getRecipe() != null) {
+				names.add(order.getRecipe().trim().toLowerCase());
+			}
+		}
+
+		final Map<String, Recipe> recipes = recipeService.findByNames(names);
+		final List<JSONResponse> results;
+
+		try {
+			if (ledger.isActive()) {
+				results = fillOrders(orders, recipes,
+						recipe -> made(recipe, ledger.reserve(recipe)));
+			} else if (mode == InventoryMode.SQL) {
+				results = fillOrders(orders, recipes,
+						recipe -> made(recipe, inventoryService.consume(recipe)));
+			} else if (mode == InventoryMode.EVENTS) {
+				results = fillOrders(orders, recipes,
+						recipe -> made(recipe, events.consume(recipe)));
+			} else if (striped.isActive()) {
+				results = fillOrders(orders, recipes,
+						recipe -> made(recipe, striped.consume(recipe)));
+			} else {
+				final List<Recipe> made = new ArrayList<>();
+
+				results = retryPolicy.execute("makecoffee", () -> {
+					made.clear();
+					final Inventory inventory = inventoryService.getInventory();
+					final List<JSONResponse> filled = fillOrders(orders, recipes,
+							recipe -> inventory.useIngredients(recipe) && made.add(recipe));
+
+					inventoryService.save(inventory);
+
+					return filled;
+				});
+
+				// Only once the Inventory has been saved
+				made.forEach(availability::consumed);
+			}
+		} catch (final OptimisticLockingFailureException e) {
+			return new ResponseEntity(errorResponse("Inventory is busy; please try again"),
+					HttpStatus.CONFLICT);
+		}
+
+		return new ResponseEntity<String>(toJson(results), HttpStatus.OK);
+	}
+
+	/**
+	 * Helper method to fill a batch of orders one after another.
+	 * 
+	 * @param orders         orders to fill
+	 * @param recipes        Recipes the orders refer to, keyed by name
+	 * @param useIngredients takes a Recipe's Ingredients out of the Inventory, returning false if
+	 *                       there weren't enough
+	 * 
+	 * @return The result of each order
+	 */
+	private List<JSONResponse> fillOrders(final List<OrderForm> orders,
+			final Map<String, Recipe> recipes, final Predicate<Recipe> useIngredients) {
+		final List<JSONResponse> results = new ArrayList<>(orders.size());
+
+		for (OrderForm order : orders) {
+			final Recipe recipe = order.getRecipe() == null ? null
+					: recipes.get(order.getRecipe().trim().toLowerCase());
+
+			if (recipe == null) {
+				results.add(new JSONResponse("failed", "Recipe does not exist"));
+			} else if (order.getAmtPaid() < recipe.getPrice()) {
+				results.add(new JSONResponse("failed", "Not enough money paid"));
+			} else if (!useIngredients.test(recipe)) {
+				results.add(new JSONResponse("failed",
+						"Not enough Inventory or Ingredient not found in Inventory"));
+			} else {
+				results.add(new JSONResponse("success",
+						String.valueOf(order.getAmtPaid() - recipe.getPrice())));
+			}
+		}
+
+		return results;
+	}
+
 	/**
 	 * Helper method to make coffee.
 	 *
@@ -83,15 +287,15 @@ public class APICoffeeController extends APIController {
 	 * @param amtPaid    money that the user has given the machine
 	 * 
 	 * @return change if there was enough money to make the coffee, throws exceptions if not
+	 * 
+	 * @throws OptimisticLockingFailureException if the Inventory kept changing underneath us
 	 */
 	private int makeCoffee(final Recipe toPurchase, final int amtPaid) {
 
 		int change = amtPaid;
-		final Inventory inventory = inventoryService.getInventory();
 
 		if (toPurchase.getPrice() <= amtPaid) {
-			if (inventory.useIngredients(toPurchase)) {
-				inventoryService.save(inventory);
+			if (useIngredients(toPurchase)) {
 				change = amtPaid - toPurchase.getPrice();
 
 				return change;
@@ -104,4 +308,53 @@ public class APICoffeeController extends APIController {
 		// Insufficient amtPaid
 		return change;
 	}
+
+	/**
+	 * Helper method to take the Ingredients for a Recipe out of the Inventory, in whichever way the
+	 * `coffeemaker.inventory.mode` property asks for. Entity updates that conflict with another
+	 * order are retried against a freshly loaded Inventory.
+	 *
+	 * @param toPurchase Recipe that we want to make
+	 * 
+	 * @return true if there were enough Ingredients and they have been used
+	 */
+	private boolean useIngredients(final Recipe toPurchase) {
+		if (ledger.isActive()) {
+			return made(toPurchase, ledger.reserve(toPurchase));
+		} else if (mode == InventoryMode.SQL) {
+			return made(toPurchase, inventoryService.consume(toPurchase));
+		} else if (mode == InventoryMode.EVENTS) {
+			return made(toPurchase, events.consume(toPurchase));
+		} else if (striped.isActive()) {
+			return made(toPurchase, striped.consume(toPurchase));
+		}
+
+		return made(toPurchase, retryPolicy.execute("makecoffee", () -> {
+			final Inventory inventory = inventoryService.getInventory();
+
+			if (inventory.useIngredients(toPurchase)) {
+				inventoryService.save(inventory);
+
+				return true;
+			}
+
+			return false;
+		}));
+	}
+
+	/**
+	 * Helper method to tell RecipeAvailability about a Recipe that has been made.
+	 *
+	 * @param recipe Recipe that we tried to make
+	 * @param used   whether its Ingredients were taken out of the Inventory
+	 * 
+	 * @return `used`
+	 */
+	private boolean made(final Recipe recipe, final boolean used) {
+		if (used) {
+			availability.consumed(recipe);
+		}
+
+		return used;
+	}
 }
@@ -1,7 +1,20 @@
 package edu.ncsu.csc.CoffeeMaker.controllers;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
 import com.google.gson.Gson;
 
+import edu.ncsu.csc.CoffeeMaker.models.DomainObject;
+
 /**
  * Base class for all of the API controllers for manipulating DomainObjects. Add in any fields or
  * functionality that ought to be shared throughout.
@@ -35,16 +48,190 @@ public abstract class APIController {
 	 */
 	static final private Gson GSON = new Gson();
 
-	// /**
-	// * Turns the provided object into JSON.
-	// *
-	// * @param obj The object to serialize
-	// *
-	// * @return The resulting JSON String
-	// */
-	// static final protected String toJson(final Object obj) {
-	// return GSON.toJson(obj);
-	// }
+	/**
+	 * Content type of streamed listings: one JSON object per line.
+	 */
+	static final protected String NDJSON = "application/x-ndjson";
+
+	/**
+	 * Records on a page of a listing, unless the client asks for a different number.
+	 */
+	static final protected String DEFAULT_PAGE_SIZE = "20";
+
+	/**
+	 * Most records a client can ask for on a page of a listing. Larger listings should be
+	 * streamed.
+	 */
+	static final protected int MAX_PAGE_SIZE = 1000;
+
+	/**
+	 * Added to the ETag of a summary view, so that it differs from the ETag of the full view of the
+	 * same data.
+	 */
+	static final protected long SUMMARY = -1;
+
+	/**
+	 * Builds a strong ETag from fingerprints of the data a response is made from. The fingerprints
+	 * come from the database (see Service.fingerprint()), so every CoffeeMaker instance sharing it
+	 * hands out the same ETag for the same data, and a change made through any of them changes it.
+	 * Work out the ETag before loading the data, so that the data is never older than its ETag.
+	 * 
+	 * @param fingerprints Fingerprints of the data
+	 * 
+	 * @return The ETag, quoted
+	 */
+	static final protected String etag(final long... fingerprints) {
+		final StringBuilder etag = new StringBuilder("\"");
+
+		for (long fingerprint : fingerprints) {
+			etag.append(etag.length() > 1 ? "-" : "").append(Long.toHexString(fingerprint));
+		}
+
+		return etag.append('"').toString();
+	}
+
+	/**
+	 * Checks an If-None-Match request header against the current ETag.
+	 * 
+	 * @param ifNoneMatch The header, or null if the request didn't have one
+	 * @param etag        The current ETag
+	 * 
+	 * @return true if the client already has the current data
+	 */
+	static final protected boolean notModified(final String ifNoneMatch, final String etag) {
+		if (null == ifNoneMatch) {
+			return false;
+		}
+
+		for (String tag : ifNoneMatch.split(",")) {
+			final String trimmed = tag.trim();
+
+			if ("*".equals(trimmed) || etag.equals(trimmed.startsWith("W/") ? trimmed.substring(2)
+					: trimmed)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Creates a 304 Not Modified response for a client that already has the current data.
+	 * 
+	 * @param etag The current ETag
+	 * 
+	 * @return The response
+	 */
+	static final protected ResponseEntity<Object> notModifiedResponse(final String etag) {
+		return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag)
+				.cacheControl(CacheControl.noCache()).build();
+	}
+
+	/**
+	 * Creates a 200 OK response carrying an ETag, which the client should send back in
+	 * If-None-Match to check whether the data has changed.
+	 * 
+	 * @param etag The current ETag
+	 * @param body The data
+	 * 
+	 * @return The response
+	 */
+	static final protected ResponseEntity<Object> taggedResponse(final String etag,
+			final Object body) {
+		return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(body);
+	}
+
+	/**
+	 * Checks the page and size a client asked for in a paged listing.
+	 * 
+	 * @param page Index of the page, from 0
+	 * @param size Most records on the page
+	 * 
+	 * @return An error response if either is out of range, otherwise null
+	 */
+	static final protected ResponseEntity<Object> checkPage(final int page, final int size) {
+		if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+			return new ResponseEntity<>(errorResponse(
+					"Page must be at least 0 and size between 1 and " + MAX_PAGE_SIZE),
+					HttpStatus.BAD_REQUEST);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Creates a 200 OK response for one page of a listing. The body is the page's records, and the
+	 * X-Total-Count header says how many records there are altogether.
+	 * 
+	 * @param page The page
+	 * 
+	 * @return The response
+	 */
+	static final protected ResponseEntity<Object> pageResponse(final Page<?> page) {
+		return ResponseEntity.ok().header("X-Total-Count", Long.toString(page.getTotalElements()))
+				.body(page.getContent());
+	}
+
+	/**
+	 * Creates a 200 OK response for one lot of a listing read by keyset (records after an ID).
+	 * When the lot is full there may be more, and the X-Next-After header gives the ID to ask for
+	 * the next lot after.
+	 * 
+	 * @param records The records, in ID order
+	 * @param size    Most records the client asked for
+	 * 
+	 * @return The response
+	 */
+	static final protected ResponseEntity<Object> keysetResponse(
+			final List<? extends DomainObject> records, final int size) {
+		final ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+
+		if (records.size() == size) {
+			response.header("X-Next-After", records.get(size - 1).getId().toString());
+		}
+
+		return response.body(records);
+	}
+
+	/**
+	 * Starts a streamed listing: sets the content type and returns the writer to send one JSON
+	 * record per line with, via writeLine().
+	 * 
+	 * @param response The response to stream into
+	 * 
+	 * @return The writer
+	 * 
+	 * @throws IOException if the response can't be written
+	 */
+	static final protected PrintWriter ndjson(final HttpServletResponse response)
+			throws IOException {
+		response.setContentType(NDJSON);
+		response.setCharacterEncoding("UTF-8");
+
+		return response.getWriter();
+	}
+
+	/**
+	 * Writes one record of a streamed listing.
+	 * 
+	 * @param writer Writer from ndjson()
+	 * @param record The record
+	 */
+	static final protected void writeLine(final PrintWriter writer, final Object record) {
+		writer.write(toJson(record));
+		writer.write('\n');
+	}
+
+	/**
+	 * Turns the provided object into JSON.
+	 *
+	 * @param obj The object to serialize
+	 *
+	 * @return The resulting JSON String
+	 */
+	static final protected String toJson(final Object obj) {
+		return GSON.toJson(obj);
+	}
 
 	/**
 	 * Turns the provided object into JSON, providing the class of the object to give a better
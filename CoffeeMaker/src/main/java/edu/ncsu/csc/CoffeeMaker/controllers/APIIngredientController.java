@@ -1,7 +1,11 @@
 package edu.ncsu.csc.CoffeeMaker.controllers;
 
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.List;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -11,8 +15,10 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
 import edu.ncsu.csc.CoffeeMaker.services.IngredientService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeAvailability;
 
 /**
  * Endpoints for manipulating Ingredients.
@@ -32,6 +38,13 @@ public class APIIngredientController extends APIController {
 	@Autowired
 	private IngredientService ingService;
 
+	/**
+	 * Which Recipes can be made now; reloaded when an Ingredient is deleted, in case it was in the
+	 * Inventory.
+	 */
+	@Autowired
+	private RecipeAvailability availability;
+
 	/**
 	 * REST APImethod to provide GET access to all Ingredients in the system.
 	 * 
@@ -42,6 +55,60 @@ public class APIIngredientController extends APIController {
 		return ingService.findAll();
 	}
 
+	/**
+	 * REST API method to provide GET access to one page of Ingredients, in ID order, for clients
+	 * that don't want them all at once. The X-Total-Count header says how many Ingredients there
+	 * are.
+	 *
+	 * @param page Index of the page, from 0
+	 * @param size Most Ingredients on the page
+	 * 
+	 * @return JSON list of the Ingredients on the page
+	 */
+	@GetMapping(value = BASE_PATH + "/ingredients", params = "page")
+	public ResponseEntity getIngredientsPage(@RequestParam("page") final int page,
+			@RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) final int size) {
+		final ResponseEntity invalid = checkPage(page, size);
+
+		return null != invalid ? invalid : pageResponse(ingService.findPage(page, size));
+	}
+
+	/**
+	 * REST API method to provide GET access to the Ingredients after an ID, in ID order. Unlike
+	 * pages, this stays fast however far into the list the client is, and doesn't skip or repeat
+	 * Ingredients when others are added or deleted. When there may be more, the X-Next-After header
+	 * says what to pass as `after` for the next lot.
+	 *
+	 * @param after ID to start after; 0 to start from the beginning
+	 * @param size  Most Ingredients to return
+	 * 
+	 * @return JSON list of the Ingredients found
+	 */
+	@GetMapping(value = BASE_PATH + "/ingredients", params = "after")
+	public ResponseEntity getIngredientsAfter(@RequestParam("after") final long after,
+			@RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) final int size) {
+		final ResponseEntity invalid = checkPage(0, size);
+
+		return null != invalid ? invalid : keysetResponse(ingService.findAfter(after, size), size);
+	}
+
+	/**
+	 * REST API method to stream every Ingredient, in ID order, as newline-delimited JSON. Requested
+	 * with `Accept: application/x-ndjson`. Ingredients are read from the database and written out a
+	 * few at a time, so memory use doesn't grow with the number of Ingredients.
+	 *
+	 * @param response Response to stream the Ingredients into
+	 * 
+	 * @throws IOException if the response can't be written
+	 */
+	@GetMapping(value = BASE_PATH + "/ingredients", produces = NDJSON)
+	public void streamIngredients(final HttpServletResponse response) throws IOException {
+		final PrintWriter writer = ndjson(response);
+
+		ingService.streamAll(record -> writeLine(writer, record));
+		writer.flush();
+	}
+
 	/**
 	 * REST API method to provide GET access to a specific ingredient, as indicated by the path
 	 * variable provided.
@@ -111,6 +178,7 @@ public class APIIngredientController extends APIController {
 		}
 
 		ingService.delete(ingredient);
+		availability.reload();
 
 		return new ResponseEntity(
 				successResponse(ingredient.getName() + " was deleted successfully"), HttpStatus.OK);
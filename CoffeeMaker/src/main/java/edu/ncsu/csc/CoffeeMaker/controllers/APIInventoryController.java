@@ -1,8 +1,12 @@
 package edu.ncsu.csc.CoffeeMaker.controllers;
 
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,11 +15,19 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
 import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.repositories.IngredientSummary;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryEventLog;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryLedger;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryRetryPolicy;
 import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeAvailability;
+import edu.ncsu.csc.CoffeeMaker.services.StripedInventory;
 
 /**
  * This is the controller that holds the REST endpoints that handle add and update operations for
@@ -38,21 +50,150 @@ public class APIInventoryController extends APIController {
 	@Autowired
 	private InventoryService invService;
 
+	/**
+	 * In-memory Inventory ledger. When it is active, it needs to hear about every change made here
+	 * so that orders are checked against the right quantities.
+	 */
+	@Autowired
+	private InventoryLedger ledger;
+
+	/**
+	 * Inventory event log. Like the ledger, when it is active it needs to hear about every change
+	 * made here.
+	 */
+	@Autowired
+	private InventoryEventLog events;
+
+	/**
+	 * Per-Ingredient locked Inventory. When it is active, restocks are made through it and it
+	 * needs to hear about Ingredients being added or removed.
+	 */
+	@Autowired
+	private StripedInventory striped;
+
+	/**
+	 * Which Recipes can be made now. Like the ledger, it needs to hear about every change made
+	 * here.
+	 */
+	@Autowired
+	private RecipeAvailability availability;
+
+	/**
+	 * Retries Inventory updates that conflict with a concurrent update. Every attempt reloads the
+	 * Inventory before changing it.
+	 */
+	@Autowired
+	private InventoryRetryPolicy retryPolicy;
+
 	/**
 	 * REST API endpoint to provide GET access to the CoffeeMaker's singleton Inventory. This will
 	 * convert the Inventory to JSON.
+	 * 
+	 * The response carries an ETag that changes whenever the Inventory or its Ingredients are
+	 * written, on this CoffeeMaker or any other sharing its database. A client that sends it back
+	 * in If-None-Match gets 304 Not Modified, without the Inventory being loaded, until the
+	 * Inventory changes.
+	 * 
+	 * When the InventoryLedger is active it is ahead of the database, so the quantities come from
+	 * the ledger, and the ETag covers them too.
 	 *
+	 * @param ifNoneMatch ETag the client already has, if any
+	 * 
 	 * @return response to the request
 	 */
 	@GetMapping(BASE_PATH + "/inventory")
-	public ResponseEntity getInventory() {
+	public ResponseEntity getInventory(
+			@RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+		final String etag = ledger.isActive()
+				? etag(invService.getFingerprint(), ledger.getFingerprint())
+				: etag(invService.getFingerprint());
+
+		if (notModified(ifNoneMatch, etag)) {
+			return notModifiedResponse(etag);
+		}
+
 		final Inventory inventory = invService.getInventory();
-		return new ResponseEntity(inventory, HttpStatus.OK);
+		return taggedResponse(etag,
+				ledger.isActive() ? inventory.withQuantities(ledger::getQuantity) : inventory);
+	}
+
+	/**
+	 * REST API endpoint to provide GET access to the name and quantity of every Ingredient in the
+	 * Inventory, without loading the Inventory itself. Requested with `?view=summary`; otherwise
+	 * the same as getInventory(), including taking the quantities from the InventoryLedger when it
+	 * is active.
+	 *
+	 * @param ifNoneMatch ETag the client already has, if any
+	 * 
+	 * @return JSON list of Ingredient names and quantities
+	 */
+	@GetMapping(value = BASE_PATH + "/inventory", params = "view=summary")
+	public ResponseEntity getInventorySummary(
+			@RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+		final String etag = ledger.isActive()
+				? etag(invService.getFingerprint(), ledger.getFingerprint(), SUMMARY)
+				: etag(invService.getFingerprint(), SUMMARY);
+
+		if (notModified(ifNoneMatch, etag)) {
+			return notModifiedResponse(etag);
+		}
+
+		final List<IngredientSummary> summaries = invService.findSummaries();
+
+		if (ledger.isActive()) {
+			final List<Map<String, Object>> ahead = new ArrayList<>();
+
+			for (IngredientSummary summary : summaries) {
+				final int quantity = ledger.getQuantity(summary.getName());
+				ahead.add(Map.of("name", summary.getName(), "quantity",
+						quantity < 0 ? summary.getQuantity() : quantity));
+			}
+
+			return taggedResponse(etag, ahead);
+		}
+
+		return taggedResponse(etag, summaries);
+	}
+
+	/**
+	 * REST API endpoint to provide GET access to the quantity of every Ingredient in the Inventory
+	 * as it stood at an earlier time, worked out from the Inventory event log. Requested with
+	 * `?at=` and an ISO-8601 instant, such as `2024-01-31T09:00:00Z`. Only changes made in `EVENTS`
+	 * mode are in the log.
+	 *
+	 * @param at Time to work out the quantities at
+	 * 
+	 * @return JSON object of quantities by Ingredient name; empty if the log doesn't go back that
+	 *         far
+	 */
+	@GetMapping(value = BASE_PATH + "/inventory", params = "at")
+	public ResponseEntity getInventoryAt(@RequestParam("at") final Instant at) {
+		return new ResponseEntity(events.getQuantitiesAt(at), HttpStatus.OK);
+	}
+
+	/**
+	 * REST API endpoint to provide GET access to the Inventory event log, oldest first: every
+	 * change made to Inventory quantities in `EVENTS` mode. When there may be more, the
+	 * X-Next-After header says what to pass as `after` for the next lot.
+	 *
+	 * @param after ID of the event to start after; 0 to start from the beginning
+	 * @param size  Most events to return
+	 * 
+	 * @return JSON list of the events found
+	 */
+	@GetMapping(BASE_PATH + "/inventory/events")
+	public ResponseEntity getInventoryEvents(
+			@RequestParam(value = "after", defaultValue = "0") final long after,
+			@RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) final int size) {
+		final ResponseEntity invalid = checkPage(0, size);
+
+		return null != invalid ? invalid : keysetResponse(events.getEvents(after, size), size);
 	}
 
 	/**
 	 * REST API method to provide POST access to create add a new Ingredient to the Inventory using
-	 * URL params. Verifies that the Ingredient doesn't already exist.
+	 * URL params. Verifies that the Ingredient doesn't already exist. In `EVENTS` mode it is only
+	 * appended to the InventoryEventLog, which creates its row at the next snapshot.
 	 *
 	 * @param name The name of the ingredient to create
 	 * 
@@ -61,27 +202,64 @@ public class APIInventoryController extends APIController {
 	 */
 	@PostMapping(BASE_PATH + "/inventory/{name}")
 	public ResponseEntity createIngredient(@PathVariable("name") final String name) {
-		final Inventory inventory = invService.getInventory();
+		if (events.isActive()) {
+			if (!events.added(name.trim().toLowerCase(), 1)) {
+				return new ResponseEntity(errorResponse(
+						name.trim().toLowerCase() + " already exists in the Inventory"),
+						HttpStatus.CONFLICT);
+			}
+
+			availability.added(name, 1);
 
-		if (inventory.getIngredient(name.trim().toLowerCase()) != null) {
 			return new ResponseEntity(
-					errorResponse(name.trim().toLowerCase() + " already exists in the Inventory"),
-					HttpStatus.CONFLICT);
-		} else {
-			Ingredient newIngr = new Ingredient(name.trim().toLowerCase(), 1);
-			inventory.addIngredient(newIngr);
-			invService.save(inventory);
-
-			return new ResponseEntity(successResponse(newIngr.getName() + " successfully created"),
+					successResponse(name.trim().toLowerCase() + " successfully created"),
 					HttpStatus.OK);
 		}
 
+		final ResponseEntity response;
+
+		try {
+			response = retryPolicy.execute("createIngredient", () -> {
+				final Inventory inventory = invService.getInventory();
+
+				if (inventory.getIngredient(name.trim().toLowerCase()) != null) {
+					return new ResponseEntity(errorResponse(
+							name.trim().toLowerCase() + " already exists in the Inventory"),
+							HttpStatus.CONFLICT);
+				} else {
+					Ingredient newIngr = new Ingredient(name.trim().toLowerCase(), 1);
+					inventory.addIngredient(newIngr);
+					invService.save(inventory);
+
+					return new ResponseEntity(
+							successResponse(newIngr.getName() + " successfully created"),
+							HttpStatus.OK);
+				}
+			});
+		} catch (final OptimisticLockingFailureException e) {
+			return busyResponse();
+		}
+
+		if (response.getStatusCode() == HttpStatus.OK) {
+			if (ledger.isActive()) {
+				ledger.reload();
+			}
+			if (striped.isActive()) {
+				striped.reload();
+			}
+			availability.added(name, 1);
+		}
+
+		return response;
 	}
 
 	/**
 	 * REST API endpoint to provide update access to CoffeeMaker's singleton Inventory. This will
 	 * update the Inventory of the CoffeeMaker by ADDING amounts from the Inventory provided to the
-	 * CoffeeMaker's stored Inventory.
+	 * CoffeeMaker's stored Inventory. In `WRITE_BEHIND` mode the amounts are added in the
+	 * InventoryLedger, which writes them to the database shortly afterwards; in `STRIPED` mode they
+	 * are added through the StripedInventory; in `EVENTS` mode they are only appended to the
+	 * InventoryEventLog, and reach the database at the next snapshot.
 	 *
 	 * @param inventory amounts to add to Inventory
 	 * 
@@ -89,17 +267,72 @@ public class APIInventoryController extends APIController {
 	 */
 	@PutMapping(BASE_PATH + "/inventory")
 	public ResponseEntity updateInventory(@RequestBody final Inventory inventory) {
+		if (ledger.isWriteBehind()) {
+			// The ledger writes the new quantities to the database later
+			for (Ingredient ingredient : inventory.getIngredients()) {
+				if (ingredient.getQuantity() >= 1
+						&& ledger.addQuantity(ingredient.getName(), ingredient.getQuantity())) {
+					availability.restock(ingredient.getName(), ingredient.getQuantity());
+				}
+			}
 
-		Inventory currentInventory = invService.getInventory();
+			return new ResponseEntity(inventory, HttpStatus.OK);
+		}
 
-		List<Ingredient> ingredients = inventory.getIngredients();
-		for (Ingredient ingredient : ingredients) {
-			int quantity = ingredient.getQuantity();
+		if (striped.isActive()) {
+			// Each amount is added under its Ingredient's lock, straight to the database
+			for (Ingredient ingredient : inventory.getIngredients()) {
+				if (ingredient.getQuantity() >= 1
+						&& striped.addQuantity(ingredient.getName(), ingredient.getQuantity())) {
+					availability.restock(ingredient.getName(), ingredient.getQuantity());
+				}
+			}
 
-			currentInventory.addQuantity(ingredient.getName().trim().toLowerCase(), quantity);
+			return new ResponseEntity(inventory, HttpStatus.OK);
 		}
 
-		invService.save(currentInventory);
+		if (events.isActive()) {
+			// The log is checked and appended to; the rows catch up at the next snapshot
+			for (Ingredient ingredient : inventory.getIngredients()) {
+				if (events.restock(ingredient.getName(), ingredient.getQuantity())) {
+					availability.restock(ingredient.getName(), ingredient.getQuantity());
+				}
+			}
+
+			return new ResponseEntity(inventory, HttpStatus.OK);
+		}
+
+		final List<Ingredient> added;
+
+		try {
+			added = retryPolicy.execute("updateInventory", () -> {
+				Inventory currentInventory = invService.getInventory();
+
+				List<Ingredient> ingredients = inventory.getIngredients();
+				List<Ingredient> addedNow = new ArrayList<>();
+				for (Ingredient ingredient : ingredients) {
+					int quantity = ingredient.getQuantity();
+
+					if (currentInventory.addQuantity(ingredient.getName().trim().toLowerCase(),
+							quantity)) {
+						addedNow.add(ingredient);
+					}
+				}
+
+				invService.save(currentInventory);
+
+				return addedNow;
+			});
+		} catch (final OptimisticLockingFailureException e) {
+			return busyResponse();
+		}
+
+		for (Ingredient ingredient : added) {
+			if (ledger.isActive()) {
+				ledger.restock(ingredient.getName(), ingredient.getQuantity());
+			}
+			availability.restock(ingredient.getName(), ingredient.getQuantity());
+		}
 		return new ResponseEntity(inventory, HttpStatus.OK);
 	}
 
@@ -114,11 +347,41 @@ public class APIInventoryController extends APIController {
 	 */
 	@DeleteMapping(BASE_PATH + "/inventory")
 	public ResponseEntity clearInventory() {
-		Inventory inv = invService.getInventory();
-		inv.clearInventory();
-		invService.save(inv);
+		try {
+			retryPolicy.execute("clearInventory", () -> {
+				Inventory inv = invService.getInventory();
+				inv.clearInventory();
+				invService.save(inv);
+
+				return inv;
+			});
+		} catch (final OptimisticLockingFailureException e) {
+			return busyResponse();
+		}
+
+		if (ledger.isActive()) {
+			ledger.reload();
+		}
+		if (events.isActive()) {
+			events.cleared();
+		}
+		if (striped.isActive()) {
+			striped.reload();
+		}
+		availability.reload();
 
 		return new ResponseEntity(successResponse("Inventory was successfully cleared"),
 				HttpStatus.OK);
 	}
+
+	/**
+	 * Response for when an Inventory update kept conflicting with other updates and ran out of
+	 * retries.
+	 * 
+	 * @return 409 response asking the client to try again
+	 */
+	private ResponseEntity busyResponse() {
+		return new ResponseEntity(errorResponse("Inventory is busy; please try again"),
+				HttpStatus.CONFLICT);
+	}
 }
@@ -0,0 +1,254 @@
+package edu.ncsu.csc.CoffeeMaker.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryMode;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryRetryPolicy;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Endpoints for the Inventories of the coffee machines run from this CoffeeMaker. Every machine
+ * has an Inventory of its own, created empty the first time an Ingredient is added to it or
+ * restocked (reading or ordering from a machine without one never creates it), and shares the
+ * recipe book. Orders on one machine only touch that machine's Inventory rows, so orders on
+ * different machines never wait for each other.
+ *
+ * Machines are numbered from 1; the CoffeeMaker's own Inventory (machine 0) is served by the
+ * Inventory and make-coffee endpoints, which may keep it in memory depending on
+ * `coffeemaker.inventory.mode`. Machine Inventories are always read and written in the database:
+ * with a conditional UPDATE in `SQL` mode, otherwise through the Inventory entity.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+@RestController
+public class APIMachineController extends APIController {
+
+	/**
+	 * InventoryService object, to be autowired in by Spring to allow for manipulating each
+	 * machine's Inventory.
+	 */
+	@Autowired
+	private InventoryService inventoryService;
+
+	/**
+	 * RecipeService object, to be autowired in by Spring to look up the Recipes ordered.
+	 */
+	@Autowired
+	private RecipeService recipeService;
+
+	/**
+	 * Retries Inventory updates that conflict with a concurrent update on the same machine.
+	 */
+	@Autowired
+	private InventoryRetryPolicy retryPolicy;
+
+	/**
+	 * How Ingredients are taken out of the Inventory when coffee is made.
+	 */
+	@Value("${coffeemaker.inventory.mode:ENTITY}")
+	private InventoryMode mode;
+
+	/**
+	 * REST API endpoint to provide GET access to a machine's Inventory.
+	 *
+	 * @param machine The machine
+	 *
+	 * @return response to the request; 404 if the machine has no Inventory yet
+	 */
+	@GetMapping(BASE_PATH + "/machines/{machine}/inventory")
+	public ResponseEntity getInventory(@PathVariable("machine") final long machine) {
+		if (machine <= Inventory.DEFAULT_MACHINE) {
+			return noSuchMachine();
+		}
+
+		final Inventory inventory = inventoryService.findInventory(machine);
+
+		if (inventory == null) {
+			return new ResponseEntity(errorResponse("Machine " + machine + " has no Inventory"),
+					HttpStatus.NOT_FOUND);
+		}
+
+		return new ResponseEntity(inventory, HttpStatus.OK);
+	}
+
+	/**
+	 * REST API method to add a new Ingredient, with a quantity of 1, to a machine's Inventory.
+	 *
+	 * @param machine The machine
+	 * @param name    The name of the Ingredient to add
+	 *
+	 * @return response to the request
+	 */
+	@PostMapping(BASE_PATH + "/machines/{machine}/inventory/{name}")
+	public ResponseEntity createIngredient(@PathVariable("machine") final long machine,
+			@PathVariable("name") final String name) {
+		if (machine <= Inventory.DEFAULT_MACHINE) {
+			return noSuchMachine();
+		}
+
+		try {
+			return retryPolicy.execute("createIngredient", () -> {
+				final Inventory inventory = inventoryService.getInventory(machine);
+
+				if (inventory.getIngredient(name.trim().toLowerCase()) != null) {
+					return new ResponseEntity(errorResponse(
+							name.trim().toLowerCase() + " already exists in the Inventory"),
+							HttpStatus.CONFLICT);
+				}
+
+				final Ingredient ingredient = new Ingredient(name.trim().toLowerCase(), 1);
+				inventory.addIngredient(ingredient);
+				inventoryService.save(inventory);
+
+				return new ResponseEntity(
+						successResponse(ingredient.getName() + " successfully created"),
+						HttpStatus.OK);
+			});
+		} catch (final OptimisticLockingFailureException e) {
+			return busyResponse();
+		}
+	}
+
+	/**
+	 * REST API endpoint to add amounts to the Ingredients in a machine's Inventory. Ingredients the
+	 * machine doesn't have are ignored.
+	 *
+	 * @param machine   The machine
+	 * @param inventory amounts to add to Inventory
+	 *
+	 * @return response to the request
+	 */
+	@PutMapping(BASE_PATH + "/machines/{machine}/inventory")
+	public ResponseEntity updateInventory(@PathVariable("machine") final long machine,
+			@RequestBody final Inventory inventory) {
+		if (machine <= Inventory.DEFAULT_MACHINE) {
+			return noSuchMachine();
+		}
+
+		try {
+			retryPolicy.execute("updateInventory", () -> {
+				final Inventory current = inventoryService.getInventory(machine);
+
+				for (Ingredient ingredient : inventory.getIngredients()) {
+					current.addQuantity(ingredient.getName().trim().toLowerCase(),
+							ingredient.getQuantity());
+				}
+
+				inventoryService.save(current);
+
+				return current;
+			});
+		} catch (final OptimisticLockingFailureException e) {
+			return busyResponse();
+		}
+
+		return new ResponseEntity(inventory, HttpStatus.OK);
+	}
+
+	/**
+	 * REST API method to make coffee on a machine, taking the Ingredients from that machine's
+	 * Inventory. The body is the amount paid.
+	 *
+	 * @param machine The machine
+	 * @param name    recipe name
+	 * @param amtPaid amount paid
+	 *
+	 * @return The change the customer is due if successful
+	 */
+	@PostMapping(BASE_PATH + "/machines/{machine}/makecoffee/{name}")
+	public ResponseEntity makeCoffee(@PathVariable("machine") final long machine,
+			@PathVariable("name") final String name, @RequestBody final int amtPaid) {
+		if (machine <= Inventory.DEFAULT_MACHINE) {
+			return noSuchMachine();
+		}
+
+		final Recipe recipe = recipeService.findByName(name.trim().toLowerCase());
+
+		if (recipe == null) {
+			return new ResponseEntity(errorResponse("Recipe does not exist"), HttpStatus.NOT_FOUND);
+		}
+
+		if (amtPaid < recipe.getPrice()) {
+			return new ResponseEntity(errorResponse("Not enough money paid"), HttpStatus.CONFLICT);
+		}
+
+		final boolean made;
+
+		try {
+			made = useIngredients(machine, recipe);
+		} catch (final OptimisticLockingFailureException e) {
+			return busyResponse();
+		}
+
+		if (!made) {
+			return new ResponseEntity(
+					errorResponse("Not enough Inventory or Ingredient not found in Inventory"),
+					HttpStatus.CONFLICT);
+		}
+
+		final int change = amtPaid - recipe.getPrice();
+
+		return new ResponseEntity<String>(successResponse(String.valueOf(change)), HttpStatus.OK);
+	}
+
+	/**
+	 * Helper method to take the Ingredients for a Recipe out of a machine's Inventory.
+	 *
+	 * @param machine The machine
+	 * @param recipe  Recipe to make
+	 *
+	 * @return true if there were enough Ingredients and they have been used
+	 */
+	private boolean useIngredients(final long machine, final Recipe recipe) {
+		if (mode == InventoryMode.SQL) {
+			return inventoryService.consume(recipe, machine);
+		}
+
+		return retryPolicy.execute("makecoffee", () -> {
+			final Inventory inventory = inventoryService.findInventory(machine);
+
+			if (inventory != null && inventory.useIngredients(recipe)) {
+				inventoryService.save(inventory);
+
+				return true;
+			}
+
+			return false;
+		});
+	}
+
+	/**
+	 * Response for a machine number that can't be used here.
+	 *
+	 * @return 404 response
+	 */
+	private ResponseEntity noSuchMachine() {
+		return new ResponseEntity(
+				errorResponse("Machines are numbered from 1; use /api/v1/inventory for machine 0"),
+				HttpStatus.NOT_FOUND);
+	}
+
+	/**
+	 * Response for when an Inventory update kept conflicting with other updates and ran out of
+	 * retries.
+	 *
+	 * @return 409 response asking the client to try again
+	 */
+	private ResponseEntity busyResponse() {
+		return new ResponseEntity(errorResponse("Inventory is busy; please try again"),
+				HttpStatus.CONFLICT);
+	}
+}
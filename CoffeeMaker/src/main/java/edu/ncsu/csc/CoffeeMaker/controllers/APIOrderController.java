@@ -0,0 +1,48 @@
+package edu.ncsu.csc.CoffeeMaker.controllers;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ncsu.csc.CoffeeMaker.services.CoffeeOrder;
+import edu.ncsu.csc.CoffeeMaker.services.OrderQueue;
+
+/**
+ * Endpoints for checking on orders queued by the make-coffee API when `coffeemaker.orders.async` is
+ * true.
+ * 
+ * `@RestController` : This is used to indicate to Spring, "this is a class where I want to keep
+ * REST API endpoints" and that helps it know that parameters to/from these methods should be
+ * automatically serialized/deserialized.
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+@RestController
+public class APIOrderController extends APIController {
+
+	/**
+	 * OrderQueue object, to be autowired in by Spring to allow for looking up queued orders.
+	 */
+	@Autowired
+	private OrderQueue orderQueue;
+
+	/**
+	 * REST API method to provide GET access to a queued order, as indicated by the path variable
+	 * provided.
+	 * 
+	 * @param id The ID of the order
+	 * 
+	 * @return The order, with its status and, once it is done, the change due
+	 */
+	@GetMapping(BASE_PATH + "/orders/{id}")
+	public ResponseEntity getOrder(@PathVariable("id") final String id) {
+		final CoffeeOrder order = orderQueue.find(id);
+
+		return null == order
+				? new ResponseEntity(errorResponse("No order found with id " + id),
+						HttpStatus.NOT_FOUND)
+				: new ResponseEntity<String>(toJson(order), HttpStatus.OK);
+	}
+}
@@ -1,8 +1,15 @@
 package edu.ncsu.csc.CoffeeMaker.controllers;
 
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -11,10 +18,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
 import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.repositories.RecipeSummary;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeAvailability;
 import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
 
 /**
@@ -37,14 +48,150 @@ public class APIRecipeController extends APIController {
 	@Autowired
 	private RecipeService service;
 
+	/**
+	 * Keeps track of which Recipes can be made now.
+	 */
+	@Autowired
+	private RecipeAvailability availability;
+
 	/**
 	 * REST API method to provide GET access to all Recipes in the system.
+	 * 
+	 * The response carries an ETag that changes whenever a Recipe is written, on this CoffeeMaker
+	 * or any other sharing its database. A client that sends it back in If-None-Match gets 304 Not
+	 * Modified, without the Recipes being loaded, until a Recipe changes.
 	 *
+	 * @param ifNoneMatch ETag the client already has, if any
+	 * 
 	 * @return JSON representation of all Recipes
 	 */
 	@GetMapping(BASE_PATH + "/recipes")
-	public List<Recipe> getRecipes() {
-		return service.findAll();
+	public ResponseEntity getRecipes(
+			@RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+		final String etag = etag(service.getFingerprint());
+
+		if (notModified(ifNoneMatch, etag)) {
+			return notModifiedResponse(etag);
+		}
+
+		// Not from the cache, which may be behind the fingerprint if another CoffeeMaker wrote
+		final List<Recipe> recipes = service.findAllFromDatabase();
+		return taggedResponse(etag, recipes);
+	}
+
+	/**
+	 * REST API method to provide GET access to the name and price of every Recipe, for listings
+	 * that don't need Ingredients. Requested with `?view=summary`; otherwise the same as
+	 * getRecipes().
+	 *
+	 * @param ifNoneMatch ETag the client already has, if any
+	 * 
+	 * @return JSON list of Recipe names and prices
+	 */
+	@GetMapping(value = BASE_PATH + "/recipes", params = "view=summary")
+	public ResponseEntity getRecipeSummaries(
+			@RequestHeader(value = "If-None-Match", required = false) final String ifNoneMatch) {
+		// Not the same representation as getRecipes(), so not the same ETag
+		final String etag = etag(service.getFingerprint(), SUMMARY);
+
+		if (notModified(ifNoneMatch, etag)) {
+			return notModifiedResponse(etag);
+		}
+
+		final List<RecipeSummary> summaries = service.findSummaries();
+		return taggedResponse(etag, summaries);
+	}
+
+	/**
+	 * REST API method to provide GET access to one page of Recipes, in ID order, for clients
+	 * that don't want them all at once. The X-Total-Count header says how many Recipes there
+	 * are.
+	 *
+	 * @param page Index of the page, from 0
+	 * @param size Most Recipes on the page
+	 * 
+	 * @return JSON list of the Recipes on the page
+	 */
+	@GetMapping(value = BASE_PATH + "/recipes", params = "page")
+	public ResponseEntity getRecipesPage(@RequestParam("page") final int page,
+			@RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) final int size) {
+		final ResponseEntity invalid = checkPage(page, size);
+
+		return null != invalid ? invalid : pageResponse(service.findPage(page, size));
+	}
+
+	/**
+	 * REST API method to provide GET access to the Recipes after an ID, in ID order. Unlike
+	 * pages, this stays fast however far into the list the client is, and doesn't skip or repeat
+	 * Recipes when others are added or deleted. When there may be more, the X-Next-After header
+	 * says what to pass as `after` for the next lot.
+	 *
+	 * @param after ID to start after; 0 to start from the beginning
+	 * @param size  Most Recipes to return
+	 * 
+	 * @return JSON list of the Recipes found
+	 */
+	@GetMapping(value = BASE_PATH + "/recipes", params = "after")
+	public ResponseEntity getRecipesAfter(@RequestParam("after") final long after,
+			@RequestParam(value = "size", defaultValue = DEFAULT_PAGE_SIZE) final int size) {
+		final ResponseEntity invalid = checkPage(0, size);
+
+		return null != invalid ? invalid : keysetResponse(service.findAfter(after, size), size);
+	}
+
+	/**
+	 * REST API method to stream every Recipe, in ID order, as newline-delimited JSON. Requested
+	 * with `Accept: application/x-ndjson`. Recipes are read from the database and written out a
+	 * few at a time, so memory use doesn't grow with the number of Recipes.
+	 *
+	 * @param response Response to stream the Recipes into
+	 * 
+	 * @throws IOException if the response can't be written
+	 */
+	@GetMapping(value = BASE_PATH + "/recipes", produces = NDJSON)
+	public void streamRecipes(final HttpServletResponse response) throws IOException {
+		final PrintWriter writer = ndjson(response);
+
+		service.streamAll(record -> writeLine(writer, record));
+		writer.flush();
+	}
+
+	/**
+	 * REST API method to provide GET access to the Recipes that can be made with the Inventory as
+	 * it stands, so that customers aren't offered coffee that can't be made. Which Recipes these
+	 * are is kept up to date as the Inventory changes, not worked out on each request.
+	 *
+	 * @return JSON list of the Recipes that can be made, in alphabetical order
+	 */
+	@GetMapping(BASE_PATH + "/recipes/available")
+	public ResponseEntity getAvailableRecipes() {
+		final List<String> names = availability.getAvailable();
+		final Map<String, Recipe> found = service.findByNames(names);
+		final List<Recipe> recipes = new ArrayList<>(names.size());
+
+		for (String name : names) {
+			if (found.containsKey(name)) {
+				recipes.add(found.get(name));
+			}
+		}
+
+		return new ResponseEntity(recipes, HttpStatus.OK);
+	}
+
+	/**
+	 * REST API method to provide GET access to how many times each Recipe can be made with the
+	 * Inventory as it stands: for each Recipe, the least over its Ingredients of the quantity in the
+	 * Inventory divided by the amount the Recipe takes.
+	 *
+	 * @return JSON object of the number of servings, by Recipe name. Recipes without Ingredients
+	 *         have -1, as there is no limit on them
+	 */
+	@GetMapping(BASE_PATH + "/recipes/servings")
+	public ResponseEntity getServings() {
+		final Map<String, Integer> servings = availability.getServings();
+		servings.replaceAll((name, count) -> count == Integer.MAX_VALUE ? -1 : count);
+
+		return new ResponseEntity(servings, HttpStatus.OK);
 	}
 
 	/**
@@ -71,7 +218,8 @@ public class APIRecipeController extends APIController {
 	 * Recipe by automatically converting the JSON RequestBody provided to a Recipe object. Invalid
 	 * JSON will fail.
 	 * 
-	 * Only 3 Recipes can be stored in the CoffeeMaker.
+	 * The CoffeeMaker only stores as many Recipes as `coffeemaker.recipes.capacity` allows (3
+	 * unless configured otherwise).
 	 *
 	 * @param recipe The valid Recipe to be saved.
 	 * 
@@ -80,14 +228,18 @@ public class APIRecipeController extends APIController {
 	 */
 	@PostMapping(BASE_PATH + "/recipes")
 	public ResponseEntity createRecipe(@RequestBody final Recipe recipe) {
-		if (null != service.findByName(recipe.getName().trim().toLowerCase())) {
-			return new ResponseEntity(errorResponse("Recipe with the name "
-					+ recipe.getName().trim().toLowerCase() + " already exists"),
-					HttpStatus.CONFLICT);
-		}
-		if (service.findAll().size() < 3) {
+		if (!service.isFull()) {
 			recipe.setName(recipe.getName().trim().toLowerCase());
-			service.save(recipe);
+
+			try {
+				service.create(recipe);
+			} catch (final DataIntegrityViolationException e) {
+				// Recipe names are unique in the database
+				return new ResponseEntity(errorResponse(
+						"Recipe with the name " + recipe.getName() + " already exists"),
+						HttpStatus.CONFLICT);
+			}
+
 			return new ResponseEntity(successResponse(recipe.getName() + " successfully created"),
 					HttpStatus.OK);
 		} else {
@@ -116,6 +268,8 @@ public class APIRecipeController extends APIController {
 			@RequestBody final Recipe recipe) {
 		if (null != service.findByName(name)) {
 			service.delete(service.findByName(name));
+			// The edited Recipe usually keeps its name, so the old one must be gone first
+			service.flush();
 
 			if (recipe.getIngredients().size() < 1) {
 				throw new IllegalArgumentException("Recipe must have at least one ingredient");
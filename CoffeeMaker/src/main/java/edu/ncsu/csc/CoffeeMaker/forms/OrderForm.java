@@ -0,0 +1,72 @@
+package edu.ncsu.csc.CoffeeMaker.forms;
+
+/**
+ * One order in a batch sent to the make-coffee API: the name of the Recipe to make and how much the
+ * customer paid for it. See APIController for why the API takes Forms rather than entities.
+ */
+public class OrderForm {
+
+	/**
+	 * Name of the Recipe to make.
+	 */
+	private String recipe;
+
+	/**
+	 * Amount the customer paid.
+	 */
+	private int amtPaid;
+
+	/**
+	 * Empty constructor so that Spring can create an OrderForm from JSON.
+	 */
+	public OrderForm() {
+		// Intentionally empty
+	}
+
+	/**
+	 * Creates an OrderForm for a Recipe.
+	 * 
+	 * @param recipe  Name of the Recipe to make
+	 * @param amtPaid Amount the customer paid
+	 */
+	public OrderForm(final String recipe, final int amtPaid) {
+		this.recipe = recipe;
+		this.amtPaid = amtPaid;
+	}
+
+	/**
+	 * Returns the name of the Recipe to make.
+	 * 
+	 * @return Recipe name
+	 */
+	public String getRecipe() {
+		return recipe;
+	}
+
+	/**
+	 * Sets the name of the Recipe to make.
+	 * 
+	 * @param recipe Recipe name
+	 */
+	public void setRecipe(final String recipe) {
+		this.recipe = recipe;
+	}
+
+	/**
+	 * Returns the amount the customer paid.
+	 * 
+	 * @return amount paid
+	 */
+	public int getAmtPaid() {
+		return amtPaid;
+	}
+
+	/**
+	 * Sets the amount the customer paid.
+	 * 
+	 * @param amtPaid amount paid
+	 */
+	public void setAmtPaid(final int amtPaid) {
+		this.amtPaid = amtPaid;
+	}
+}
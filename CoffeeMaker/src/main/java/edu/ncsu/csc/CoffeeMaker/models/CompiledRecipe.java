@@ -0,0 +1,209 @@
+package edu.ncsu.csc.CoffeeMaker.models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A Recipe's Ingredients reduced to what making it needs: the dense ID of each Ingredient (see
+ * IngredientDictionary), in ascending order, and how much of it the Recipe takes. Ingredients
+ * listed more than once are combined. Checking these against an array of quantities indexed by the
+ * same IDs is a loop over ints, with no name comparisons and nothing allocated.
+ * 
+ * Immutable, so it can be shared between threads along with the Recipe it came from. It remembers
+ * the Ingredients and quantities it was compiled from, so that Recipe.compile() can tell when they
+ * have changed, however they were changed.
+ */
+public final class CompiledRecipe {
+
+	/**
+	 * Dense ID of each Ingredient, ascending.
+	 */
+	private final int[] ingredients;
+
+	/**
+	 * Amount of each Ingredient the Recipe takes.
+	 */
+	private final int[] quantities;
+
+	/**
+	 * The Ingredients this was compiled from, in the Recipe's order.
+	 */
+	private final Ingredient[] source;
+
+	/**
+	 * Quantity of each of `source` when this was compiled.
+	 */
+	private final int[] sourceQuantities;
+
+	/**
+	 * Creates a compiled Recipe.
+	 * 
+	 * @param ingredients      Ingredient IDs, ascending
+	 * @param quantities       Amount of each
+	 * @param source           The Ingredients compiled
+	 * @param sourceQuantities Quantity of each of them when compiled
+	 */
+	private CompiledRecipe(final int[] ingredients, final int[] quantities,
+			final Ingredient[] source, final int[] sourceQuantities) {
+		this.ingredients = ingredients;
+		this.quantities = quantities;
+		this.source = source;
+		this.sourceQuantities = sourceQuantities;
+	}
+
+	/**
+	 * Compiles a Recipe's Ingredients.
+	 * 
+	 * @param recipeIngredients The Recipe's Ingredients
+	 * 
+	 * @return the compiled Recipe
+	 */
+	static CompiledRecipe of(final List<Ingredient> recipeIngredients) {
+		// Pack each ID above its quantity so that a single sort orders them by ID
+		final long[] packed = new long[recipeIngredients.size()];
+		final Ingredient[] source = new Ingredient[packed.length];
+		final int[] sourceQuantities = new int[packed.length];
+
+		for (int i = 0; i < packed.length; i++) {
+			final Ingredient ingredient = recipeIngredients.get(i);
+			source[i] = ingredient;
+			sourceQuantities[i] = ingredient.getQuantity();
+			packed[i] = (long) IngredientDictionary.idOf(ingredient.getName()) << 32
+					| sourceQuantities[i] & 0xFFFFFFFFL;
+		}
+
+		Arrays.sort(packed);
+
+		final int[] ids = new int[packed.length];
+		final int[] amounts = new int[packed.length];
+		int size = 0;
+
+		for (long entry : packed) {
+			final int id = (int) (entry >>> 32);
+			final int amount = (int) entry;
+
+			if (size > 0 && ids[size - 1] == id) {
+				amounts[size - 1] += amount;
+			} else {
+				ids[size] = id;
+				amounts[size] = amount;
+				size++;
+			}
+		}
+
+		return new CompiledRecipe(Arrays.copyOf(ids, size), Arrays.copyOf(amounts, size), source,
+				sourceQuantities);
+	}
+
+	/**
+	 * Checks whether this is still what a Recipe's Ingredients compile to: the same Ingredients,
+	 * in the same order, with the same quantities. Ingredient names can't change, so that covers
+	 * everything compiled. A loop over the list, with no lookups and nothing allocated.
+	 * 
+	 * @param recipeIngredients The Recipe's Ingredients now
+	 * 
+	 * @return true if nothing has changed since this was compiled
+	 */
+	boolean isCompiledFrom(final List<Ingredient> recipeIngredients) {
+		if (recipeIngredients.size() != source.length) {
+			return false;
+		}
+
+		for (int i = 0; i < source.length; i++) {
+			final Ingredient ingredient = recipeIngredients.get(i);
+
+			if (ingredient != source[i] || ingredient.getQuantity() != sourceQuantities[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns how many different Ingredients the Recipe takes.
+	 * 
+	 * @return number of Ingredients
+	 */
+	public int size() {
+		return ingredients.length;
+	}
+
+	/**
+	 * Returns the dense ID of one of the Recipe's Ingredients.
+	 * 
+	 * @param index Position of the Ingredient, from 0 to size() - 1
+	 * 
+	 * @return the Ingredient's ID
+	 */
+	public int ingredient(final int index) {
+		return ingredients[index];
+	}
+
+	/**
+	 * Returns how much of one of the Recipe's Ingredients it takes.
+	 * 
+	 * @param index Position of the Ingredient, from 0 to size() - 1
+	 * 
+	 * @return the amount
+	 */
+	public int quantity(final int index) {
+		return quantities[index];
+	}
+
+	/**
+	 * Checks whether there is enough of every Ingredient to make the Recipe.
+	 * 
+	 * @param stock Quantity of each Ingredient, indexed by dense ID. Ingredients beyond the end of
+	 *              the array are taken to have none
+	 * 
+	 * @return true if the Recipe can be made
+	 */
+	public boolean fits(final int[] stock) {
+		for (int i = 0; i < ingredients.length; i++) {
+			final int id = ingredients[i];
+
+			if (id >= stock.length || stock[id] < quantities[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Works out how many times the Recipe could be made from a stock: the least, over its
+	 * Ingredients, of the quantity in stock divided by the amount the Recipe takes.
+	 * 
+	 * @param stock Quantity of each Ingredient, indexed by dense ID. Ingredients beyond the end of
+	 *              the array, or with a negative quantity, are taken to have none
+	 * 
+	 * @return number of servings, or Integer.MAX_VALUE if no Ingredient limits it
+	 */
+	public int servings(final int[] stock) {
+		int servings = Integer.MAX_VALUE;
+
+		for (int i = 0; i < ingredients.length; i++) {
+			final int id = ingredients[i];
+
+			if (id >= stock.length || stock[id] < 0) {
+				return 0;
+			} else if (quantities[i] > 0) {
+				servings = Math.min(servings, stock[id] / quantities[i]);
+			}
+		}
+
+		return servings;
+	}
+
+	/**
+	 * Takes the Recipe's Ingredients out of a stock. Check fits() first.
+	 * 
+	 * @param stock Quantity of each Ingredient, indexed by dense ID
+	 */
+	public void deduct(final int[] stock) {
+		for (int i = 0; i < ingredients.length; i++) {
+			stock[ingredients[i]] -= quantities[i];
+		}
+	}
+}
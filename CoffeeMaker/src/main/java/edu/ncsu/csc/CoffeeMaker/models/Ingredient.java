@@ -5,23 +5,36 @@ import java.io.Serializable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.Min;
 
 /**
  * Ingredient for a Recipe.
+ * 
+ * Names are indexed but not unique, since every Recipe keeps its own copies of the Ingredients it
+ * needs.
  */
 @Entity
+@Table(indexes = @Index(name = "idx_ingredient_name", columnList = "name"))
 public class Ingredient extends DomainObject {
 
+	/**
+	 * Most of an Ingredient there can be.
+	 */
+	public static final int MAX_QUANTITY = 1000;
+
 	/**
 	 * Serves as the primary key for the database to reference things so that we can keep track of
 	 * them and reference them from other tables later.
 	 * 
 	 * `@Id` tells Hibernate that we'll have the database generate this automatically by
-	 * incrementing a numeric value. Common practice to let the DB generate its own IDs.
+	 * incrementing a numeric value. Common practice to let the DB generate its own IDs. IDs come
+	 * from the shared `pooled` generator (see package-info.java).
 	 */
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "pooled")
 	private Long id;
 
 	/**
@@ -39,6 +52,14 @@ public class Ingredient extends DomainObject {
 	@Min(0)
 	private int quantity;
 
+	/**
+	 * Version number used for optimistic locking. Hibernate bumps this every time the Ingredient is
+	 * updated and refuses to save a copy that was loaded before someone else's update, so that
+	 * concurrent changes to the same Ingredient can't silently overwrite each other.
+	 */
+	@Version
+	private long version;
+
 	/**
 	 * Blank constructor for Hibernate to use when loading objects from the database.
 	 */
@@ -69,6 +90,22 @@ public class Ingredient extends DomainObject {
 		setQuantity(1);
 	}
 
+	/**
+	 * Creates a copy of an Ingredient, not tied to the database, with another quantity. The
+	 * quantity isn't checked, since it comes from the Inventory rather than from a user, and may
+	 * be 0.
+	 * 
+	 * @param ingredient Ingredient to copy
+	 * @param quantity   Its quantity in the copy
+	 */
+	Ingredient(final Ingredient ingredient, final int quantity) {
+		super();
+		this.id = ingredient.id;
+		this.name = ingredient.name;
+		this.version = ingredient.version;
+		this.quantity = quantity;
+	}
+
 	/**
 	 * Set the ID of the Recipe (Used by Hibernate).
 	 *
@@ -124,7 +161,7 @@ public class Ingredient extends DomainObject {
 	public boolean setQuantity(int quantity) {
 		if (quantity < 1) {
 			throw new IllegalArgumentException("Quantity must be a positive integer");
-		} else if (quantity > 1000) {
+		} else if (quantity > MAX_QUANTITY) {
 			throw new IllegalArgumentException("Quantity must not exceed 1000");
 		} else {
 			this.quantity = quantity;
@@ -0,0 +1,69 @@
+package edu.ncsu.csc.CoffeeMaker.models;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dense integer IDs for Ingredient names, shared by everything in the CoffeeMaker. An ID is handed
+ * out, counting up from 0, the first time a name is seen, and never changes or gets reused. That
+ * lets Recipes and Inventories keep their Ingredients in arrays indexed by ID (see CompiledRecipe),
+ * so that checking and taking Ingredients doesn't compare any names.
+ * 
+ * Names are never forgotten, so the dictionary holds every distinct Ingredient name used since
+ * startup. These are not database IDs, and mean nothing to another CoffeeMaker.
+ */
+public final class IngredientDictionary {
+
+	/**
+	 * Dense ID of each name seen so far.
+	 */
+	private static final ConcurrentHashMap<String, Integer> IDS = new ConcurrentHashMap<>();
+
+	/**
+	 * ID the next new name gets.
+	 */
+	private static final AtomicInteger NEXT = new AtomicInteger();
+
+	/**
+	 * Not to be instantiated.
+	 */
+	private IngredientDictionary() {
+	}
+
+	/**
+	 * Returns the dense ID of an Ingredient name, giving it the next one if it hasn't been seen
+	 * before.
+	 * 
+	 * @param name Ingredient name, already normalized (trimmed, lowercase)
+	 * 
+	 * @return the name's ID
+	 */
+	public static int idOf(final String name) {
+		final Integer id = IDS.get(name);
+
+		return id != null ? id : IDS.computeIfAbsent(name, n -> NEXT.getAndIncrement());
+	}
+
+	/**
+	 * Returns the dense ID of an Ingredient name without giving it one.
+	 * 
+	 * @param name Ingredient name, already normalized (trimmed, lowercase)
+	 * 
+	 * @return the name's ID, or -1 if it hasn't been seen before
+	 */
+	public static int find(final String name) {
+		final Integer id = IDS.get(name);
+
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns how many IDs have been handed out. Every ID is less than this, so it is the length
+	 * an array needs to hold one slot per Ingredient name.
+	 * 
+	 * @return number of IDs handed out
+	 */
+	public static int size() {
+		return NEXT.get();
+	}
+}
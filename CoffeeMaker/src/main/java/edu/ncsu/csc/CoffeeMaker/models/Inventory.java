@@ -1,7 +1,11 @@
 package edu.ncsu.csc.CoffeeMaker.models;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
 
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
@@ -9,6 +13,10 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.PostLoad;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
+import javax.persistence.Version;
 
 /**
  * Inventory for the coffee maker. Inventory is tied to the database using Hibernate libraries. See
@@ -21,15 +29,36 @@ import javax.persistence.OneToMany;
  * @author Kai Presler-Marshall
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_inventory_machine",
+		columnNames = "machine"))
 public class Inventory extends DomainObject {
 
+	/**
+	 * Machine whose Inventory is the CoffeeMaker's own, served by /api/v1/inventory.
+	 */
+	public static final long DEFAULT_MACHINE = 0;
+
 	/**
 	 * ID for Inventory entry.
 	 */
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "pooled")
 	private Long id;
 
+	/**
+	 * Coffee machine this Inventory belongs to. Each machine has one Inventory of its own, so
+	 * orders on different machines never touch the same rows.
+	 */
+	private long machine;
+
+	/**
+	 * Version number used for optimistic locking. Hibernate bumps this whenever Ingredients are
+	 * added to or removed from the Inventory, and refuses to save a copy that was loaded before
+	 * someone else's change. Quantity changes are versioned on each Ingredient instead.
+	 */
+	@Version
+	private long version;
+
 	/**
 	 * Store a collection of Ingredients.
 	 * 
@@ -40,18 +69,125 @@ public class Inventory extends DomainObject {
 	 * Ingredient objects. This way, saving the Inventory saves all of its Ingredients, exactly like
 	 * we want.
 	 * 
-	 * FetchType.EAGER: This states that when we load in this Inventory object from the database,
-	 * all Ingredients associated with it should be loaded in too. (Alternative: lazy loading).
+	 * FetchType.LAZY: The Ingredients are only loaded from the database when they are first used.
+	 * InventoryRepository loads them in the same query as the Inventory, and callers that only
+	 * need names and quantities use IngredientSummary.
 	 */
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	private List<Ingredient> ingredients;
 
+	/**
+	 * Name-keyed index over `ingredients` so that lookups don't have to walk the whole list. Keys
+	 * are normalized (trimmed, lowercase) Ingredient names.
+	 * 
+	 * `transient` keeps the index out of the database and out of any JSON built from this object;
+	 * it is derived entirely from `ingredients` and rebuilt whenever that list is replaced.
+	 */
+	private transient Map<String, Ingredient> index;
+
+	/**
+	 * The same Ingredients as `index`, in an array indexed by their dense IDs (see
+	 * IngredientDictionary), with null for names that aren't in the Inventory. Lets a
+	 * CompiledRecipe be checked against the Inventory without comparing names. Built and dropped
+	 * along with `index`.
+	 */
+	private transient Ingredient[] slots;
+
+	/**
+	 * Size of `ingredients` when `index` was last built. Lets us notice when the list has been
+	 * swapped or changed behind our back (by Hibernate, or by a caller of `getIngredients()`).
+	 */
+	private transient int indexedSize;
+
 	/**
 	 * Empty constructor for Hibernate.
 	 */
 	public Inventory() {
 		// Intentionally empty so that Hibernate can instantiate.
 		this.ingredients = new ArrayList<>(); // Needed to prevent NPEs
+		this.index = new HashMap<>();
+		this.slots = new Ingredient[0];
+	}
+
+	/**
+	 * Creates an empty Inventory for a coffee machine.
+	 * 
+	 * @param machine the machine
+	 */
+	public Inventory(final long machine) {
+		this();
+		this.machine = machine;
+	}
+
+	/**
+	 * Drops the name index once Hibernate has loaded the Inventory, so that it is rebuilt from the
+	 * loaded Ingredients on first use. The Ingredients may not have been loaded yet at this point.
+	 */
+	@PostLoad
+	void loaded() {
+		this.index = null;
+	}
+
+	/**
+	 * Rebuilds the name index from the Ingredients list.
+	 */
+	private void rebuildIndex() {
+		final Map<String, Ingredient> rebuilt = new HashMap<>();
+
+		for (Ingredient ingredient : ingredients) {
+			// Keep the first match, same as a front-to-back scan of the list would
+			if (rebuilt.putIfAbsent(key(ingredient.getName()), ingredient) == null) {
+				IngredientDictionary.idOf(key(ingredient.getName()));
+			}
+		}
+
+		final Ingredient[] rebuiltSlots = new Ingredient[IngredientDictionary.size()];
+
+		for (Map.Entry<String, Ingredient> entry : rebuilt.entrySet()) {
+			rebuiltSlots[IngredientDictionary.idOf(entry.getKey())] = entry.getValue();
+		}
+
+		this.index = rebuilt;
+		this.slots = rebuiltSlots;
+		this.indexedSize = ingredients.size();
+	}
+
+	/**
+	 * Returns the name index, rebuilding it first if the Ingredients list has changed size since it
+	 * was last built.
+	 * 
+	 * @return the name index
+	 */
+	private Map<String, Ingredient> index() {
+		if (index == null || indexedSize != ingredients.size()) {
+			rebuildIndex();
+		}
+
+		return index;
+	}
+
+	/**
+	 * Returns the Ingredients by dense ID, rebuilding them first if the Ingredients list has
+	 * changed size since they were last built.
+	 * 
+	 * @return the Ingredients by dense ID
+	 */
+	private Ingredient[] slots() {
+		index();
+
+		return slots;
+	}
+
+	/**
+	 * Normalizes an Ingredient name the same way Ingredient.setName() does, so that it can be used
+	 * as a key into the name index.
+	 * 
+	 * @param name Ingredient name
+	 * 
+	 * @return the normalized name
+	 */
+	private static String key(String name) {
+		return name.trim().toLowerCase();
 	}
 
 	/**
@@ -73,6 +209,15 @@ public class Inventory extends DomainObject {
 		return id;
 	}
 
+	/**
+	 * Returns the coffee machine this Inventory belongs to.
+	 *
+	 * @return the machine
+	 */
+	public long getMachine() {
+		return machine;
+	}
+
 	/**
 	 * Setter for the Ingredients list of the Inventory.
 	 * 
@@ -83,6 +228,7 @@ public class Inventory extends DomainObject {
 	public boolean setIngredients(List<Ingredient> ingredients) {
 		if (ingredients.size() > 0) {
 			this.ingredients = ingredients;
+			rebuildIndex();
 
 			return true;
 		}
@@ -98,12 +244,26 @@ public class Inventory extends DomainObject {
 	 * @return true if enough Ingredients to make the beverage
 	 */
 	public boolean enoughIngredients(final Recipe r) {
-		for (Ingredient ingredient : r.getIngredients()) {
-			if (this.getIngredient(ingredient.getName()) == null) {
+		return enoughIngredients(r.compile(), slots());
+	}
+
+	/**
+	 * Returns true if there are enough Ingredients to make a compiled Recipe.
+	 * 
+	 * @param recipe Compiled Recipe
+	 * @param stored Inventory Ingredients by dense ID
+	 * 
+	 * @return true if enough Ingredients to make the beverage
+	 */
+	private static boolean enoughIngredients(final CompiledRecipe recipe,
+			final Ingredient[] stored) {
+		for (int i = 0; i < recipe.size(); i++) {
+			final int id = recipe.ingredient(i);
+
+			if (id >= stored.length || stored[id] == null) {
 				// Ingredient doesn't exist in Inventory
 				return false;
-			} else if (!(this.getIngredient(ingredient.getName()).getQuantity() >= ingredient
-					.getQuantity())) {
+			} else if (stored[id].getQuantity() < recipe.quantity(i)) {
 				// If the amount in Inventory is less than the amount the Recipe needs
 				return false;
 			}
@@ -120,13 +280,7 @@ public class Inventory extends DomainObject {
 	 * @return The Ingredient if found
 	 */
 	public Ingredient getIngredient(String name) {
-		for (Ingredient ingredient : ingredients) {
-			if (ingredient.getName().equals(name.trim().toLowerCase())) {
-				return ingredient;
-			}
-		}
-
-		return null;
+		return index().get(key(name));
 	}
 
 	/**
@@ -147,11 +301,13 @@ public class Inventory extends DomainObject {
 	 * @return true if Recipe is made.
 	 */
 	public boolean useIngredients(final Recipe r) {
-		if (enoughIngredients(r)) {
-			for (Ingredient ingredient : r.getIngredients()) {
-				this.useIngredient(ingredient.getName(), ingredient.getQuantity());
-				// Don't need to check whether it was used since it is guaranteed to via
-				// enoughIngredients
+		final CompiledRecipe recipe = r.compile();
+		final Ingredient[] stored = slots();
+
+		if (enoughIngredients(recipe, stored)) {
+			for (int i = 0; i < recipe.size(); i++) {
+				final Ingredient ingredient = stored[recipe.ingredient(i)];
+				ingredient.setQuantity(ingredient.getQuantity() - recipe.quantity(i));
 			}
 
 			return true;
@@ -170,13 +326,13 @@ public class Inventory extends DomainObject {
 	 * @param amtUsed the amt to use
 	 */
 	public void useIngredient(String name, int amtUsed) {
-		for (Ingredient ingredient : this.ingredients) {
-			if (ingredient.getName().equals(name)) {
-				int endAmt = ingredient.getQuantity() - amtUsed;
+		final Ingredient ingredient = this.getIngredient(name);
 
-				if (endAmt >= 0) {
-					ingredient.setQuantity(endAmt);
-				}
+		if (ingredient != null) {
+			int endAmt = ingredient.getQuantity() - amtUsed;
+
+			if (endAmt >= 0) {
+				ingredient.setQuantity(endAmt);
 			}
 		}
 	}
@@ -191,7 +347,17 @@ public class Inventory extends DomainObject {
 	public boolean addIngredient(Ingredient ingredient) {
 		if (ingredient != null) {
 			if (this.ingredients.size() == 0 || this.getIngredient(ingredient.getName()) == null) {
+				final String key = key(ingredient.getName());
+				final int id = IngredientDictionary.idOf(key);
+				index().put(key, ingredient);
+
+				if (id >= slots.length) {
+					slots = Arrays.copyOf(slots, IngredientDictionary.size());
+				}
+
+				slots[id] = ingredient;
 				this.ingredients.add(ingredient);
+				indexedSize = ingredients.size();
 				return true;
 			}
 		}
@@ -208,15 +374,13 @@ public class Inventory extends DomainObject {
 	 * @return true if successful, false if not
 	 */
 	public boolean addQuantity(String name, int quantity) {
-		for (Ingredient ingredient : this.ingredients) {
-			if (ingredient.getName().equals(name.trim().toLowerCase())) {
-				if (quantity >= 1) {
-					int amt = ingredient.getQuantity() + quantity;
-					ingredient.setQuantity(amt);
+		final Ingredient ingredient = this.getIngredient(name);
 
-					return true;
-				}
-			}
+		if (ingredient != null && quantity >= 1) {
+			int amt = ingredient.getQuantity() + quantity;
+			ingredient.setQuantity(amt);
+
+			return true;
 		}
 
 		return false;
@@ -231,14 +395,12 @@ public class Inventory extends DomainObject {
 	 * @return true if successful, false if not
 	 */
 	public boolean setIngredient(String name, int quantity) {
-		for (Ingredient ingredient : ingredients) {
-			if (ingredient.getName().equals(name.trim().toLowerCase())) {
-				if (quantity >= 1) {
-					ingredient.setQuantity(quantity);
+		final Ingredient ingredient = this.getIngredient(name);
 
-					return true;
-				}
-			}
+		if (ingredient != null && quantity >= 1) {
+			ingredient.setQuantity(quantity);
+
+			return true;
 		}
 
 		return false;
@@ -252,22 +414,49 @@ public class Inventory extends DomainObject {
 	 * @return true if successful, false if not
 	 */
 	public boolean removeIngredient(String name) {
-		for (Ingredient ingredient : ingredients) {
-			if (ingredient.getName().equals(name.trim().toLowerCase())) {
-				ingredients.remove(ingredient);
+		final Ingredient ingredient = this.getIngredient(name);
 
-				return true;
-			}
+		if (ingredient != null) {
+			ingredients.remove(ingredient);
+			rebuildIndex(); // In case the list held another Ingredient with the same name
+
+			return true;
 		}
 
 		return false;
 	}
 
+	/**
+	 * Returns a copy of this Inventory, not tied to the database, with the quantity of each
+	 * Ingredient looked up elsewhere; used to show quantities that are ahead of the database, such
+	 * as the InventoryLedger's. Changing the copy changes nothing in the database.
+	 * 
+	 * @param quantities Quantity of each Ingredient, by name; negative to keep this Inventory's
+	 * 
+	 * @return the copy
+	 */
+	public Inventory withQuantities(final ToIntFunction<String> quantities) {
+		final Inventory copy = new Inventory(machine);
+		copy.id = id;
+		copy.version = version;
+
+		for (Ingredient ingredient : ingredients) {
+			final int quantity = quantities.applyAsInt(ingredient.getName());
+			copy.ingredients.add(
+					new Ingredient(ingredient, quantity < 0 ? ingredient.getQuantity() : quantity));
+		}
+
+		copy.rebuildIndex();
+
+		return copy;
+	}
+
 	/**
 	 * Removes all Ingredients from the Inventory.
 	 */
 	public void clearInventory() {
 		ingredients.clear();
+		rebuildIndex();
 	}
 
 	/**
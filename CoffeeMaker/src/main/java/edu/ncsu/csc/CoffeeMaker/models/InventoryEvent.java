@@ -0,0 +1,195 @@
+package edu.ncsu.csc.CoffeeMaker.models;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * One change to the quantity of an Inventory Ingredient, in the append-only log kept when
+ * `coffeemaker.inventory.mode` is `EVENTS`. Events are never updated or deleted; the quantities at
+ * any point are what you get by applying every event up to that point, in ID order, to the last
+ * InventorySnapshot taken before it.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_inventory_event_recorded_at", columnList = "recordedAt"))
+public class InventoryEvent extends DomainObject {
+
+	/**
+	 * What happened to the Ingredient.
+	 */
+	public enum Kind {
+
+		/**
+		 * The Ingredient was added to the Inventory; the amount is its starting quantity.
+		 */
+		ADDED,
+
+		/**
+		 * The amount was added to the Ingredient.
+		 */
+		RESTOCKED,
+
+		/**
+		 * The amount was taken out of the Ingredient to make a Recipe.
+		 */
+		CONSUMED,
+
+		/**
+		 * The Ingredient was taken out of the Inventory.
+		 */
+		CLEARED
+	}
+
+	/**
+	 * ID of the event. IDs come from the shared `pooled` generator (see package-info.java) and
+	 * increase in the order events are appended.
+	 */
+	@Id
+	@GeneratedValue(generator = "pooled")
+	private Long id;
+
+	/**
+	 * Name of the Ingredient that changed.
+	 */
+	private String ingredient;
+
+	/**
+	 * What happened to the Ingredient.
+	 */
+	@Enumerated(EnumType.STRING)
+	private Kind kind;
+
+	/**
+	 * How much it changed by; see Kind. Always 0 or more.
+	 */
+	private int amount;
+
+	/**
+	 * When the event was appended.
+	 */
+	private Instant recordedAt;
+
+	/**
+	 * Blank constructor for Hibernate to use when loading events from the database.
+	 */
+	public InventoryEvent() {
+		super();
+	}
+
+	/**
+	 * Creates an event, recorded now.
+	 * 
+	 * @param ingredient Ingredient name
+	 * @param kind       What happened to it
+	 * @param amount     How much it changed by
+	 */
+	public InventoryEvent(final String ingredient, final Kind kind, final int amount) {
+		super();
+		this.ingredient = ingredient.trim().toLowerCase();
+		this.kind = kind;
+		this.amount = amount;
+		this.recordedAt = Instant.now();
+	}
+
+	/**
+	 * Get the ID of the event.
+	 */
+	@Override
+	public Serializable getId() {
+		return id;
+	}
+
+	/**
+	 * Get the name of the Ingredient that changed.
+	 * 
+	 * @return Ingredient name
+	 */
+	public String getIngredient() {
+		return ingredient;
+	}
+
+	/**
+	 * Get what happened to the Ingredient.
+	 * 
+	 * @return the kind of event
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Get how much the Ingredient changed by.
+	 * 
+	 * @return the amount
+	 */
+	public int getAmount() {
+		return amount;
+	}
+
+	/**
+	 * Get when the event was appended.
+	 * 
+	 * @return the time
+	 */
+	public Instant getRecordedAt() {
+		return recordedAt;
+	}
+
+	/**
+	 * Applies this event to a set of quantities.
+	 * 
+	 * @param quantities Quantity of each Ingredient in the Inventory, by name. Changed in place
+	 */
+	public void apply(final Map<String, Integer> quantities) {
+		switch (kind) {
+		case ADDED:
+			quantities.put(ingredient, amount);
+			break;
+		case RESTOCKED:
+			quantities.computeIfPresent(ingredient, (name, quantity) -> quantity + amount);
+			break;
+		case CONSUMED:
+			quantities.computeIfPresent(ingredient,
+					(name, quantity) -> Math.max(0, quantity - amount));
+			break;
+		case CLEARED:
+			quantities.remove(ingredient);
+			break;
+		}
+	}
+
+	/**
+	 * Applies events, in order, to a set of quantities.
+	 * 
+	 * @param quantities Quantity of each Ingredient in the Inventory, by name. Changed in place
+	 * @param events     Events to apply, in ID order
+	 * 
+	 * @return the quantities
+	 */
+	public static Map<String, Integer> fold(final Map<String, Integer> quantities,
+			final List<InventoryEvent> events) {
+		for (InventoryEvent event : events) {
+			event.apply(quantities);
+		}
+
+		return quantities;
+	}
+
+	/**
+	 * Event's String representation.
+	 */
+	@Override
+	public String toString() {
+		return "InventoryEvent [id=" + id + ", ingredient=" + ingredient + ", kind=" + kind
+				+ ", amount=" + amount + "]";
+	}
+}
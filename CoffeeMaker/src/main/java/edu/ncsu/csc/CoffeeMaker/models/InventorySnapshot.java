@@ -0,0 +1,112 @@
+package edu.ncsu.csc.CoffeeMaker.models;
+
+import java.io.Serializable;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * The quantity of every Inventory Ingredient as of one InventoryEvent, so that the current
+ * quantities can be worked out from the last snapshot and the events after it rather than from the
+ * whole log. Snapshots are taken periodically when `coffeemaker.inventory.mode` is `EVENTS`, and
+ * kept, so that older quantities can be worked out too.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_inventory_snapshot_taken_at", columnList = "takenAt"))
+public class InventorySnapshot extends DomainObject {
+
+	/**
+	 * Type of the quantities, for Gson.
+	 */
+	private static final Type QUANTITIES = new TypeToken<TreeMap<String, Integer>>() {
+	}.getType();
+
+	/**
+	 * ID of the snapshot. IDs come from the shared `pooled` generator (see package-info.java).
+	 */
+	@Id
+	@GeneratedValue(generator = "pooled")
+	private Long id;
+
+	/**
+	 * ID of the last event included in the snapshot, or 0 if none is.
+	 */
+	private long lastEvent;
+
+	/**
+	 * When the snapshot was taken.
+	 */
+	private Instant takenAt;
+
+	/**
+	 * Quantity of each Ingredient, by name, as a JSON object.
+	 */
+	@Column(columnDefinition = "TEXT")
+	private String quantities;
+
+	/**
+	 * Blank constructor for Hibernate to use when loading snapshots from the database.
+	 */
+	public InventorySnapshot() {
+		super();
+	}
+
+	/**
+	 * Creates a snapshot, taken now.
+	 * 
+	 * @param lastEvent  ID of the last event included, or 0 if none is
+	 * @param quantities Quantity of each Ingredient, by name
+	 */
+	public InventorySnapshot(final long lastEvent, final Map<String, Integer> quantities) {
+		super();
+		this.lastEvent = lastEvent;
+		this.takenAt = Instant.now();
+		this.quantities = new Gson().toJson(new TreeMap<>(quantities));
+	}
+
+	/**
+	 * Get the ID of the snapshot.
+	 */
+	@Override
+	public Serializable getId() {
+		return id;
+	}
+
+	/**
+	 * Get the ID of the last event included in the snapshot.
+	 * 
+	 * @return the event ID, or 0 if none is included
+	 */
+	public long getLastEvent() {
+		return lastEvent;
+	}
+
+	/**
+	 * Get when the snapshot was taken.
+	 * 
+	 * @return the time
+	 */
+	public Instant getTakenAt() {
+		return takenAt;
+	}
+
+	/**
+	 * Get the quantity of each Ingredient. Returns a new map each time, which the caller may change.
+	 * 
+	 * @return quantities, by Ingredient name
+	 */
+	public Map<String, Integer> getQuantities() {
+		return new Gson().fromJson(quantities, QUANTITIES);
+	}
+}
@@ -9,15 +9,20 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Table;
+import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.Min;
 
 /**
  * Recipe for the coffee maker. Recipe is tied to the database using Hibernate libraries. See
  * RecipeRepository and RecipeService for the other two pieces used for database support.
+ * 
+ * Recipe names are unique; the database enforces it (see db/migration).
  *
  * @author Kai Presler-Marshall
  */
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_recipe_name", columnNames = "name"))
 public class Recipe extends DomainObject {
 
 	/**
@@ -30,17 +35,19 @@ public class Recipe extends DomainObject {
 	 * Ingredient objects. This way, saving the Recipe saves all of its Ingredients, exactly like we
 	 * want.
 	 * 
-	 * FetchType.EAGER: This states that when we load in this Recipe object from the database, all
-	 * Ingredients associated with it should be loaded in too. (Alternative: lazy loading).
+	 * FetchType.LAZY: The Ingredients are only loaded from the database when they are first used.
+	 * Callers that need them pick them up in the same query as the Recipe instead (see the entity
+	 * graphs on RecipeRepository), and callers that only need a name and price use
+	 * RecipeSummary.
 	 */
-	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+	@OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
 	private List<Ingredient> ingredients;
 
 	/**
 	 * Recipe id.
 	 */
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = "pooled")
 	private Long id;
 
 	/**
@@ -52,6 +59,12 @@ public class Recipe extends DomainObject {
 	@Min(0)
 	private Integer price;
 
+	/**
+	 * The Ingredients compiled for making this Recipe, or null if they haven't been yet or have
+	 * changed since. `transient` keeps it out of the database and out of any JSON.
+	 */
+	private transient volatile CompiledRecipe compiled;
+
 	/**
 	 * BLANK CONSTRUCTOR.
 	 * 
@@ -151,6 +164,7 @@ public class Recipe extends DomainObject {
 	public boolean addIngredient(Ingredient ingredient) {
 		if (null != ingredient) {
 			this.ingredients.add(ingredient);
+			this.compiled = null;
 
 			return true;
 		}
@@ -166,6 +180,7 @@ public class Recipe extends DomainObject {
 	public void removeIngredient(Ingredient ingredient) {
 		if (this.ingredients.size() > 1) {
 			this.ingredients.remove(ingredient);
+			this.compiled = null;
 		} else {
 			throw new IllegalArgumentException("Recipe must have at least one ingredient");
 		}
@@ -197,6 +212,25 @@ public class Recipe extends DomainObject {
 		return this.ingredients;
 	}
 
+	/**
+	 * Returns this Recipe's Ingredients compiled for making it: dense Ingredient IDs and amounts,
+	 * so that Inventories can check and take them without comparing names. Compiled the first
+	 * time it is needed and kept until the Ingredients change: added, removed, swapped or given a
+	 * new quantity, whether through this Recipe or through getIngredients().
+	 * 
+	 * @return the compiled Recipe
+	 */
+	public CompiledRecipe compile() {
+		CompiledRecipe current = compiled;
+
+		if (current == null || !current.isCompiledFrom(ingredients)) {
+			current = CompiledRecipe.of(ingredients);
+			compiled = current;
+		}
+
+		return current;
+	}
+
 	/**
 	 * Get a specific Ingredients that this Recipe contains, if it exists.
 	 * 
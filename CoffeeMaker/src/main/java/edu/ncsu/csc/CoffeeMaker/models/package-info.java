@@ -0,0 +1,18 @@
+/**
+ * Persistent classes of the CoffeeMaker.
+ * 
+ * All of them take their IDs from the `pooled` generator defined here. It draws from the same
+ * `hibernate_sequence` that plain `@GeneratedValue` used, but reserves IDs 50 at a time, so that
+ * inserting a Recipe with its Ingredients doesn't cost a round trip to the sequence per row and the
+ * inserts can be sent to the database in one batch. The `pooled-lo` optimizer treats the stored
+ * value as the next free ID, which is what the sequence already held, so existing databases carry on
+ * without reusing IDs.
+ */
+@GenericGenerator(name = "pooled", strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator",
+		parameters = { @Parameter(name = "sequence_name", value = "hibernate_sequence"),
+				@Parameter(name = "increment_size", value = "50"),
+				@Parameter(name = "optimizer", value = "pooled-lo") })
+package edu.ncsu.csc.CoffeeMaker.models;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
@@ -1,6 +1,18 @@
 package edu.ncsu.csc.CoffeeMaker.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
 
@@ -18,4 +30,76 @@ public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
 	 * @return Found Recipe, null if none.
 	 */
 	Ingredient findByName(String name);
+
+	/**
+	 * Finds the Ingredients that come after an ID, in ID order. Spring will generate code to make
+	 * this happen.
+	 * 
+	 * @param id       ID to start after
+	 * @param pageable How many Ingredients to find
+	 * 
+	 * @return Found Ingredients
+	 */
+	List<Ingredient> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	/**
+	 * Streams every Ingredient in ID order. Rows are read from the database a batch at a time as
+	 * the stream is consumed. Must be consumed inside a transaction, and closed.
+	 * 
+	 * @return Stream of Ingredients
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+	@Query("select i from Ingredient i order by i.id")
+	Stream<Ingredient> streamAll();
+
+	/**
+	 * Subtracts an amount from an Ingredient's quantity in a single UPDATE, without loading it. The
+	 * version is bumped too, so anyone holding an older copy of the Ingredient will get a conflict
+	 * rather than overwrite this change.
+	 * 
+	 * @param id     ID of the Ingredient
+	 * @param amount Amount to subtract
+	 * 
+	 * @return Number of rows updated
+	 */
+	@Modifying
+	@Query("update Ingredient i set i.quantity = i.quantity - :amount, i.version = i.version + 1 "
+			+ "where i.id = :id")
+	int consume(@Param("id") Long id, @Param("amount") int amount);
+
+	/**
+	 * Sets an Ingredient's quantity in a single UPDATE, without loading it. Bumps the version, like
+	 * consume().
+	 * 
+	 * @param id       ID of the Ingredient
+	 * @param quantity New quantity
+	 * 
+	 * @return Number of rows updated
+	 */
+	@Modifying
+	@Query("update Ingredient i set i.quantity = :quantity, i.version = i.version + 1 "
+			+ "where i.id = :id")
+	int setQuantity(@Param("id") Long id, @Param("quantity") int quantity);
+
+	/**
+	 * Takes every Ingredient a Recipe needs out of a coffee machine's Inventory in one statement.
+	 * Each Inventory Ingredient row is only updated if it holds at least as much as the Recipe
+	 * needs, so the number of rows updated tells the caller whether the whole Recipe could be made.
+	 * It is up to the caller to roll back if it couldn't.
+	 * 
+	 * @param recipeId ID of the Recipe being made
+	 * @param machine  Machine whose Inventory to take them from
+	 * 
+	 * @return Number of Inventory Ingredient rows updated
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Query(value = "UPDATE ingredient stock "
+			+ "JOIN inventory_ingredients held ON held.ingredients_id = stock.id "
+			+ "JOIN inventory inv ON inv.id = held.inventory_id AND inv.machine = :machine "
+			+ "JOIN recipe_ingredients needs ON needs.recipe_id = :recipeId "
+			+ "JOIN ingredient need ON need.id = needs.ingredients_id AND need.name = stock.name "
+			+ "SET stock.quantity = stock.quantity - need.quantity, "
+			+ "stock.version = stock.version + 1 "
+			+ "WHERE stock.quantity >= need.quantity", nativeQuery = true)
+	int consumeRecipe(@Param("recipeId") Long recipeId, @Param("machine") long machine);
 }
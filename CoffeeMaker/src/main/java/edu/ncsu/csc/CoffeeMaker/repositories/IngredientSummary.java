@@ -0,0 +1,23 @@
+package edu.ncsu.csc.CoffeeMaker.repositories;
+
+/**
+ * Read-only view of an Ingredient's name and quantity, for listings that don't need the entity.
+ * Spring Data implements this interface from the columns a query selects (see
+ * InventoryRepository.findSummaries()), so no Ingredient entity is loaded.
+ */
+public interface IngredientSummary {
+
+	/**
+	 * Returns the name of the Ingredient.
+	 * 
+	 * @return the name
+	 */
+	String getName();
+
+	/**
+	 * Returns the quantity of the Ingredient.
+	 * 
+	 * @return the quantity
+	 */
+	Integer getQuantity();
+}
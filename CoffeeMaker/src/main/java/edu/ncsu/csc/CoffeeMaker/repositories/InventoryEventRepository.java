@@ -0,0 +1,46 @@
+package edu.ncsu.csc.CoffeeMaker.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import edu.ncsu.csc.CoffeeMaker.models.InventoryEvent;
+
+/**
+ * InventoryEventRepository is used to append to and read the Inventory event log. Spring will
+ * generate appropriate code with JPA.
+ */
+public interface InventoryEventRepository extends JpaRepository<InventoryEvent, Long> {
+
+	/**
+	 * Finds every event after an ID, in ID order.
+	 * 
+	 * @param id ID to start after
+	 * 
+	 * @return Found events
+	 */
+	List<InventoryEvent> findByIdGreaterThanOrderByIdAsc(Long id);
+
+	/**
+	 * Finds the events after an ID, in ID order, a page at a time.
+	 * 
+	 * @param id       ID to start after
+	 * @param pageable How many events to find
+	 * 
+	 * @return Found events
+	 */
+	List<InventoryEvent> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+	/**
+	 * Finds every event after an ID that was recorded no later than a time, in ID order.
+	 * 
+	 * @param id ID to start after
+	 * @param at Latest time to include
+	 * 
+	 * @return Found events
+	 */
+	List<InventoryEvent> findByIdGreaterThanAndRecordedAtLessThanEqualOrderByIdAsc(Long id,
+			Instant at);
+}
@@ -1,15 +1,81 @@
 package edu.ncsu.csc.CoffeeMaker.repositories;
 
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import edu.ncsu.csc.CoffeeMaker.models.Inventory;
 
 /**
  * InventoryRepository is used to provide CRUD operations for the Inventory model. Spring will
  * generate appropriate code with JPA.
+ * 
+ * Inventory Ingredients are loaded lazily, so the methods here that return whole Inventories fetch
+ * their Ingredients in the same query.
  *
  * @author Kai Presler-Marshall
  *
  */
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
+
+	/**
+	 * Finds every Inventory, along with its Ingredients, in a single query.
+	 * 
+	 * @return All Inventories
+	 */
+	@Override
+	@Query("select distinct i from Inventory i left join fetch i.ingredients order by i.id")
+	List<Inventory> findAll();
+
+	/**
+	 * Finds an Inventory by ID, along with its Ingredients.
+	 * 
+	 * @param id ID of the Inventory
+	 * 
+	 * @return Found Inventory, if any
+	 */
+	@Override
+	@EntityGraph(attributePaths = "ingredients")
+	Optional<Inventory> findById(Long id);
+
+	/**
+	 * Finds a coffee machine's Inventory, along with its Ingredients.
+	 * 
+	 * @param machine The machine
+	 * 
+	 * @return Found Inventory, null if none
+	 */
+	@EntityGraph(attributePaths = "ingredients")
+	Inventory findByMachine(long machine);
+
+	/**
+	 * Finds the name and quantity of every Ingredient in a coffee machine's Inventory, without
+	 * loading the Inventory or its Ingredients.
+	 * 
+	 * @param machine The machine
+	 * 
+	 * @return Name and quantity of each Inventory Ingredient
+	 */
+	@Query("select ingredient.name as name, ingredient.quantity as quantity "
+			+ "from Inventory i join i.ingredients ingredient where i.machine = :machine "
+			+ "order by ingredient.id")
+	List<IngredientSummary> findSummaries(@Param("machine") long machine);
+
+	/**
+	 * Sums up a coffee machine's Inventory in one row of numbers that changes whenever an
+	 * Ingredient is added to it, removed from it or changed, without loading it. Every change to an
+	 * Ingredient's quantity bumps its version, however it is made.
+	 * 
+	 * @param machine The machine
+	 * 
+	 * @return One row: count and sums of Ingredient IDs and versions, and the Inventory's version
+	 */
+	@Query("select count(i), coalesce(sum(i.id), 0), coalesce(sum(i.version), 0), "
+			+ "coalesce(max(inv.version), -1) "
+			+ "from Inventory inv left join inv.ingredients i where inv.machine = :machine")
+	List<Object[]> fingerprint(@Param("machine") long machine);
 }
@@ -0,0 +1,30 @@
+package edu.ncsu.csc.CoffeeMaker.repositories;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import edu.ncsu.csc.CoffeeMaker.models.InventorySnapshot;
+
+/**
+ * InventorySnapshotRepository is used to save and find Inventory snapshots. Spring will generate
+ * appropriate code with JPA.
+ */
+public interface InventorySnapshotRepository extends JpaRepository<InventorySnapshot, Long> {
+
+	/**
+	 * Finds the most recent snapshot.
+	 * 
+	 * @return Found snapshot, null if none
+	 */
+	InventorySnapshot findFirstByOrderByLastEventDescIdDesc();
+
+	/**
+	 * Finds the most recent snapshot taken no later than a time.
+	 * 
+	 * @param at Latest time to include
+	 * 
+	 * @return Found snapshot, null if none
+	 */
+	InventorySnapshot findFirstByTakenAtLessThanEqualOrderByLastEventDescIdDesc(Instant at);
+}
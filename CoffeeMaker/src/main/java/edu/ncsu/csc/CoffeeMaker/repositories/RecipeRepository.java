@@ -1,12 +1,31 @@
 package edu.ncsu.csc.CoffeeMaker.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import edu.ncsu.csc.CoffeeMaker.models.Recipe;
 
 /**
  * RecipeRepository is used to provide CRUD operations for the Recipe model. Spring will generate
  * appropriate code with JPA.
+ * 
+ * Recipe Ingredients are loaded lazily, so every method here that returns whole Recipes fetches
+ * their Ingredients in the same query. Recipes are cached by RecipeService and used after their
+ * transaction is over, when lazy loading is no longer possible.
  *
  * @author Kai Presler-Marshall
  *
@@ -14,11 +33,109 @@ import edu.ncsu.csc.CoffeeMaker.models.Recipe;
 public interface RecipeRepository extends JpaRepository<Recipe, Long> {
 
 	/**
-	 * Finds a Recipe object with the provided name. Spring will generate code to make this happen.
+	 * Finds every Recipe, along with its Ingredients, in a single query.
+	 * 
+	 * @return All Recipes
+	 */
+	@Override
+	@Query("select distinct r from Recipe r left join fetch r.ingredients order by r.id")
+	List<Recipe> findAll();
+
+	/**
+	 * Finds a Recipe by ID, along with its Ingredients.
+	 * 
+	 * @param id ID of the Recipe
+	 * 
+	 * @return Found Recipe, if any
+	 */
+	@Override
+	@EntityGraph(attributePaths = "ingredients")
+	Optional<Recipe> findById(Long id);
+
+	/**
+	 * Finds a Recipe object with the provided name, along with its Ingredients. Spring will
+	 * generate code to make this happen.
 	 * 
 	 * @param name Name of the Recipe
 	 * 
 	 * @return Found Recipe, null if none
 	 */
+	@EntityGraph(attributePaths = "ingredients")
 	Recipe findByName(String name);
+
+	/**
+	 * Finds the name and price of every Recipe, without loading the Recipes themselves.
+	 * 
+	 * @return Name and price of each Recipe
+	 */
+	@Query("select r.name as name, r.price as price from Recipe r order by r.id")
+	List<RecipeSummary> findSummaries();
+
+	/**
+	 * Finds every Recipe whose name is in the provided collection, along with its Ingredients, in
+	 * a single query.
+	 * 
+	 * @param names Names of the Recipes
+	 * 
+	 * @return Found Recipes; names that don't match a Recipe are left out
+	 */
+	@Query("select distinct r from Recipe r left join fetch r.ingredients where r.name in :names")
+	List<Recipe> findByNameIn(@Param("names") Collection<String> names);
+
+	/**
+	 * Sums up the Recipes and their Ingredients in one row of numbers that changes whenever any of
+	 * them is added, removed or changed, without loading them. Edits replace a Recipe with a new
+	 * one, which changes the IDs; Ingredient changes bump their versions.
+	 * 
+	 * @return One row: counts and sums of IDs, prices and versions
+	 */
+	@Query("select count(r), coalesce(sum(r.id), 0), coalesce(sum(r.price), 0), count(i), "
+			+ "coalesce(sum(i.id), 0), coalesce(sum(i.version), 0) "
+			+ "from Recipe r left join r.ingredients i")
+	List<Object[]> fingerprint();
+
+	/**
+	 * Finds one page of Recipe IDs. Recipes are paged by ID first and then loaded with
+	 * findWithIngredients(), since Hibernate can't page a query that fetches a collection without
+	 * loading every row.
+	 * 
+	 * @param pageable Page to find
+	 * 
+	 * @return Page of Recipe IDs
+	 */
+	@Query(value = "select r.id from Recipe r", countQuery = "select count(r) from Recipe r")
+	Page<Long> findIds(Pageable pageable);
+
+	/**
+	 * Finds the IDs of the Recipes that come after an ID, in ID order.
+	 * 
+	 * @param after    ID to start after
+	 * @param pageable How many IDs to find
+	 * 
+	 * @return Recipe IDs
+	 */
+	@Query("select r.id from Recipe r where r.id > :after order by r.id")
+	List<Long> findIdsAfter(@Param("after") Long after, Pageable pageable);
+
+	/**
+	 * Finds the Recipes with the provided IDs, along with their Ingredients, in ID order.
+	 * 
+	 * @param ids IDs of the Recipes
+	 * 
+	 * @return Found Recipes
+	 */
+	@Query("select distinct r from Recipe r left join fetch r.ingredients where r.id in :ids "
+			+ "order by r.id")
+	List<Recipe> findWithIngredients(@Param("ids") Collection<Long> ids);
+
+	/**
+	 * Streams every Recipe, along with its Ingredients, in ID order. Rows are read from the
+	 * database a batch at a time as the stream is consumed. Must be consumed inside a transaction,
+	 * and closed.
+	 * 
+	 * @return Stream of Recipes
+	 */
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "100"))
+	@Query("select r from Recipe r left join fetch r.ingredients order by r.id")
+	Stream<Recipe> streamAll();
 }
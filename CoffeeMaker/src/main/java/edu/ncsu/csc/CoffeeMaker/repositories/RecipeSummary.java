@@ -0,0 +1,23 @@
+package edu.ncsu.csc.CoffeeMaker.repositories;
+
+/**
+ * Read-only view of a Recipe's name and price, for listings that don't need its Ingredients. Spring
+ * Data implements this interface from the columns a query selects (see
+ * RecipeRepository.findSummaries()), so no Recipe entity is loaded.
+ */
+public interface RecipeSummary {
+
+	/**
+	 * Returns the name of the Recipe.
+	 * 
+	 * @return the name
+	 */
+	String getName();
+
+	/**
+	 * Returns the price of the Recipe.
+	 * 
+	 * @return the price
+	 */
+	Integer getPrice();
+}
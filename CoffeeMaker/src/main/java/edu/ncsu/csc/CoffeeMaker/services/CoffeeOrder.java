@@ -0,0 +1,183 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+/**
+ * An order taken by the OrderQueue. Orders live in memory only: they are tracked from the moment
+ * they are queued until some time after they have been brewed, so that the customer can poll for
+ * the result.
+ * 
+ * Orders are changed by the worker brewing them and read by request threads, so everything that
+ * changes is volatile.
+ */
+public class CoffeeOrder {
+
+	/**
+	 * Where an order is on its way through the queue.
+	 */
+	public enum Status {
+		/** Waiting in the queue. */
+		QUEUED,
+		/** Being made by a worker. */
+		BREWING,
+		/** Made; the change is available. */
+		DONE,
+		/** Couldn't be made; the message says why. */
+		FAILED
+	}
+
+	/**
+	 * Unique ID of the order, handed back to the customer.
+	 */
+	private final String id;
+
+	/**
+	 * Name of the Recipe ordered.
+	 */
+	private final String recipe;
+
+	/**
+	 * Amount the customer paid.
+	 */
+	private final int amtPaid;
+
+	/**
+	 * Where the order is.
+	 */
+	private volatile Status status = Status.QUEUED;
+
+	/**
+	 * Change due to the customer, once the order is done. Until then, or if the order failed, the
+	 * customer is due the whole amount paid.
+	 */
+	private volatile int change;
+
+	/**
+	 * Why the order failed, if it did.
+	 */
+	private volatile String message;
+
+	/**
+	 * When the order was queued, from System.nanoTime(). Not sent to the customer.
+	 */
+	private final transient long queuedAt = System.nanoTime();
+
+	/**
+	 * When the order finished, from System.nanoTime(), or 0 if it hasn't yet. Not sent to the
+	 * customer.
+	 */
+	private transient volatile long finishedAt;
+
+	/**
+	 * Creates a queued order.
+	 * 
+	 * @param id      Unique ID of the order
+	 * @param recipe  Name of the Recipe ordered
+	 * @param amtPaid Amount the customer paid
+	 */
+	public CoffeeOrder(final String id, final String recipe, final int amtPaid) {
+		this.id = id;
+		this.recipe = recipe;
+		this.amtPaid = amtPaid;
+		this.change = amtPaid;
+	}
+
+	/**
+	 * Marks the order as being made.
+	 */
+	void brewing() {
+		status = Status.BREWING;
+	}
+
+	/**
+	 * Marks the order as made.
+	 * 
+	 * @param change Change due to the customer
+	 */
+	void done(final int change) {
+		this.change = change;
+		finishedAt = System.nanoTime();
+		status = Status.DONE;
+	}
+
+	/**
+	 * Marks the order as failed.
+	 * 
+	 * @param message Why the order couldn't be made
+	 */
+	void failed(final String message) {
+		this.message = message;
+		finishedAt = System.nanoTime();
+		status = Status.FAILED;
+	}
+
+	/**
+	 * Returns the ID of the order.
+	 * 
+	 * @return order ID
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the name of the Recipe ordered.
+	 * 
+	 * @return Recipe name
+	 */
+	public String getRecipe() {
+		return recipe;
+	}
+
+	/**
+	 * Returns the amount the customer paid.
+	 * 
+	 * @return amount paid
+	 */
+	public int getAmtPaid() {
+		return amtPaid;
+	}
+
+	/**
+	 * Returns where the order is.
+	 * 
+	 * @return status of the order
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Returns the change due to the customer.
+	 * 
+	 * @return change
+	 */
+	public int getChange() {
+		return change;
+	}
+
+	/**
+	 * Returns why the order failed.
+	 * 
+	 * @return failure message, null unless the order failed
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Returns when the order was queued.
+	 * 
+	 * @return System.nanoTime() when the order was queued
+	 */
+	long getQueuedAt() {
+		return queuedAt;
+	}
+
+	/**
+	 * Returns when the order finished.
+	 * 
+	 * @return System.nanoTime() when the order finished, or 0 if it hasn't
+	 */
+	long getFinishedAt() {
+		return finishedAt;
+	}
+}
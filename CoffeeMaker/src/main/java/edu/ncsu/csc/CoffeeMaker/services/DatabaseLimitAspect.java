@@ -0,0 +1,121 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import javax.annotation.PostConstruct;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Holds every call into a Service until one of `coffeemaker.threads.db-permits` DatabasePermits is
+ * free, so that no more requests use the database at once than it can serve. This matters with
+ * virtual threads (`coffeemaker.threads.virtual`), where there is no longer a thread pool holding
+ * back thousands of requests: without it, they would all queue for a connection from the pool and
+ * time out there. Set the permits a little below the connection pool size
+ * (`spring.datasource.hikari.maximum-pool-size`), leaving connections for the background jobs that
+ * run without a permit (see runWithoutPermit()). 0, the default, turns the limit off.
+ *
+ * The permit is taken before the Service's transaction is started, and given back when the
+ * outermost Service call returns. That is only enough on threads that give their connection back
+ * at the end of each transaction, such as the async workers and the order queue.
+ * Requests to the API keep theirs until they are answered (`spring.jpa.open-in-view`), so they
+ * take their permit for the whole request in DatabaseLimitFilter, and their Service calls share
+ * it. Waiting requests are reported in the `coffeemaker.db.waiting` gauge.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class DatabaseLimitAspect {
+
+	/**
+	 * Registry for the waiting gauge.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Most requests that can use the database at once. 0 for no limit.
+	 */
+	@Value("${coffeemaker.threads.db-permits:0}")
+	private int count;
+
+	/**
+	 * Longest, in milliseconds, a request waits for a permit.
+	 */
+	@Value("${coffeemaker.threads.db-wait-ms:15000}")
+	private long waitMs;
+
+	/**
+	 * The permits, or null if there is no limit.
+	 */
+	private DatabasePermits permits;
+
+	/**
+	 * Creates the permits, if there is a limit.
+	 */
+	@PostConstruct
+	public void start() {
+		if (count > 0) {
+			permits = new DatabasePermits(count, waitMs);
+
+			Gauge.builder("coffeemaker.db.waiting", permits, DatabasePermits::getWaiting)
+					.description("Requests waiting to use the database").register(registry);
+		}
+	}
+
+	/**
+	 * Returns the permits.
+	 *
+	 * @return the permits, or null if there is no limit
+	 */
+	public DatabasePermits getPermits() {
+		return permits;
+	}
+
+	/**
+	 * Runs a background job without a permit. The InventoryLedger's flush and the
+	 * InventoryEventLog's snapshots are run this way: requests holding permits wait on them, so
+	 * making them wait for a permit could hold everything up until `db-wait-ms` runs out.
+	 *
+	 * @param job The job
+	 */
+	public void runWithoutPermit(final Runnable job) {
+		if (permits == null) {
+			job.run();
+		} else {
+			permits.runWithoutPermit(job);
+		}
+	}
+
+	/**
+	 * Runs a call into a Service once a permit is free.
+	 * 
+	 * @param call The call
+	 * 
+	 * @return What the Service returned
+	 * 
+	 * @throws Throwable whatever the Service threw
+	 */
+	@Around("execution(public * *(..)) && bean(*Service)")
+	public Object limit(final ProceedingJoinPoint call) throws Throwable {
+		if (permits == null) {
+			return call.proceed();
+		}
+
+		permits.enter();
+
+		try {
+			return call.proceed();
+		} finally {
+			permits.exit();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.dao.TransientDataAccessResourceException;
+
+/**
+ * Limits how many threads can be using the database at once. A thread takes a permit when it
+ * starts handling a request to the API, or otherwise when it enters its first Service call, and
+ * gives it back when that request or call is done. Service calls made while a thread holds a
+ * permit don't need one of their own and can't end up waiting on the thread that is making them.
+ *
+ * Permits are handed out in the order they were asked for. A thread that can't get one in time
+ * gets a TransientDataAccessResourceException, as it would if it had waited too long for a
+ * connection from the pool.
+ */
+public class DatabasePermits {
+
+	/**
+	 * The permits.
+	 */
+	private final Semaphore permits;
+
+	/**
+	 * Longest, in milliseconds, to wait for a permit.
+	 */
+	private final long waitMs;
+
+	/**
+	 * How deep in Service calls the current thread is. A one-element array, so that it can be
+	 * counted without boxing.
+	 */
+	private final ThreadLocal<int[]> depth = ThreadLocal.withInitial(() -> new int[1]);
+
+	/**
+	 * Creates a set of permits.
+	 *
+	 * @param count  Most threads that can use the database at once
+	 * @param waitMs Longest, in milliseconds, to wait for a permit
+	 */
+	public DatabasePermits(final int count, final long waitMs) {
+		this.permits = new Semaphore(count, true);
+		this.waitMs = waitMs;
+	}
+
+	/**
+	 * Takes a permit, unless the current thread already holds one. Every call must be matched by a
+	 * call to exit(), whether or not the work in between succeeds.
+	 *
+	 * @throws InterruptedException                 if interrupted while waiting
+	 * @throws TransientDataAccessResourceException if no permit came free in time; exit() must not
+	 *                                              be called
+	 */
+	public void enter() throws InterruptedException {
+		final int[] held = depth.get();
+
+		if (held[0] == 0 && !permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+			throw new TransientDataAccessResourceException(
+					"Waited " + waitMs + " ms for the database; too many requests are using it");
+		}
+
+		held[0]++;
+	}
+
+	/**
+	 * Gives the permit back once the current thread has left its outermost Service call.
+	 */
+	public void exit() {
+		final int[] held = depth.get();
+
+		if (--held[0] == 0) {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Runs work on the current thread without a permit, Service calls included. For background
+	 * jobs that requests holding permits wait on, which would otherwise wait for those permits in
+	 * turn.
+	 *
+	 * @param work The work
+	 */
+	public void runWithoutPermit(final Runnable work) {
+		final int[] held = depth.get();
+
+		// Counted as held, so that enter() doesn't take one, but never given back
+		held[0]++;
+
+		try {
+			work.run();
+		} finally {
+			held[0]--;
+		}
+	}
+
+	/**
+	 * Returns how many permits are free.
+	 *
+	 * @return number of threads that could start using the database now
+	 */
+	public int getAvailable() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * Returns roughly how many threads are waiting for a permit.
+	 *
+	 * @return number of threads waiting
+	 */
+	public int getWaiting() {
+		return permits.getQueueLength();
+	}
+}
@@ -0,0 +1,131 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+
+/**
+ * A fixed set of locks shared out between Ingredients by dense ID (see IngredientDictionary), so
+ * that an order only has to lock the Ingredients its Recipe uses. Two orders that have no
+ * Ingredient in common never wait for each other, unless two of their Ingredients happen to share
+ * a lock.
+ *
+ * Locks are always taken in ascending order and released in the opposite order, so two orders that
+ * both need several of the same locks can't each end up holding one the other is waiting for.
+ */
+public class IngredientLocks {
+
+	/**
+	 * The locks. There is a power of two of them, so that an Ingredient's lock can be found with a
+	 * mask.
+	 */
+	private final ReentrantLock[] stripes;
+
+	/**
+	 * Every lock, in the order they are taken.
+	 */
+	private final int[] all;
+
+	/**
+	 * Creates a set of locks.
+	 *
+	 * @param count How many locks to share out; rounded up to a power of two
+	 */
+	public IngredientLocks(final int count) {
+		int size = 1;
+
+		while (size < count) {
+			size <<= 1;
+		}
+
+		stripes = new ReentrantLock[size];
+		all = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			stripes[i] = new ReentrantLock();
+			all[i] = i;
+		}
+	}
+
+	/**
+	 * Returns how many locks there are.
+	 *
+	 * @return number of locks
+	 */
+	public int size() {
+		return stripes.length;
+	}
+
+	/**
+	 * Returns the lock an Ingredient uses.
+	 *
+	 * @param id Dense Ingredient ID
+	 *
+	 * @return index of the lock
+	 */
+	public int stripe(final int id) {
+		return id & (stripes.length - 1);
+	}
+
+	/**
+	 * Returns the locks needed to make a Recipe, in the order they must be taken. Each lock is
+	 * listed once, however many of the Recipe's Ingredients use it.
+	 *
+	 * @param recipe Compiled Recipe
+	 *
+	 * @return indexes of the locks, in ascending order
+	 */
+	public int[] stripes(final CompiledRecipe recipe) {
+		final int[] needed = new int[recipe.size()];
+
+		for (int i = 0; i < needed.length; i++) {
+			needed[i] = stripe(recipe.ingredient(i));
+		}
+
+		return Arrays.stream(needed).sorted().distinct().toArray();
+	}
+
+	/**
+	 * Returns every lock, in the order they must be taken, for changes that touch the whole
+	 * Inventory.
+	 *
+	 * @return indexes of every lock
+	 */
+	public int[] all() {
+		return all;
+	}
+
+	/**
+	 * Takes locks, waiting for each in turn.
+	 *
+	 * @param held Indexes of the locks, in ascending order, as returned by stripes() or all()
+	 */
+	public void lock(final int[] held) {
+		for (int stripe : held) {
+			stripes[stripe].lock();
+		}
+	}
+
+	/**
+	 * Releases locks taken with lock().
+	 *
+	 * @param held Indexes of the locks, as passed to lock()
+	 */
+	public void unlock(final int[] held) {
+		for (int i = held.length - 1; i >= 0; i--) {
+			stripes[held[i]].unlock();
+		}
+	}
+
+	/**
+	 * Whether the current thread holds a lock.
+	 *
+	 * @param stripe Index of the lock
+	 *
+	 * @return true if the current thread holds it
+	 */
+	public boolean isHeld(final int stripe) {
+		return stripes[stripe].isHeldByCurrentThread();
+	}
+}
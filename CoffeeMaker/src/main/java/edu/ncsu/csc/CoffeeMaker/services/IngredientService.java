@@ -1,9 +1,17 @@
 package edu.ncsu.csc.CoffeeMaker.services;
 
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
 import edu.ncsu.csc.CoffeeMaker.repositories.IngredientRepository;
@@ -19,6 +27,11 @@ import edu.ncsu.csc.CoffeeMaker.repositories.IngredientRepository;
  * which means that if something goes wrong in the middle of updating the database, it won't be left
  * in an inconsistent partial state. Also, more interestingly, it enables transaction rollback for
  * our tests
+ * 
+ * Ingredients can be cached by ID and by name (see `Service`), but caching is off unless
+ * `coffeemaker.cache.ingredients.max-size` is set: Inventory quantities are also written through
+ * the Inventory, the InventoryLedger, the InventoryEventLog and the StripedInventory, which this
+ * Service never sees, so cached Ingredients can go stale.
  */
 @Component
 @Transactional
@@ -30,6 +43,17 @@ public class IngredientService extends Service<Ingredient, Long> {
 	@Autowired
 	private IngredientRepository ingredientRepository;
 
+	/**
+	 * Most Ingredients to cache, by ID and by name. 0 turns caching off.
+	 */
+	@Value("${coffeemaker.cache.ingredients.max-size:0}")
+	private int cacheSize;
+
+	/**
+	 * Ingredients cached by name, or null if caching is off.
+	 */
+	private ServiceCache<String, Ingredient> byName;
+
 	/**
 	 * Returns this instance.
 	 */
@@ -38,6 +62,26 @@ public class IngredientService extends Service<Ingredient, Long> {
 		return ingredientRepository;
 	}
 
+	/**
+	 * Turns on the Ingredient caches, if they have been configured on.
+	 */
+	@PostConstruct
+	public void enableCaches() {
+		if (cacheSize > 0) {
+			byName = monitor("ingredients", "name", new LruServiceCache<>(cacheSize));
+			setCache("ingredients", new LruServiceCache<>(cacheSize));
+		}
+	}
+
+	@Override
+	protected void invalidate() {
+		super.invalidate();
+
+		if (null != byName) {
+			byName.clear();
+		}
+	}
+
 	/**
 	 * Find an ingredient with the provided name.
 	 * 
@@ -46,6 +90,106 @@ public class IngredientService extends Service<Ingredient, Long> {
 	 * @return found ingredient, null if none
 	 */
 	public Ingredient findByName(final String name) {
-		return ingredientRepository.findByName(name.trim().toLowerCase());
+		final String key = name.trim().toLowerCase();
+		final boolean caching = isCaching();
+
+		if (caching) {
+			final Ingredient cached = byName.get(key);
+
+			if (null != cached) {
+				return cached;
+			}
+		}
+
+		final long seen = getRevision();
+		final Ingredient ingredient = ingredientRepository.findByName(key);
+
+		if (caching && null != ingredient) {
+			fill(byName, key, ingredient, seen);
+		}
+
+		return ingredient;
+	}
+
+	/**
+	 * Subtracts an amount from an Ingredient's quantity directly in the database. Used by the
+	 * InventoryLedger to write out what has been consumed.
+	 * 
+	 * @param id     ID of the Ingredient
+	 * @param amount Amount to subtract; a negative amount is added
+	 * 
+	 * @return true if the Ingredient was found and updated
+	 */
+	public boolean consume(final Long id, final int amount) {
+		final boolean consumed = ingredientRepository.consume(id, amount) == 1;
+		written();
+
+		return consumed;
+	}
+
+	/**
+	 * Subtracts amounts from several Ingredients' quantities directly in the database, all in one
+	 * transaction. Used by the StripedInventory to write out what a Recipe has consumed. If any of
+	 * the Ingredients is no longer there, the transaction is rolled back and none are changed.
+	 * 
+	 * @param ids     IDs of the Ingredients
+	 * @param amounts Amount to subtract from each; a negative amount is added
+	 * 
+	 * @return true if every Ingredient was found and updated
+	 */
+	public boolean consume(final Long[] ids, final int[] amounts) {
+		try {
+			for (int i = 0; i < ids.length; i++) {
+				if (ingredientRepository.consume(ids[i], amounts[i]) != 1) {
+					TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+
+					return false;
+				}
+			}
+
+			return true;
+		} finally {
+			written();
+		}
+	}
+
+	/**
+	 * Sets an Ingredient's quantity directly in the database. Used by the InventoryEventLog to
+	 * write out the quantities in a snapshot.
+	 * 
+	 * @param id       ID of the Ingredient
+	 * @param quantity New quantity
+	 * 
+	 * @return true if the Ingredient was found and updated
+	 */
+	public boolean setQuantity(final Long id, final int quantity) {
+		final boolean updated = ingredientRepository.setQuantity(id, quantity) == 1;
+		written();
+
+		return updated;
+	}
+
+	/**
+	 * Returns the Ingredients that come after an ID, in ID order. Pass the ID of the last
+	 * Ingredient from one call to get the next lot.
+	 * 
+	 * @param after ID to start after
+	 * @param size  Most Ingredients to return
+	 * 
+	 * @return Found Ingredients
+	 */
+	public List<Ingredient> findAfter(final Long after, final int size) {
+		return ingredientRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size));
+	}
+
+	/**
+	 * Hands every Ingredient to an action in ID order, reading them from the database a batch at a
+	 * time rather than all at once.
+	 * 
+	 * @param action What to do with each Ingredient
+	 */
+	@Transactional(readOnly = true)
+	public void streamAll(final Consumer<? super Ingredient> action) {
+		forEach(ingredientRepository.streamAll(), action);
 	}
 }
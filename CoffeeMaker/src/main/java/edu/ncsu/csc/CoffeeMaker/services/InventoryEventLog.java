@@ -0,0 +1,512 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.InventoryEvent;
+import edu.ncsu.csc.CoffeeMaker.models.InventoryEvent.Kind;
+import edu.ncsu.csc.CoffeeMaker.models.InventorySnapshot;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * Event-sourced Inventory quantities, used when `coffeemaker.inventory.mode` is `EVENTS`.
+ *
+ * Every change to a quantity is appended to the inventory_event table as an InventoryEvent, and
+ * nothing is updated in place: making a Recipe inserts one CONSUMED event per Ingredient, in one
+ * batch, instead of updating the Ingredient rows. The current quantities are the last
+ * InventorySnapshot with the events after it applied; they are kept in memory, in arrays indexed
+ * by dense Ingredient ID, and rebuilt the same way after a restart. Because the log is never
+ * rewritten, it is also an audit history, and the quantities at any earlier time can be worked out
+ * from the snapshot before it.
+ *
+ * Adding and restocking Ingredients are appended too, and checked against the log's quantities
+ * rather than the rows. A background thread takes a snapshot whenever events have been appended
+ * since the last one, and writes its quantities onto the Ingredient rows, creating and removing
+ * rows to match, so that the rest of the CoffeeMaker sees them. Until then the rows lag behind
+ * the log; if the two disagree, the log wins.
+ *
+ * Appends are serialized: every change holds this object's lock from checking the quantities
+ * until its events have been inserted, a database round trip. That is what keeps event IDs in the
+ * order the quantities were changed in, so that replaying the log gives the same quantities and a
+ * snapshot's last event covers exactly the changes in it. It also means orders in this mode are
+ * made one at a time, however many requests are waiting, and only one CoffeeMaker instance should
+ * write to a log.
+ */
+@Component
+public class InventoryEventLog {
+
+	/**
+	 * Logger for background snapshot failures.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(InventoryEventLog.class);
+
+	/**
+	 * InventoryEventService, used to append events and save snapshots.
+	 */
+	@Autowired
+	private InventoryEventService eventService;
+
+	/**
+	 * InventoryService, used to start the log from the Inventory when there is no snapshot yet,
+	 * and to find the Ingredient rows snapshots are written to.
+	 */
+	@Autowired
+	private InventoryService inventoryService;
+
+	/**
+	 * IngredientService, used to write snapshot quantities onto the Ingredient rows.
+	 */
+	@Autowired
+	private IngredientService ingredientService;
+
+	/**
+	 * Lets the background snapshots run without a DatabasePermit.
+	 */
+	@Autowired
+	private DatabaseLimitAspect limit;
+
+	/**
+	 * How the CoffeeMaker is tracking Inventory. The log only does anything in `EVENTS` mode.
+	 */
+	@Value("${coffeemaker.inventory.mode:ENTITY}")
+	private InventoryMode mode;
+
+	/**
+	 * How often, in milliseconds, to check whether a snapshot is due.
+	 */
+	@Value("${coffeemaker.inventory.events.snapshot-interval-ms:5000}")
+	private long snapshotIntervalMs;
+
+	/**
+	 * Whether the quantities below have been loaded from the log.
+	 */
+	private boolean loaded;
+
+	/**
+	 * Quantity of each Ingredient, indexed by dense ID, or -1 if it isn't in the Inventory.
+	 */
+	private int[] stock = new int[0];
+
+	/**
+	 * Name of each Ingredient, indexed by dense ID, for writing events.
+	 */
+	private String[] names = new String[0];
+
+	/**
+	 * ID of the last event applied to the quantities, or 0 if none has been.
+	 */
+	private long lastEvent;
+
+	/**
+	 * ID of the last event included in the most recent snapshot.
+	 */
+	private long snapshotEvent;
+
+	/**
+	 * Background thread that takes snapshots.
+	 */
+	private ScheduledExecutorService snapshotter;
+
+	/**
+	 * Starts taking snapshots in the background when the log is in use.
+	 */
+	@PostConstruct
+	void start() {
+		if (isActive()) {
+			snapshotter = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread t = new Thread(r, "inventory-event-snapshot");
+				t.setDaemon(true);
+				return t;
+			});
+			snapshotter.scheduleWithFixedDelay(this::snapshotQuietly, snapshotIntervalMs,
+					snapshotIntervalMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops the background snapshots and takes a last one, so that the next start has no events
+	 * to replay.
+	 */
+	@PreDestroy
+	void stop() {
+		if (snapshotter != null) {
+			snapshotter.shutdown();
+			snapshotQuietly();
+		}
+	}
+
+	/**
+	 * Whether Inventory changes should be appended to the log.
+	 *
+	 * @return true if `coffeemaker.inventory.mode` is `EVENTS`
+	 */
+	public boolean isActive() {
+		return mode == InventoryMode.EVENTS;
+	}
+
+	/**
+	 * Takes all of the Ingredients needed to make a Recipe, or none of them, by appending a
+	 * CONSUMED event for each.
+	 *
+	 * @param recipe Recipe to make
+	 *
+	 * @return true if there was enough of every Ingredient and it has been taken
+	 */
+	public synchronized boolean consume(final Recipe recipe) {
+		load();
+		final CompiledRecipe needs = recipe.compile();
+
+		// Ingredients not in the Inventory have -1, so they never fit
+		if (!needs.fits(stock)) {
+			return false;
+		}
+
+		final List<InventoryEvent> events = new ArrayList<>(needs.size());
+
+		for (int i = 0; i < needs.size(); i++) {
+			if (needs.quantity(i) > 0) {
+				events.add(new InventoryEvent(names[needs.ingredient(i)], Kind.CONSUMED,
+						needs.quantity(i)));
+			}
+		}
+
+		append(events);
+		needs.deduct(stock);
+
+		return true;
+	}
+
+	/**
+	 * Adds an Ingredient to the Inventory by appending an ADDED event. Its row is created by the
+	 * next snapshot.
+	 *
+	 * @param name     Ingredient name
+	 * @param quantity its starting quantity
+	 *
+	 * @return true if it has been added, false if the Inventory already has it
+	 */
+	public synchronized boolean added(final String name, final int quantity) {
+		load();
+
+		if (slot(name.trim().toLowerCase()) >= 0) {
+			return false;
+		}
+
+		final InventoryEvent event = new InventoryEvent(name, Kind.ADDED, quantity);
+		append(List.of(event));
+
+		final int id = IngredientDictionary.idOf(event.getIngredient());
+		grow();
+		stock[id] = quantity;
+		names[id] = event.getIngredient();
+
+		return true;
+	}
+
+	/**
+	 * Adds an amount to an Ingredient by appending a RESTOCKED event. Its row is brought up to date
+	 * by the next snapshot.
+	 *
+	 * @param name   Ingredient name
+	 * @param amount amount to add
+	 *
+	 * @return true if it has been added; false if the Ingredient isn't in the Inventory, the
+	 *         amount isn't positive or it would take the Ingredient over Ingredient.MAX_QUANTITY
+	 */
+	public synchronized boolean restock(final String name, final int amount) {
+		load();
+		final int id = slot(name.trim().toLowerCase());
+
+		if (id < 0 || amount < 1 || stock[id] > Ingredient.MAX_QUANTITY - amount) {
+			return false;
+		}
+
+		append(List.of(new InventoryEvent(names[id], Kind.RESTOCKED, amount)));
+		stock[id] += amount;
+
+		return true;
+	}
+
+	/**
+	 * Records that every Ingredient has been taken out of the Inventory.
+	 */
+	public synchronized void cleared() {
+		load();
+		final List<InventoryEvent> events = new ArrayList<>();
+
+		for (int id = 0; id < stock.length; id++) {
+			if (stock[id] >= 0) {
+				events.add(new InventoryEvent(names[id], Kind.CLEARED, 0));
+			}
+		}
+
+		append(events);
+		Arrays.fill(stock, -1);
+	}
+
+	/**
+	 * Returns the current quantity of an Ingredient.
+	 *
+	 * @param name Ingredient name
+	 *
+	 * @return the quantity, or -1 if the Ingredient isn't in the Inventory
+	 */
+	public synchronized int getQuantity(final String name) {
+		load();
+		final int id = slot(name.trim().toLowerCase());
+
+		return id < 0 ? -1 : stock[id];
+	}
+
+	/**
+	 * Returns the current quantity of every Ingredient in the Inventory.
+	 *
+	 * @return quantities, by Ingredient name in alphabetical order
+	 */
+	public synchronized Map<String, Integer> getQuantities() {
+		load();
+		final Map<String, Integer> quantities = new TreeMap<>();
+
+		for (int id = 0; id < stock.length; id++) {
+			if (stock[id] >= 0) {
+				quantities.put(names[id], stock[id]);
+			}
+		}
+
+		return quantities;
+	}
+
+	/**
+	 * Works out the quantity of every Ingredient in the Inventory as it stood at an earlier time,
+	 * from the last snapshot taken before then and the events between the two. Reads only the
+	 * database.
+	 *
+	 * @param at Time to work out the quantities at
+	 *
+	 * @return quantities, by Ingredient name in alphabetical order. Empty if the log doesn't go
+	 *         back that far
+	 */
+	public Map<String, Integer> getQuantitiesAt(final Instant at) {
+		final InventorySnapshot snapshot = eventService.findSnapshotAt(at);
+
+		if (snapshot == null) {
+			return new TreeMap<>();
+		}
+
+		return InventoryEvent.fold(new TreeMap<>(snapshot.getQuantities()),
+				eventService.findAfter(snapshot.getLastEvent(), at));
+	}
+
+	/**
+	 * Returns the events after an ID, oldest first. Pass the ID of the last event from one call to
+	 * get the next lot.
+	 *
+	 * @param after ID to start after
+	 * @param size  Most events to return
+	 *
+	 * @return found events
+	 */
+	public List<InventoryEvent> getEvents(final long after, final int size) {
+		return eventService.findAfter(after, size);
+	}
+
+	/**
+	 * Throws away the quantities held in memory and rebuilds them from the last snapshot and the
+	 * events after it, as happens on startup.
+	 */
+	public synchronized void recover() {
+		loaded = false;
+		load();
+	}
+
+	/**
+	 * Saves a snapshot of the current quantities, if any events have been appended since the last
+	 * one, and writes the quantities onto the Inventory's Ingredient rows, creating the rows of
+	 * Ingredients added through the log and removing those it no longer has. The snapshot only
+	 * counts as taken once the rows have been written, so that rows left behind by a failure are
+	 * written by the next one.
+	 */
+	public void snapshot() {
+		final InventorySnapshot snapshot;
+
+		synchronized (this) {
+			if (!loaded || lastEvent == snapshotEvent) {
+				return;
+			}
+
+			snapshot = new InventorySnapshot(lastEvent, getQuantities());
+		}
+
+		eventService.saveSnapshot(snapshot);
+
+		final Map<String, Integer> quantities = snapshot.getQuantities();
+		Inventory inventory = inventoryService.getInventory();
+		boolean changed = false;
+
+		for (String name : quantities.keySet()) {
+			if (inventory.getIngredient(name) == null) {
+				// Added through the log; its quantity is written below
+				inventory.addIngredient(new Ingredient(name));
+				changed = true;
+			}
+		}
+
+		for (Ingredient ingredient : new ArrayList<>(inventory.getIngredients())) {
+			if (!quantities.containsKey(ingredient.getName())) {
+				// Cleared in the log since this row was written
+				changed |= inventory.removeIngredient(ingredient.getName());
+			}
+		}
+
+		if (changed) {
+			inventoryService.save(inventory);
+			inventory = inventoryService.getInventory();
+		}
+
+		for (Ingredient ingredient : inventory.getIngredients()) {
+			final Integer quantity = quantities.get(ingredient.getName());
+
+			if (quantity != null && quantity != ingredient.getQuantity()) {
+				ingredientService.setQuantity((Long) ingredient.getId(), quantity);
+			}
+		}
+
+		synchronized (this) {
+			snapshotEvent = Math.max(snapshotEvent, snapshot.getLastEvent());
+		}
+	}
+
+	/**
+	 * Takes a snapshot from the background thread, where there is nobody to throw to. It runs
+	 * without a DatabasePermit, as the ledger's flush does, so that it never waits on requests.
+	 */
+	private void snapshotQuietly() {
+		try {
+			limit.runWithoutPermit(this::snapshot);
+		} catch (final RuntimeException e) {
+			LOG.warn("Could not take Inventory snapshot; will retry", e);
+		}
+	}
+
+	/**
+	 * Loads the quantities from the last snapshot and the events after it, unless they already
+	 * have been. With no snapshot yet, starts from the Inventory in the database and saves that as
+	 * the first snapshot.
+	 */
+	private void load() {
+		if (loaded) {
+			return;
+		}
+
+		InventorySnapshot snapshot = eventService.findLatestSnapshot();
+
+		if (snapshot == null) {
+			final Map<String, Integer> quantities = new HashMap<>();
+
+			for (Ingredient ingredient : inventoryService.getInventory().getIngredients()) {
+				// Keep the first of two Ingredients with the same name, as Inventory does
+				quantities.putIfAbsent(ingredient.getName(), ingredient.getQuantity());
+			}
+
+			snapshot = new InventorySnapshot(0, quantities);
+			eventService.saveSnapshot(snapshot);
+		}
+
+		final List<InventoryEvent> tail = eventService.findAfter(snapshot.getLastEvent());
+		final Map<String, Integer> quantities = InventoryEvent.fold(snapshot.getQuantities(), tail);
+
+		stock = new int[0];
+		names = new String[0];
+		quantities.forEach((name, quantity) -> IngredientDictionary.idOf(name));
+		grow();
+		quantities.forEach((name, quantity) -> {
+			final int id = IngredientDictionary.idOf(name);
+			stock[id] = quantity;
+			names[id] = name;
+		});
+
+		snapshotEvent = snapshot.getLastEvent();
+		lastEvent = tail.isEmpty() ? snapshotEvent : (Long) tail.get(tail.size() - 1).getId();
+		loaded = true;
+	}
+
+	/**
+	 * Appends events to the log and moves lastEvent on. If the caller's transaction, if any, rolls
+	 * back, the quantities are loaded again next time, since the events never made it.
+	 *
+	 * @param events Events to append
+	 */
+	private void append(final List<InventoryEvent> events) {
+		if (events.isEmpty()) {
+			return;
+		}
+
+		eventService.append(events);
+		lastEvent = (Long) events.get(events.size() - 1).getId();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(final int status) {
+							if (status != TransactionSynchronization.STATUS_COMMITTED) {
+								synchronized (InventoryEventLog.this) {
+									loaded = false;
+								}
+							}
+						}
+					});
+		}
+	}
+
+	/**
+	 * Returns the dense ID of an Ingredient that is in the Inventory.
+	 *
+	 * @param name Ingredient name, normalized
+	 *
+	 * @return the ID, or -1 if the Ingredient isn't in the Inventory
+	 */
+	private int slot(final String name) {
+		final int id = IngredientDictionary.find(name);
+
+		return id < 0 || id >= stock.length || stock[id] < 0 ? -1 : id;
+	}
+
+	/**
+	 * Makes room in the arrays for every Ingredient ID handed out so far.
+	 */
+	private void grow() {
+		final int size = IngredientDictionary.size();
+
+		if (stock.length < size) {
+			final int from = stock.length;
+			stock = Arrays.copyOf(stock, size);
+			names = Arrays.copyOf(names, size);
+			Arrays.fill(stock, from, size, -1);
+		}
+	}
+}
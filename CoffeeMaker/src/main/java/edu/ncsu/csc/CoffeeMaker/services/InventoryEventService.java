@@ -0,0 +1,120 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.time.Instant;
+import java.util.List;
+
+import javax.transaction.Transactional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc.CoffeeMaker.models.InventoryEvent;
+import edu.ncsu.csc.CoffeeMaker.models.InventorySnapshot;
+import edu.ncsu.csc.CoffeeMaker.repositories.InventoryEventRepository;
+import edu.ncsu.csc.CoffeeMaker.repositories.InventorySnapshotRepository;
+
+/**
+ * The InventoryEventService reads and appends to the Inventory event log, and saves and finds the
+ * snapshots taken of it. Events and snapshots are only ever inserted, never updated. See
+ * InventoryEventLog for how they are used.
+ */
+@Component
+@Transactional
+public class InventoryEventService extends Service<InventoryEvent, Long> {
+
+	/**
+	 * InventoryEventRepository, to be autowired in by Spring and provide CRUD operations on the
+	 * InventoryEvent model.
+	 */
+	@Autowired
+	private InventoryEventRepository eventRepository;
+
+	/**
+	 * InventorySnapshotRepository, used to save and find snapshots.
+	 */
+	@Autowired
+	private InventorySnapshotRepository snapshotRepository;
+
+	@Override
+	protected JpaRepository<InventoryEvent, Long> getRepository() {
+		return eventRepository;
+	}
+
+	/**
+	 * Appends events to the log, all in one transaction and one batch.
+	 * 
+	 * @param events Events to append, in the order they happened. Their IDs are set once this
+	 *               returns
+	 */
+	public void append(final List<InventoryEvent> events) {
+		saveAll(events);
+	}
+
+	/**
+	 * Returns every event after an ID, in ID order.
+	 * 
+	 * @param after ID to start after
+	 * 
+	 * @return Found events
+	 */
+	public List<InventoryEvent> findAfter(final long after) {
+		return eventRepository.findByIdGreaterThanOrderByIdAsc(after);
+	}
+
+	/**
+	 * Returns the events after an ID, in ID order, a few at a time. Pass the ID of the last event
+	 * from one call to get the next lot.
+	 * 
+	 * @param after ID to start after
+	 * @param size  Most events to return
+	 * 
+	 * @return Found events
+	 */
+	public List<InventoryEvent> findAfter(final long after, final int size) {
+		return eventRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size));
+	}
+
+	/**
+	 * Returns every event after an ID that was recorded no later than a time, in ID order.
+	 * 
+	 * @param after ID to start after
+	 * @param at    Latest time to include
+	 * 
+	 * @return Found events
+	 */
+	public List<InventoryEvent> findAfter(final long after, final Instant at) {
+		return eventRepository.findByIdGreaterThanAndRecordedAtLessThanEqualOrderByIdAsc(after,
+				at);
+	}
+
+	/**
+	 * Saves a snapshot.
+	 * 
+	 * @param snapshot Snapshot to save
+	 */
+	public void saveSnapshot(final InventorySnapshot snapshot) {
+		snapshotRepository.save(snapshot);
+	}
+
+	/**
+	 * Finds the most recent snapshot.
+	 * 
+	 * @return Found snapshot, null if none has been taken
+	 */
+	public InventorySnapshot findLatestSnapshot() {
+		return snapshotRepository.findFirstByOrderByLastEventDescIdDesc();
+	}
+
+	/**
+	 * Finds the most recent snapshot taken no later than a time.
+	 * 
+	 * @param at Latest time to include
+	 * 
+	 * @return Found snapshot, null if none had been taken by then
+	 */
+	public InventorySnapshot findSnapshotAt(final Instant at) {
+		return snapshotRepository.findFirstByTakenAtLessThanEqualOrderByLastEventDescIdDesc(at);
+	}
+}
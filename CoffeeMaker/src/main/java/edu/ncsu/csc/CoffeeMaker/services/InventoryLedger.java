@@ -0,0 +1,755 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * In-memory ledger of Inventory quantities, used when `coffeemaker.inventory.mode` is `LEDGER` or
+ * `WRITE_BEHIND`.
+ * 
+ * The ledger holds an immutable snapshot of every Ingredient's quantity, plus the net amount taken
+ * from each that hasn't been written to the database yet, in arrays indexed by dense Ingredient ID
+ * (see IngredientDictionary). Making a Recipe checks its CompiledRecipe against the quantities,
+ * builds the next snapshot, copying only the parts of it the Recipe changes, and swaps it in with
+ * a single compare-and-set, so either all of the Recipe's Ingredients are reserved or none are,
+ * and two orders can never both take the last of something. No locks are taken on this path.
+ * 
+ * A background thread periodically takes the pending amounts and writes them to the Ingredient
+ * rows in the database, one UPDATE per Ingredient however many orders touched it. It also runs
+ * early once `coffeemaker.inventory.ledger.flush-after` changes are waiting. The database is never
+ * allowed to fall more than `coffeemaker.inventory.ledger.max-staleness-ms` behind: a change that
+ * arrives once the oldest unwritten change is that old writes everything out first, and fails if
+ * it can't. Everything still pending is written out on shutdown.
+ * 
+ * In `LEDGER` mode restocking still goes through InventoryService, and the controllers tell the
+ * ledger about it afterwards so that the two stay in step. In `WRITE_BEHIND` mode restocks are
+ * made in the ledger too, with addQuantity(), and written out along with everything else.
+ */
+@Component
+public class InventoryLedger {
+
+	/**
+	 * Logger for background flush failures.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(InventoryLedger.class);
+
+	/**
+	 * InventoryService, used to load quantities from the database.
+	 */
+	@Autowired
+	private InventoryService inventoryService;
+
+	/**
+	 * IngredientService, used to write pending amounts to the database.
+	 */
+	@Autowired
+	private IngredientService ingredientService;
+
+	/**
+	 * Lets the background flush run without a DatabasePermit.
+	 */
+	@Autowired
+	private DatabaseLimitAspect limit;
+
+	/**
+	 * How the CoffeeMaker is tracking Inventory. The ledger only does anything in `LEDGER` mode.
+	 */
+	@Value("${coffeemaker.inventory.mode:ENTITY}")
+	private InventoryMode mode;
+
+	/**
+	 * How often, in milliseconds, pending amounts are written to the database.
+	 */
+	@Value("${coffeemaker.inventory.ledger.flush-interval-ms:200}")
+	private long flushIntervalMs;
+
+	/**
+	 * How many changes can be waiting before a flush is started early. 0 to only flush on the
+	 * interval.
+	 */
+	@Value("${coffeemaker.inventory.ledger.flush-after:100}")
+	private int flushAfter;
+
+	/**
+	 * Longest, in milliseconds, a change can wait to be written to the database before new changes
+	 * have to wait for it. 0 for no limit.
+	 */
+	@Value("${coffeemaker.inventory.ledger.max-staleness-ms:2000}")
+	private long maxStalenessMs;
+
+	/**
+	 * Number of changes made since the last flush.
+	 */
+	private final AtomicInteger changes = new AtomicInteger();
+
+	/**
+	 * System.nanoTime() of the oldest change that hasn't been written, or 0 if there is none.
+	 */
+	private final AtomicLong dirtySince = new AtomicLong();
+
+	/**
+	 * The current snapshot. Null until the ledger has been loaded from the database.
+	 */
+	private final AtomicReference<Stock> stock = new AtomicReference<>();
+
+	/**
+	 * Keeps flushing and reloading from overlapping, so that a reload never reads the database
+	 * while pending amounts are on their way to it. Never taken when reserving.
+	 */
+	private final ReentrantLock persistLock = new ReentrantLock();
+
+	/**
+	 * Background thread that flushes pending amounts.
+	 */
+	private ScheduledExecutorService flusher;
+
+	/**
+	 * Starts the background flush when the ledger is in use.
+	 */
+	@PostConstruct
+	void start() {
+		if (isActive()) {
+			flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread t = new Thread(r, "inventory-ledger-flush");
+				t.setDaemon(true);
+				return t;
+			});
+			flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Stops the background flush and writes out anything still pending.
+	 */
+	@PreDestroy
+	void stop() throws InterruptedException {
+		if (flusher != null) {
+			flusher.shutdown();
+			flusher.awaitTermination(flushIntervalMs * 10, TimeUnit.MILLISECONDS);
+			flush();
+		}
+	}
+
+	/**
+	 * Whether orders should be reserved against the ledger.
+	 * 
+	 * @return true if `coffeemaker.inventory.mode` is `LEDGER` or `WRITE_BEHIND`
+	 */
+	public boolean isActive() {
+		return mode == InventoryMode.LEDGER || isWriteBehind();
+	}
+
+	/**
+	 * Whether restocks should be made in the ledger, with addQuantity(), rather than through
+	 * InventoryService.
+	 * 
+	 * @return true if `coffeemaker.inventory.mode` is `WRITE_BEHIND`
+	 */
+	public boolean isWriteBehind() {
+		return mode == InventoryMode.WRITE_BEHIND;
+	}
+
+	/**
+	 * Reserves all of the Ingredients needed to make a Recipe, or none of them.
+	 * 
+	 * @param recipe Recipe to make
+	 * 
+	 * @return true if there was enough of every Ingredient and it has been reserved
+	 */
+	public boolean reserve(final Recipe recipe) {
+		final CompiledRecipe needs = recipe.compile();
+		checkStaleness();
+
+		while (true) {
+			final Stock current = current();
+			final Stock next = current.reserve(needs);
+
+			if (next == null) {
+				// Not enough Inventory or Ingredient not found in Inventory
+				return false;
+			}
+
+			if (next == current || stock.compareAndSet(current, next)) {
+				changed();
+
+				return true;
+			}
+			// Lost a race with another order; try again against the newer snapshot
+		}
+	}
+
+	/**
+	 * Adds to the quantity of an Ingredient in the ledger, to be written to the database with the
+	 * next flush. Used instead of restock() in `WRITE_BEHIND` mode.
+	 * 
+	 * @param name   Ingredient name
+	 * @param amount amount to add
+	 * 
+	 * @return true if the Ingredient is in the Inventory and the amount has been added; false if
+	 *         not, or if the amount isn't positive or would take the Ingredient over
+	 *         Ingredient.MAX_QUANTITY
+	 */
+	public boolean addQuantity(final String name, final int amount) {
+		checkStaleness();
+
+		while (true) {
+			final Stock current = current();
+			final Stock next = current.add(name.trim().toLowerCase(), amount);
+
+			if (next == current) {
+				return false;
+			}
+
+			if (stock.compareAndSet(current, next)) {
+				changed();
+
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Adds to the quantity of an Ingredient, after the same amount has been added in the
+	 * database. Unknown Ingredients are ignored.
+	 * 
+	 * @param name   Ingredient name
+	 * @param amount amount added
+	 */
+	public void restock(final String name, final int amount) {
+		while (true) {
+			final Stock current = stock.get();
+
+			if (current == null) {
+				// Not loaded yet; the database already has the new amount
+				return;
+			}
+
+			final Stock next = current.restock(name.trim().toLowerCase(), amount);
+
+			if (next == current || stock.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Reloads the ledger from the database. Call this after Ingredients have been added to or
+	 * removed from the Inventory. Amounts that have changed but not yet been flushed are carried
+	 * over.
+	 */
+	public void reload() {
+		persistLock.lock();
+
+		try {
+			load(inventoryService.getInventory());
+		} finally {
+			persistLock.unlock();
+		}
+	}
+
+	/**
+	 * Replaces the ledger's quantities with those in the provided Inventory, less anything that is
+	 * still waiting to be flushed.
+	 * 
+	 * @param inventory Inventory as it currently stands in the database
+	 */
+	public void load(final Inventory inventory) {
+		while (true) {
+			final Stock current = stock.get();
+
+			if (stock.compareAndSet(current, Stock.of(inventory, current))) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the quantity of an Ingredient as the ledger sees it.
+	 * 
+	 * @param name Ingredient name
+	 * 
+	 * @return the quantity, or -1 if the Ingredient isn't in the Inventory
+	 */
+	public int getQuantity(final String name) {
+		final Stock current = current();
+		final int slot = current.slot(name.trim().toLowerCase());
+
+		return slot < 0 ? -1 : current.quantity(slot);
+	}
+
+	/**
+	 * Returns a number that changes whenever a quantity in the ledger changes, including changes
+	 * that haven't been written to the database yet. Worked out from the quantities themselves,
+	 * so it is the same wherever they are the same.
+	 * 
+	 * @return the fingerprint of the ledger's quantities
+	 */
+	public long getFingerprint() {
+		final Stock current = current();
+		long hash = 0;
+
+		for (int slot = 0; slot < current.ids.length; slot++) {
+			if (current.quantity(slot) >= 0) {
+				hash = Service.mix(Service.mix(hash, current.ids[slot]), current.quantity(slot));
+			}
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Writes everything that has changed since the last flush to the database.
+	 */
+	public void flush() {
+		persistLock.lock();
+
+		try {
+			Stock current;
+
+			do {
+				current = stock.get();
+
+				if (current == null || !current.hasPending()) {
+					return;
+				}
+			} while (!stock.compareAndSet(current, current.drained()));
+
+			changes.set(0);
+			final long since = dirtySince.getAndSet(0);
+
+			for (int slot = 0; slot < current.ids.length; slot++) {
+				if (current.pending(slot) != 0) {
+					try {
+						// A negative amount is a net restock, and is added
+						ingredientService.consume(current.ids[slot], current.pending(slot));
+					} catch (final RuntimeException e) {
+						// Put back everything that didn't make it so the next flush retries it
+						for (int rest = slot; rest < current.ids.length; rest++) {
+							requeue(current.ids[rest], current.pending(rest));
+						}
+						dirtySince.updateAndGet(now -> now == 0 || since - now < 0 ? since : now);
+
+						throw e;
+					}
+				}
+			}
+		} finally {
+			persistLock.unlock();
+		}
+	}
+
+	/**
+	 * Counts a change that is waiting to be written, and starts a flush early if enough are.
+	 */
+	private void changed() {
+		dirtySince.compareAndSet(0, System.nanoTime());
+
+		if (flushAfter > 0 && changes.incrementAndGet() == flushAfter && flusher != null
+				&& !flusher.isShutdown()) {
+			flusher.execute(this::flushQuietly);
+		}
+	}
+
+	/**
+	 * Writes everything out now if the oldest unwritten change has waited longer than
+	 * `coffeemaker.inventory.ledger.max-staleness-ms`, so that the database never falls further
+	 * behind than that.
+	 * 
+	 * @throws RuntimeException if the database can't be written to, in which case the change that
+	 *                          called this must not be made
+	 */
+	private void checkStaleness() {
+		final long since = dirtySince.get();
+
+		if (maxStalenessMs > 0 && since != 0
+				&& System.nanoTime() - since > TimeUnit.MILLISECONDS.toNanos(maxStalenessMs)) {
+			flush();
+		}
+	}
+
+	/**
+	 * Runs a flush from the background thread, where there is nobody to throw to. It runs without
+	 * a DatabasePermit: requests holding permits can be waiting for it to give up the persist lock.
+	 */
+	private void flushQuietly() {
+		try {
+			limit.runWithoutPermit(this::flush);
+		} catch (final RuntimeException e) {
+			LOG.warn("Could not write Inventory ledger to the database; will retry", e);
+		}
+	}
+
+	/**
+	 * Marks an amount as not flushed again after a failed write.
+	 * 
+	 * @param id     Ingredient ID
+	 * @param amount amount to put back
+	 */
+	private void requeue(final Long id, final int amount) {
+		if (amount == 0) {
+			return;
+		}
+
+		while (true) {
+			final Stock current = stock.get();
+			final Stock next = current.requeue(id, amount);
+
+			if (next == current || stock.compareAndSet(current, next)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Returns the current snapshot, loading it from the database first if necessary.
+	 * 
+	 * @return the current snapshot
+	 */
+	private Stock current() {
+		Stock current = stock.get();
+
+		if (current == null) {
+			reload();
+			current = stock.get();
+		}
+
+		return current;
+	}
+
+	/**
+	 * Immutable snapshot of the Inventory. Every change produces a new Stock; nothing is modified
+	 * once a Stock has been published. Slots are indexed by dense Ingredient ID, and there are as
+	 * many as the IngredientDictionary had when the Stock was loaded; slots for Ingredients that
+	 * aren't in the Inventory have a quantity of -1.
+	 * 
+	 * Quantities and pending amounts are kept in chunks of CHUNK slots. A change copies the array
+	 * of chunks and only the chunks it touches, sharing the rest with the snapshot it came from,
+	 * so an order allocates a few small arrays however many Ingredients the dictionary holds. The
+	 * single compare-and-set on the whole snapshot stays: under heavy contention orders still
+	 * retry, but each retry only redoes that small copy.
+	 */
+	private static final class Stock {
+
+		/**
+		 * Slots in each chunk, as a shift.
+		 */
+		static final int CHUNK_BITS = 4;
+
+		/**
+		 * Slots in each chunk.
+		 */
+		static final int CHUNK = 1 << CHUNK_BITS;
+
+		/**
+		 * Chunk of pending amounts with nothing pending, shared by every chunk that has been
+		 * flushed. Never written to, like any other published chunk.
+		 */
+		static final int[] NOTHING_PENDING = new int[CHUNK];
+
+		/**
+		 * Database ID of the Ingredient in each slot. Never changes between a Stock and the ones
+		 * made from it, so it is shared.
+		 */
+		final Long[] ids;
+
+		/**
+		 * Quantity available in each slot, in chunks, or -1 if the Ingredient isn't in the
+		 * Inventory.
+		 */
+		final int[][] quantities;
+
+		/**
+		 * Net amount taken from each slot that hasn't been written to the database yet, in
+		 * chunks. Negative if more has been added than taken.
+		 */
+		final int[][] pending;
+
+		/**
+		 * Creates a snapshot.
+		 * 
+		 * @param ids        Ingredient IDs
+		 * @param quantities available quantities
+		 * @param pending    unflushed amounts
+		 */
+		Stock(final Long[] ids, final int[][] quantities, final int[][] pending) {
+			this.ids = ids;
+			this.quantities = quantities;
+			this.pending = pending;
+		}
+
+		/**
+		 * Builds a snapshot from the Inventory in the database, carrying over anything the
+		 * previous snapshot hadn't flushed yet.
+		 * 
+		 * @param inventory Inventory from the database
+		 * @param previous  previous snapshot, or null
+		 * 
+		 * @return the new snapshot
+		 */
+		static Stock of(final Inventory inventory, final Stock previous) {
+			final List<Ingredient> ingredients = inventory.getIngredients();
+			final int[] dense = new int[ingredients.size()];
+
+			for (int i = 0; i < dense.length; i++) {
+				dense[i] = IngredientDictionary.idOf(ingredients.get(i).getName());
+			}
+
+			final Long[] ids = new Long[IngredientDictionary.size()];
+			final int chunks = (ids.length + CHUNK - 1) >> CHUNK_BITS;
+			final int[][] quantities = new int[chunks][];
+			final int[][] pending = new int[chunks][];
+			final Map<Long, Integer> unflushed = new HashMap<>();
+
+			for (int c = 0; c < chunks; c++) {
+				quantities[c] = new int[CHUNK];
+				pending[c] = new int[CHUNK];
+				Arrays.fill(quantities[c], -1);
+			}
+
+			if (previous != null) {
+				for (int slot = 0; slot < previous.ids.length; slot++) {
+					if (previous.pending(slot) != 0) {
+						unflushed.put(previous.ids[slot], previous.pending(slot));
+					}
+				}
+			}
+
+			for (int i = 0; i < dense.length; i++) {
+				final Ingredient ingredient = ingredients.get(i);
+				final int slot = dense[i];
+				final int c = slot >> CHUNK_BITS;
+				final int offset = slot & CHUNK - 1;
+
+				if (quantities[c][offset] >= 0) {
+					// Keep the first of two Ingredients with the same name, as Inventory does
+					continue;
+				}
+
+				final Long id = (Long) ingredient.getId();
+				final int carried = unflushed.getOrDefault(id, 0);
+
+				ids[slot] = id;
+				quantities[c][offset] = Math.max(0, ingredient.getQuantity() - carried);
+				pending[c][offset] = carried;
+			}
+
+			return new Stock(ids, quantities, pending);
+		}
+
+		/**
+		 * Returns the quantity in a slot.
+		 * 
+		 * @param slot the slot, which must be below ids.length
+		 * 
+		 * @return the quantity, or -1 if the Ingredient isn't in the Inventory
+		 */
+		int quantity(final int slot) {
+			return quantities[slot >> CHUNK_BITS][slot & CHUNK - 1];
+		}
+
+		/**
+		 * Returns the amount pending in a slot.
+		 * 
+		 * @param slot the slot, which must be below ids.length
+		 * 
+		 * @return the unflushed amount
+		 */
+		int pending(final int slot) {
+			return pending[slot >> CHUNK_BITS][slot & CHUNK - 1];
+		}
+
+		/**
+		 * Returns the slot of an Ingredient in this snapshot.
+		 * 
+		 * @param name Ingredient name, normalized
+		 * 
+		 * @return the slot, or -1 if the Ingredient isn't in the Inventory
+		 */
+		int slot(final String name) {
+			final int slot = IngredientDictionary.find(name);
+
+			return slot < 0 || slot >= ids.length || quantity(slot) < 0 ? -1 : slot;
+		}
+
+		/**
+		 * Returns the snapshot after taking a Recipe's Ingredients.
+		 * 
+		 * @param needs the compiled Recipe
+		 * 
+		 * @return the new snapshot, or null if there isn't enough of something
+		 */
+		Stock reserve(final CompiledRecipe needs) {
+			for (int i = 0; i < needs.size(); i++) {
+				final int slot = needs.ingredient(i);
+
+				// Ingredients not in the Inventory have -1, so they never fit
+				if (slot >= ids.length || quantity(slot) < needs.quantity(i)) {
+					return null;
+				}
+			}
+
+			if (needs.size() == 0) {
+				return this;
+			}
+
+			final int[][] nextQuantities = quantities.clone();
+			final int[][] nextPending = pending.clone();
+
+			for (int i = 0; i < needs.size(); i++) {
+				final int slot = needs.ingredient(i);
+
+				writable(nextQuantities, quantities, slot)[slot & CHUNK - 1] -= needs.quantity(i);
+				writable(nextPending, pending, slot)[slot & CHUNK - 1] += needs.quantity(i);
+			}
+
+			return new Stock(ids, nextQuantities, nextPending);
+		}
+
+		/**
+		 * Returns the snapshot after adding to an Ingredient.
+		 * 
+		 * @param name   Ingredient name
+		 * @param amount amount added
+		 * 
+		 * @return the new snapshot, or this one if the Ingredient isn't known
+		 */
+		Stock restock(final String name, final int amount) {
+			final int slot = slot(name);
+
+			if (slot < 0) {
+				return this;
+			}
+
+			final int[][] nextQuantities = quantities.clone();
+			writable(nextQuantities, quantities, slot)[slot & CHUNK - 1] += amount;
+
+			return new Stock(ids, nextQuantities, pending);
+		}
+
+		/**
+		 * Returns the snapshot after adding to an Ingredient in the ledger only, leaving the amount
+		 * to be written to the database.
+		 * 
+		 * @param name   Ingredient name
+		 * @param amount amount added
+		 * 
+		 * @return the new snapshot, or this one if the Ingredient isn't known or the amount isn't
+		 *         positive or would take it over Ingredient.MAX_QUANTITY
+		 */
+		Stock add(final String name, final int amount) {
+			final int slot = slot(name);
+
+			// The flush writes with an UPDATE that doesn't check the limit, so it is checked here
+			if (slot < 0 || amount < 1 || quantity(slot) > Ingredient.MAX_QUANTITY - amount) {
+				return this;
+			}
+
+			final int[][] nextQuantities = quantities.clone();
+			final int[][] nextPending = pending.clone();
+			writable(nextQuantities, quantities, slot)[slot & CHUNK - 1] += amount;
+			writable(nextPending, pending, slot)[slot & CHUNK - 1] -= amount;
+
+			return new Stock(ids, nextQuantities, nextPending);
+		}
+
+		/**
+		 * Returns the snapshot after a failed write puts an amount back into pending.
+		 * 
+		 * @param id     Ingredient ID
+		 * @param amount amount to put back
+		 * 
+		 * @return the new snapshot, or this one if the Ingredient is no longer known
+		 */
+		Stock requeue(final Long id, final int amount) {
+			for (int slot = 0; slot < ids.length; slot++) {
+				if (id.equals(ids[slot])) {
+					final int[][] nextPending = pending.clone();
+					writable(nextPending, pending, slot)[slot & CHUNK - 1] += amount;
+
+					return new Stock(ids, quantities, nextPending);
+				}
+			}
+
+			return this;
+		}
+
+		/**
+		 * Returns the snapshot with nothing pending, for when a flush has taken it.
+		 * 
+		 * @return the new snapshot
+		 */
+		Stock drained() {
+			final int[][] nextPending = new int[pending.length][];
+			Arrays.fill(nextPending, NOTHING_PENDING);
+
+			return new Stock(ids, quantities, nextPending);
+		}
+
+		/**
+		 * Whether anything is waiting to be flushed.
+		 * 
+		 * @return true if any slot has a pending amount
+		 */
+		boolean hasPending() {
+			for (int[] chunk : pending) {
+				if (chunk == NOTHING_PENDING) {
+					continue;
+				}
+
+				for (int amount : chunk) {
+					if (amount != 0) {
+						return true;
+					}
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * Returns the chunk holding a slot in a new snapshot's chunks, ready to be written to:
+		 * copied the first time it is asked for, so the chunk shared with the previous snapshot
+		 * is never modified.
+		 * 
+		 * @param next     chunks of the new snapshot, copied from previous
+		 * @param previous chunks of the snapshot it is made from
+		 * @param slot     slot that is about to change
+		 * 
+		 * @return the chunk, private to the new snapshot
+		 */
+		static int[] writable(final int[][] next, final int[][] previous, final int slot) {
+			final int c = slot >> CHUNK_BITS;
+
+			if (next[c] == previous[c]) {
+				next[c] = previous[c].clone();
+			}
+
+			return next[c];
+		}
+	}
+}
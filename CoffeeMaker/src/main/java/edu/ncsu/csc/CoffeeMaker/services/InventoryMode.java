@@ -0,0 +1,47 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+/**
+ * The ways the CoffeeMaker can keep track of Inventory quantities when orders come in. Chosen with
+ * the `coffeemaker.inventory.mode` property; `ENTITY` is the default.
+ */
+public enum InventoryMode {
+
+	/**
+	 * Load the Inventory entity, update it in memory, and save it back through InventoryService.
+	 */
+	ENTITY,
+
+	/**
+	 * Reserve Ingredients against the in-memory InventoryLedger and write the consumed amounts to
+	 * the database in the background.
+	 */
+	LEDGER,
+
+	/**
+	 * Like `LEDGER`, but restocks are made in the InventoryLedger too, so the in-memory quantities
+	 * are the ones that count and no Inventory change waits for the database. Adding and clearing
+	 * Ingredients still write to the database straight away.
+	 */
+	WRITE_BEHIND,
+
+	/**
+	 * Take Recipe Ingredients out of the Inventory with a single conditional UPDATE in the database,
+	 * without loading the Inventory at all. The database decides whether there is enough, so any
+	 * number of CoffeeMaker instances can share it. Uses MySQL's multi-table UPDATE syntax.
+	 */
+	SQL,
+
+	/**
+	 * Append each change to the Inventory event log instead of updating the Ingredient rows, and
+	 * work out the quantities from the last snapshot and the events after it. See
+	 * InventoryEventLog.
+	 */
+	EVENTS,
+
+	/**
+	 * Lock only the Ingredients a Recipe uses, check them against in-memory quantities and write
+	 * the amounts taken straight to the Ingredient rows, so that orders with no Ingredients in
+	 * common never wait for each other. See StripedInventory.
+	 */
+	STRIPED
+}
@@ -0,0 +1,105 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Retries Inventory updates that lose an optimistic locking race. Inventory and Ingredient are
+ * versioned, so when two requests (possibly on two different CoffeeMaker instances) load the same
+ * Ingredient and both try to save it, the second save fails instead of overwriting the first. The
+ * losing request can simply start over: reload the Inventory, re-check it, and try again.
+ * 
+ * Each attempt must load everything it needs from scratch. Waits between attempts grow
+ * exponentially, with jitter so that the requests that collided don't collide again.
+ * 
+ * Conflicts, retries, and requests that ran out of attempts are counted in the
+ * `coffeemaker.inventory.conflicts`, `coffeemaker.inventory.retries` and
+ * `coffeemaker.inventory.retries.exhausted` metrics, tagged by operation.
+ */
+@Component
+public class InventoryRetryPolicy {
+
+	/**
+	 * Registry for the conflict and retry counters.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Maximum number of times to attempt an update, including the first.
+	 */
+	@Value("${coffeemaker.inventory.retry.max-attempts:5}")
+	private int maxAttempts;
+
+	/**
+	 * Wait before the first retry, in milliseconds. Doubles with every retry after that.
+	 */
+	@Value("${coffeemaker.inventory.retry.initial-backoff-ms:5}")
+	private long initialBackoffMs;
+
+	/**
+	 * Longest wait between two attempts, in milliseconds.
+	 */
+	@Value("${coffeemaker.inventory.retry.max-backoff-ms:100}")
+	private long maxBackoffMs;
+
+	/**
+	 * Runs an Inventory update, retrying it if it loses an optimistic locking race.
+	 * 
+	 * @param <T>       Result of the update
+	 * @param operation Name of the operation, used to tag the metrics
+	 * @param update    The update. Must reload whatever it changes every time it is called
+	 * 
+	 * @return The result of the first attempt that didn't conflict
+	 * 
+	 * @throws OptimisticLockingFailureException if every attempt conflicted
+	 */
+	public <T> T execute(final String operation, final Supplier<T> update) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				return update.get();
+			} catch (final OptimisticLockingFailureException e) {
+				registry.counter("coffeemaker.inventory.conflicts", "operation", operation)
+						.increment();
+
+				if (attempt >= maxAttempts) {
+					registry.counter("coffeemaker.inventory.retries.exhausted", "operation",
+							operation).increment();
+					throw e;
+				}
+
+				registry.counter("coffeemaker.inventory.retries", "operation", operation)
+						.increment();
+				backOff(attempt);
+			}
+		}
+	}
+
+	/**
+	 * Waits before another attempt. The wait is random, up to a limit that doubles with each
+	 * attempt.
+	 * 
+	 * @param attempt The attempt that just failed, starting at 1
+	 */
+	private void backOff(final int attempt) {
+		final long limit = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+
+		if (limit <= 0) {
+			return;
+		}
+
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting to retry", e);
+		}
+	}
+}
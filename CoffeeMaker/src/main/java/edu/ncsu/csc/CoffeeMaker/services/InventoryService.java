@@ -1,19 +1,30 @@
 package edu.ncsu.csc.CoffeeMaker.services;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.transaction.Transactional;
+import javax.transaction.Transactional.TxType;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.repositories.IngredientRepository;
+import edu.ncsu.csc.CoffeeMaker.repositories.IngredientSummary;
 import edu.ncsu.csc.CoffeeMaker.repositories.InventoryRepository;
 
 /**
  * The InventoryService is used to handle CRUD operations on the Inventory model. In addition to all
- * functionality in `Service`, we also manage the Inventory singleton.
+ * functionality in `Service`, we also manage the Inventory of each coffee machine. Machine 0
+ * (Inventory.DEFAULT_MACHINE) is the CoffeeMaker's own; the methods without a machine use it.
  *
  * @author Kai Presler-Marshall
  *
@@ -29,26 +40,175 @@ public class InventoryService extends Service<Inventory, Long> {
 	@Autowired
 	private InventoryRepository inventoryRepository;
 
+	/**
+	 * IngredientRepository, used to update Inventory Ingredients directly in the database.
+	 */
+	@Autowired
+	private IngredientRepository ingredientRepository;
+
+	/**
+	 * Locks for creating each machine's Inventory, by machine, so that two requests can't both
+	 * create one. Held until the new Inventory has been committed, so that the next request finds
+	 * it. Finding an Inventory that already exists takes no lock.
+	 */
+	private final ConcurrentHashMap<Long, ReentrantLock> creating = new ConcurrentHashMap<>();
+
 	@Override
 	protected JpaRepository<Inventory, Long> getRepository() {
 		return inventoryRepository;
 	}
 
 	/**
-	 * Retrieves the singleton Inventory instance from the database, creating it if it does not
+	 * Retrieves the CoffeeMaker's own Inventory from the database, creating it if it does not
 	 * exist.
 	 *
 	 * @return the Inventory, either new or fetched
 	 */
-	public synchronized Inventory getInventory() {
-		final List<Inventory> inventoryList = findAll();
-		if (inventoryList != null && inventoryList.size() == 1) {
-			return inventoryList.get(0);
-		} else {
+	@Transactional(TxType.SUPPORTS)
+	public Inventory getInventory() {
+		return getInventory(Inventory.DEFAULT_MACHINE);
+	}
+
+	/**
+	 * Retrieves a coffee machine's Inventory from the database, if it has one.
+	 *
+	 * @param machine the machine
+	 * 
+	 * @return the Inventory, or null if the machine doesn't have one yet
+	 */
+	public Inventory findInventory(final long machine) {
+		return inventoryRepository.findByMachine(machine);
+	}
+
+	/**
+	 * Retrieves a coffee machine's Inventory from the database, creating it if it does not exist.
+	 * Requests for different machines never wait for each other.
+	 * 
+	 * Runs in the caller's transaction if there is one, and otherwise commits the new Inventory
+	 * before returning, so that the lock is only let go of once other requests can see it. If
+	 * another CoffeeMaker sharing the database creates it first, the one it created is read back;
+	 * in the caller's transaction that can't be done, and the caller gets the error instead.
+	 *
+	 * @param machine the machine
+	 * 
+	 * @return the Inventory, either new or fetched
+	 */
+	@Transactional(TxType.SUPPORTS)
+	public Inventory getInventory(final long machine) {
+		final Inventory found = inventoryRepository.findByMachine(machine);
+
+		if (found != null) {
+			return found;
+		}
+
+		final ReentrantLock lock = creating.computeIfAbsent(machine, m -> new ReentrantLock());
+		lock.lock();
+
+		try {
+			final Inventory created = inventoryRepository.findByMachine(machine);
+
+			if (created != null) {
+				return created;
+			}
+
 			// Initialize the Inventory with 0 of everything
-			final Inventory i = new Inventory();
+			final Inventory i = new Inventory(machine);
 			save(i);
 			return i;
+		} catch (final DataIntegrityViolationException e) {
+			if (TransactionSynchronizationManager.isActualTransactionActive()) {
+				throw e;
+			}
+
+			// Another CoffeeMaker created it first; our insert was rolled back on its own
+			return inventoryRepository.findByMachine(machine);
+		} finally {
+			unlockAfterCompletion(lock);
+		}
+	}
+
+	/**
+	 * Lets go of a lock once the current transaction has committed or rolled back, or straight
+	 * away if there is none.
+	 * 
+	 * @param lock the lock, held by this thread
+	 */
+	private static void unlockAfterCompletion(final ReentrantLock lock) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			lock.unlock();
+			return;
+		}
+
+		TransactionSynchronizationManager
+				.registerSynchronization(new TransactionSynchronizationAdapter() {
+					@Override
+					public void afterCompletion(final int status) {
+						lock.unlock();
+					}
+				});
+	}
+
+	/**
+	 * Returns the name and quantity of every Ingredient in the CoffeeMaker's own Inventory, without
+	 * loading the Inventory or its Ingredients.
+	 * 
+	 * @return Name and quantity of each Inventory Ingredient
+	 */
+	public List<IngredientSummary> findSummaries() {
+		return inventoryRepository.findSummaries(Inventory.DEFAULT_MACHINE);
+	}
+
+	/**
+	 * Returns a number that changes whenever the CoffeeMaker's own Inventory or one of its
+	 * Ingredients changes, by anyone, without loading it.
+	 * 
+	 * @return the fingerprint of the Inventory
+	 */
+	public long getFingerprint() {
+		return fingerprint(inventoryRepository.fingerprint(Inventory.DEFAULT_MACHINE));
+	}
+
+	/**
+	 * Takes the Ingredients needed for a Recipe out of the CoffeeMaker's own Inventory; see
+	 * consume(Recipe, long).
+	 *
+	 * @param recipe Recipe to make. Must already be saved
+	 * 
+	 * @return true if there were enough Ingredients and they have been used
+	 */
+	public boolean consume(final Recipe recipe) {
+		return consume(recipe, Inventory.DEFAULT_MACHINE);
+	}
+
+	/**
+	 * Takes the Ingredients needed for a Recipe out of a coffee machine's Inventory with a single
+	 * conditional UPDATE, without loading the Inventory. Either every Ingredient is taken or, if
+	 * the Inventory is short on any of them, the transaction is rolled back and nothing is.
+	 * 
+	 * Assumes the Recipe lists each Ingredient once.
+	 *
+	 * @param recipe  Recipe to make. Must already be saved
+	 * @param machine Machine whose Inventory to take them from
+	 * 
+	 * @return true if there were enough Ingredients and they have been used
+	 */
+	public boolean consume(final Recipe recipe, final long machine) {
+		final int needed = recipe.getIngredients().size();
+
+		if (needed == 0) {
+			return true;
 		}
+
+		final int consumed = ingredientRepository.consumeRecipe(recipe.getId(), machine);
+		written();
+
+		if (consumed != needed) {
+			// Not enough of something, or not in the Inventory at all; undo the rows we did update
+			TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+
+			return false;
+		}
+
+		return true;
 	}
 }
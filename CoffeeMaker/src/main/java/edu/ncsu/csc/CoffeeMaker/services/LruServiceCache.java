@@ -0,0 +1,110 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ServiceCache that holds up to a fixed number of records, evicting the least recently used record
+ * when it is full.
+ *
+ * @param <K> Type of the key records are cached under
+ * @param <V> Type of the cached records
+ */
+public class LruServiceCache<K, V> implements ServiceCache<K, V> {
+
+	/**
+	 * Cached records, least recently used first. Guarded by itself.
+	 */
+	private final Map<K, V> records;
+
+	/**
+	 * Number of lookups that found a record.
+	 */
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Number of lookups that didn't find a record.
+	 */
+	private final LongAdder misses = new LongAdder();
+
+	/**
+	 * Number of records evicted to make room for others.
+	 */
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates an empty cache.
+	 * 
+	 * @param maxSize Most records to hold. Must be positive
+	 */
+	public LruServiceCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("Cache size must be a positive integer");
+		}
+
+		records = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<K, V> eldest) {
+				if (size() > maxSize) {
+					evictions.increment();
+
+					return true;
+				}
+
+				return false;
+			}
+		};
+	}
+
+	@Override
+	public V get(final K key) {
+		final V value;
+
+		synchronized (records) {
+			value = records.get(key);
+		}
+
+		(value == null ? misses : hits).increment();
+
+		return value;
+	}
+
+	@Override
+	public void put(final K key, final V value) {
+		synchronized (records) {
+			records.put(key, value);
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (records) {
+			records.clear();
+		}
+	}
+
+	@Override
+	public int size() {
+		synchronized (records) {
+			return records.size();
+		}
+	}
+
+	@Override
+	public long hits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long misses() {
+		return misses.sum();
+	}
+
+	@Override
+	public long evictions() {
+		return evictions.sum();
+	}
+}
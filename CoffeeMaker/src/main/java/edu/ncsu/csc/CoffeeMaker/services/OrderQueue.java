@@ -0,0 +1,262 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Takes coffee orders without making the customer wait for them to be brewed. When the
+ * `coffeemaker.orders.async` property is true, the make-coffee API checks the Recipe and the
+ * payment, hands the order to this queue, and answers straight away with an order ID. A small pool
+ * of workers takes orders off the queue and brews them; customers poll the order's status with its
+ * ID.
+ * 
+ * The queue is bounded: when it is full, new orders are turned away rather than piling up. Workers
+ * run on virtual threads when the JVM has them, and on ordinary daemon threads otherwise. Finished
+ * orders are remembered until `coffeemaker.orders.retained` newer orders have finished.
+ * 
+ * Queue depth, the time orders wait in the queue, and the time they take to brew are reported as
+ * the `coffeemaker.orders.queue.depth`, `coffeemaker.orders.wait` and `coffeemaker.orders.brew`
+ * metrics.
+ */
+@Component
+public class OrderQueue {
+
+	/**
+	 * Logger for orders that fail unexpectedly.
+	 */
+	private static final Logger LOG = LoggerFactory.getLogger(OrderQueue.class);
+
+	/**
+	 * Registry for the queue metrics.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Whether orders are queued. If not, the make-coffee API brews them while the customer waits.
+	 */
+	@Value("${coffeemaker.orders.async:false}")
+	private boolean async;
+
+	/**
+	 * Most orders that can wait in the queue at once.
+	 */
+	@Value("${coffeemaker.orders.queue-capacity:100}")
+	private int capacity;
+
+	/**
+	 * Number of workers brewing orders.
+	 */
+	@Value("${coffeemaker.orders.workers:4}")
+	private int workers;
+
+	/**
+	 * Number of finished orders to remember.
+	 */
+	@Value("${coffeemaker.orders.retained:1000}")
+	private int retained;
+
+	/**
+	 * Orders that can still be polled, by ID.
+	 */
+	private final Map<String, CoffeeOrder> orders = new ConcurrentHashMap<>();
+
+	/**
+	 * IDs of finished orders, oldest first.
+	 */
+	private final Queue<String> finished = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Workers, and the queue of orders waiting for them. Only created when orders are queued.
+	 */
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * Time orders wait in the queue.
+	 */
+	private Timer waitTimer;
+
+	/**
+	 * Time taken to brew orders.
+	 */
+	private Timer brewTimer;
+
+	/**
+	 * Starts the workers, if orders are queued.
+	 */
+	@PostConstruct
+	public void start() {
+		if (!async) {
+			return;
+		}
+
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(capacity), workerFactory());
+
+		Gauge.builder("coffeemaker.orders.queue.depth", executor, e -> e.getQueue().size())
+				.description("Orders waiting to be brewed").register(registry);
+		waitTimer = Timer.builder("coffeemaker.orders.wait")
+				.description("Time orders wait in the queue").register(registry);
+		brewTimer = Timer.builder("coffeemaker.orders.brew")
+				.description("Time taken to brew orders").register(registry);
+	}
+
+	/**
+	 * Stops taking orders, and gives the workers a few seconds to finish the ones already queued.
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the workers
+	 */
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		if (executor != null) {
+			executor.shutdown();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Returns whether orders are queued.
+	 * 
+	 * @return true if orders are queued and brewed in the background
+	 */
+	public boolean isActive() {
+		return async;
+	}
+
+	/**
+	 * Queues an order. The Recipe and payment must already have been checked.
+	 * 
+	 * @param recipe         Recipe ordered
+	 * @param amtPaid        Amount the customer paid
+	 * @param useIngredients takes the Recipe's Ingredients out of the Inventory, returning false if
+	 *                       there weren't enough
+	 * 
+	 * @return The queued order
+	 * 
+	 * @throws RejectedExecutionException if the queue is full
+	 */
+	public CoffeeOrder submit(final Recipe recipe, final int amtPaid,
+			final Predicate<Recipe> useIngredients) {
+		final CoffeeOrder order = new CoffeeOrder(UUID.randomUUID().toString(), recipe.getName(),
+				amtPaid);
+
+		orders.put(order.getId(), order);
+
+		try {
+			executor.execute(() -> brew(order, recipe, useIngredients));
+		} catch (final RejectedExecutionException e) {
+			orders.remove(order.getId());
+			throw e;
+		}
+
+		return order;
+	}
+
+	/**
+	 * Finds an order.
+	 * 
+	 * @param id ID of the order
+	 * 
+	 * @return The order, or null if there is no such order or it finished too long ago
+	 */
+	public CoffeeOrder find(final String id) {
+		return orders.get(id);
+	}
+
+	/**
+	 * Brews a queued order. Runs on a worker.
+	 * 
+	 * @param order          The order
+	 * @param recipe         Recipe ordered
+	 * @param useIngredients takes the Recipe's Ingredients out of the Inventory
+	 */
+	private void brew(final CoffeeOrder order, final Recipe recipe,
+			final Predicate<Recipe> useIngredients) {
+		final long start = System.nanoTime();
+
+		waitTimer.record(start - order.getQueuedAt(), TimeUnit.NANOSECONDS);
+		order.brewing();
+
+		try {
+			if (useIngredients.test(recipe)) {
+				order.done(order.getAmtPaid() - recipe.getPrice());
+			} else {
+				order.failed("Not enough Inventory or Ingredient not found in Inventory");
+			}
+		} catch (final OptimisticLockingFailureException e) {
+			order.failed("Inventory is busy; please try again");
+		} catch (final RuntimeException e) {
+			LOG.error("Order {} failed", order.getId(), e);
+			order.failed("Order could not be made");
+		}
+
+		brewTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		retire(order);
+	}
+
+	/**
+	 * Remembers that an order has finished, and forgets the oldest finished orders once there are
+	 * too many.
+	 * 
+	 * @param order The finished order
+	 */
+	private void retire(final CoffeeOrder order) {
+		finished.add(order.getId());
+
+		while (finished.size() > retained) {
+			final String oldest = finished.poll();
+
+			if (oldest != null) {
+				orders.remove(oldest);
+			}
+		}
+	}
+
+	/**
+	 * Creates the thread factory for the workers: virtual threads if this JVM supports them (Java
+	 * 21 and later), daemon threads otherwise.
+	 * 
+	 * @return thread factory for the workers
+	 */
+	private static ThreadFactory workerFactory() {
+		final ThreadFactory virtual = VirtualThreads.factory("order-worker-");
+
+		if (virtual != null) {
+			return virtual;
+		}
+
+		final AtomicLong count = new AtomicLong();
+
+		return runnable -> {
+			final Thread thread = new Thread(runnable, "order-worker-" + count.getAndIncrement());
+			thread.setDaemon(true);
+
+			return thread;
+		};
+	}
+}
@@ -0,0 +1,339 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * Keeps track of which Recipes can be made with the Inventory as it stands, and how many times, so
+ * that the menu can leave out the ones that can't without checking every Recipe on every request.
+ *
+ * It holds its own copy of the Inventory quantities, indexed by dense Ingredient ID, the compiled
+ * form of every Recipe, and a reverse index from each Ingredient to the Recipes that use it. The
+ * code that changes the Inventory tells it what changed (much as it tells the InventoryLedger), and
+ * only the Recipes that use a changed Ingredient are checked again.
+ *
+ * Everything is loaded from the database the first time it is needed, and again after Recipes
+ * have been written or a transaction that changed the Inventory has rolled back. Changes made
+ * inside a transaction are applied when it commits. Each load starts a new generation; a change
+ * registered in an earlier generation may already be in what was loaded (another request can load
+ * between the commit and the change being applied), so instead of being applied twice it has
+ * everything loaded again.
+ */
+@Component
+public class RecipeAvailability {
+
+	/**
+	 * RecipeService, used to load the Recipes and to notice when they change.
+	 */
+	@Autowired
+	private RecipeService recipeService;
+
+	/**
+	 * InventoryService, used to load the Inventory.
+	 */
+	@Autowired
+	private InventoryService inventoryService;
+
+	/**
+	 * In-memory Inventory ledger. In `LEDGER` mode it is ahead of the database, so quantities are
+	 * loaded from it instead.
+	 */
+	@Autowired
+	private InventoryLedger ledger;
+
+	/**
+	 * Inventory event log. In `EVENTS` mode it is ahead of the database, so the Ingredients and
+	 * their quantities are loaded from it instead.
+	 */
+	@Autowired
+	private InventoryEventLog events;
+
+	/**
+	 * Whether everything below has been loaded and is up to date.
+	 */
+	private boolean loaded;
+
+	/**
+	 * Number of loads so far. Volatile so that changes can note it without taking the lock.
+	 */
+	private volatile long generation;
+
+	/**
+	 * RecipeService revision when the Recipes were loaded.
+	 */
+	private long recipeRevision;
+
+	/**
+	 * Quantity of each Ingredient, indexed by dense ID, or -1 if it isn't in the Inventory.
+	 */
+	private int[] stock = new int[0];
+
+	/**
+	 * Every Recipe, compiled, by name.
+	 */
+	private final Map<String, CompiledRecipe> recipes = new HashMap<>();
+
+	/**
+	 * Names of the Recipes that use each Ingredient, by dense Ingredient ID.
+	 */
+	private final Map<Integer, Set<String>> usedBy = new HashMap<>();
+
+	/**
+	 * How many times each Recipe can be made now, by name in alphabetical order.
+	 */
+	private final Map<String, Integer> servings = new TreeMap<>();
+
+	/**
+	 * Returns the names of the Recipes that can be made with the Inventory as it stands.
+	 *
+	 * @return Recipe names, in alphabetical order
+	 */
+	public synchronized List<String> getAvailable() {
+		refresh();
+		final List<String> available = new ArrayList<>();
+
+		servings.forEach((name, count) -> {
+			if (count > 0) {
+				available.add(name);
+			}
+		});
+
+		return available;
+	}
+
+	/**
+	 * Returns how many times each Recipe can be made with the Inventory as it stands.
+	 *
+	 * @return number of servings, by Recipe name in alphabetical order. Recipes that no Ingredient
+	 *         limits have Integer.MAX_VALUE
+	 */
+	public synchronized Map<String, Integer> getServings() {
+		refresh();
+
+		return new TreeMap<>(servings);
+	}
+
+	/**
+	 * Records that a Recipe has been made, taking its Ingredients out of the tracked quantities.
+	 *
+	 * @param recipe Recipe made
+	 */
+	public void consumed(final Recipe recipe) {
+		final CompiledRecipe compiled = recipe.compile();
+
+		afterCommit(() -> {
+			final Set<String> affected = new HashSet<>();
+
+			for (int i = 0; i < compiled.size(); i++) {
+				final int id = compiled.ingredient(i);
+
+				if (id < stock.length && stock[id] >= 0) {
+					stock[id] = Math.max(0, stock[id] - compiled.quantity(i));
+					affected.addAll(usedBy.getOrDefault(id, Set.of()));
+				}
+			}
+
+			recheck(affected);
+		});
+	}
+
+	/**
+	 * Records that an amount has been added to an Ingredient in the Inventory. Unknown Ingredients
+	 * are ignored.
+	 *
+	 * @param name   Ingredient name
+	 * @param amount Amount added
+	 */
+	public void restock(final String name, final int amount) {
+		final String key = name.trim().toLowerCase();
+
+		afterCommit(() -> {
+			final int id = IngredientDictionary.find(key);
+
+			if (id >= 0 && id < stock.length && stock[id] >= 0) {
+				stock[id] += amount;
+				recheck(usedBy.getOrDefault(id, Set.of()));
+			}
+		});
+	}
+
+	/**
+	 * Records that a new Ingredient has been added to the Inventory.
+	 *
+	 * @param name     Ingredient name
+	 * @param quantity Its quantity
+	 */
+	public void added(final String name, final int quantity) {
+		final int id = IngredientDictionary.idOf(name.trim().toLowerCase());
+
+		afterCommit(() -> {
+			grow();
+			stock[id] = quantity;
+			recheck(usedBy.getOrDefault(id, Set.of()));
+		});
+	}
+
+	/**
+	 * Forgets everything, so that it is all loaded again when next needed. Use this after changes
+	 * to the Inventory that touch most of its Ingredients, such as clearing it.
+	 */
+	public void reload() {
+		afterCommit(() -> loaded = false);
+	}
+
+	/**
+	 * Applies a change once the current transaction, if any, has committed. If it rolls back
+	 * instead, everything is loaded again when next needed.
+	 *
+	 * @param change Change to apply; called while holding this object's lock
+	 */
+	private void afterCommit(final Runnable change) {
+		final long registered = generation;
+
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			apply(change, registered);
+			return;
+		}
+
+		TransactionSynchronizationManager
+				.registerSynchronization(new TransactionSynchronizationAdapter() {
+					@Override
+					public void afterCompletion(final int status) {
+						if (status == TransactionSynchronization.STATUS_COMMITTED) {
+							apply(change, registered);
+						} else {
+							apply(() -> loaded = false, registered);
+						}
+					}
+				});
+	}
+
+	/**
+	 * Applies a change, unless nothing has been loaded yet; in that case the change will be
+	 * picked up when everything is loaded. If everything has been loaded since the change was
+	 * registered, the load may or may not have seen it, so everything is loaded again instead.
+	 *
+	 * @param change     Change to apply
+	 * @param registered Generation when the change was registered
+	 */
+	private synchronized void apply(final Runnable change, final long registered) {
+		if (!loaded) {
+			return;
+		}
+
+		if (registered == generation) {
+			change.run();
+		} else {
+			loaded = false;
+		}
+	}
+
+	/**
+	 * Loads everything if it hasn't been loaded, or the Recipes if they have changed.
+	 */
+	private void refresh() {
+		if (!loaded) {
+			load();
+		} else if (recipeRevision != recipeService.getRevision()) {
+			loadRecipes();
+		}
+	}
+
+	/**
+	 * Loads the Inventory quantities and the Recipes.
+	 */
+	private void load() {
+		final Map<Integer, Integer> quantities = new HashMap<>();
+
+		if (events.isActive()) {
+			// The log has Ingredients whose rows the next snapshot will create
+			events.getQuantities().forEach(
+					(name, quantity) -> quantities.put(IngredientDictionary.idOf(name), quantity));
+		} else {
+			for (Ingredient ingredient : inventoryService.getInventory().getIngredients()) {
+				final int quantity = ledger.isActive() ? ledger.getQuantity(ingredient.getName())
+						: ingredient.getQuantity();
+
+				quantities.putIfAbsent(IngredientDictionary.idOf(ingredient.getName()), quantity);
+			}
+		}
+
+		stock = new int[IngredientDictionary.size()];
+		Arrays.fill(stock, -1);
+		quantities.forEach((id, quantity) -> stock[id] = quantity);
+
+		loadRecipes();
+		generation++;
+		loaded = true;
+	}
+
+	/**
+	 * Loads and compiles the Recipes, rebuilds the reverse index and checks every Recipe.
+	 */
+	private void loadRecipes() {
+		recipeRevision = recipeService.getRevision();
+		recipes.clear();
+		usedBy.clear();
+
+		for (Recipe recipe : recipeService.findAll()) {
+			final CompiledRecipe compiled = recipe.compile();
+			recipes.put(recipe.getName(), compiled);
+
+			for (int i = 0; i < compiled.size(); i++) {
+				usedBy.computeIfAbsent(compiled.ingredient(i), id -> new HashSet<>())
+						.add(recipe.getName());
+			}
+		}
+
+		grow();
+		servings.clear();
+		recheck(recipes.keySet());
+	}
+
+	/**
+	 * Works out again how many times each of the provided Recipes can be made.
+	 *
+	 * @param names Names of the Recipes to check
+	 */
+	private void recheck(final Set<String> names) {
+		for (String name : names) {
+			final CompiledRecipe compiled = recipes.get(name);
+
+			if (compiled != null) {
+				servings.put(name, compiled.servings(stock));
+			} else {
+				servings.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Makes room in the stock for every Ingredient ID handed out so far.
+	 */
+	private void grow() {
+		final int size = IngredientDictionary.size();
+
+		if (stock.length < size) {
+			final int from = stock.length;
+			stock = Arrays.copyOf(stock, size);
+			Arrays.fill(stock, from, size, -1);
+		}
+	}
+}
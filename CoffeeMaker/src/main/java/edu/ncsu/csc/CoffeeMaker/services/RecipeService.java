@@ -1,17 +1,37 @@
 package edu.ncsu.csc.CoffeeMaker.services;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 
 import edu.ncsu.csc.CoffeeMaker.models.Recipe;
 import edu.ncsu.csc.CoffeeMaker.repositories.RecipeRepository;
+import edu.ncsu.csc.CoffeeMaker.repositories.RecipeSummary;
 
 /**
  * The RecipeService is used to handle CRUD operations on the Recipe model. In addition to all
  * functionality from `Service`, we also have functionality for retrieving a single Recipe by name.
+ * 
+ * Recipes change rarely and are read on every order, so they are cached by ID and by name; see
+ * `Service` for when the caches are emptied. `coffeemaker.cache.recipes.max-size` sets how many
+ * Recipes are cached, and 0 turns caching off. `coffeemaker.recipes.capacity` sets how many
+ * Recipes the recipe book holds.
  *
  * @author Kai Presler-Marshall
  *
@@ -26,11 +46,77 @@ public class RecipeService extends Service<Recipe, Long> {
 	@Autowired
 	private RecipeRepository recipeRepository;
 
+	/**
+	 * Most Recipes the recipe book can hold. 0 or less means no limit.
+	 */
+	@Value("${coffeemaker.recipes.capacity:3}")
+	private int capacity;
+
+	/**
+	 * Most Recipes to cache, by ID and by name. 0 turns caching off.
+	 */
+	@Value("${coffeemaker.cache.recipes.max-size:100}")
+	private int cacheSize;
+
+	/**
+	 * Recipes cached by name, or null if caching is off.
+	 */
+	private ServiceCache<String, Recipe> byName;
+
 	@Override
 	protected JpaRepository<Recipe, Long> getRepository() {
 		return recipeRepository;
 	}
 
+	/**
+	 * Turns on the Recipe caches, unless they have been configured off.
+	 */
+	@PostConstruct
+	public void enableCaches() {
+		if (cacheSize > 0) {
+			byName = monitor("recipes", "name", new LruServiceCache<>(cacheSize));
+			setCache("recipes", new LruServiceCache<>(cacheSize));
+		}
+	}
+
+	@Override
+	protected void invalidate() {
+		super.invalidate();
+
+		if (null != byName) {
+			byName.clear();
+		}
+	}
+
+	/**
+	 * Returns whether the recipe book is full, as set by `coffeemaker.recipes.capacity`. Recipes
+	 * are counted in the database rather than loaded.
+	 * 
+	 * @return true if no more Recipes can be created
+	 */
+	public boolean isFull() {
+		return capacity > 0 && count() >= capacity;
+	}
+
+	/**
+	 * Saves a new Recipe, relying on the unique name constraint to reject duplicates so that no
+	 * lookup is needed first. Hibernate can't carry on after a failed flush, so on a duplicate the
+	 * persistence context is cleared before the exception is rethrown; a caller's transaction is
+	 * rolled back either way, so nothing it still needs is lost.
+	 * 
+	 * @param recipe Recipe to save
+	 * 
+	 * @throws DataIntegrityViolationException if a Recipe with the same name already exists
+	 */
+	public void create(final Recipe recipe) {
+		try {
+			save(recipe);
+		} catch (DataIntegrityViolationException e) {
+			getEntityManager().clear();
+			throw e;
+		}
+	}
+
 	/**
 	 * Find a Recipe with the provided name.
 	 * 
@@ -39,6 +125,134 @@ public class RecipeService extends Service<Recipe, Long> {
 	 * @return found Recipe, null if none
 	 */
 	public Recipe findByName(final String name) {
-		return recipeRepository.findByName(name.trim().toLowerCase());
+		final String key = name.trim().toLowerCase();
+		final boolean caching = isCaching();
+
+		if (caching) {
+			final Recipe cached = byName.get(key);
+
+			if (null != cached) {
+				return cached;
+			}
+		}
+
+		final long seen = getRevision();
+		final Recipe recipe = recipeRepository.findByName(key);
+
+		if (caching && null != recipe) {
+			fill(byName, key, recipe, seen);
+		}
+
+		return recipe;
+	}
+
+	/**
+	 * Find several Recipes by name at once.
+	 * 
+	 * @param names Names of the Recipes to find. Must already be trimmed and lowercase
+	 * 
+	 * @return found Recipes, keyed by name. Names without a Recipe are left out
+	 */
+	public Map<String, Recipe> findByNames(final Collection<String> names) {
+		final Map<String, Recipe> found = new HashMap<>();
+		final boolean caching = isCaching();
+		final List<String> missing = new ArrayList<>();
+
+		for (String name : names) {
+			final Recipe cached = caching ? byName.get(name) : null;
+
+			if (null != cached) {
+				found.put(name, cached);
+			} else {
+				missing.add(name);
+			}
+		}
+
+		if (!missing.isEmpty()) {
+			final long seen = getRevision();
+
+			for (Recipe recipe : recipeRepository.findByNameIn(missing)) {
+				found.put(recipe.getName(), recipe);
+
+				if (caching) {
+					fill(byName, recipe.getName(), recipe, seen);
+				}
+			}
+		}
+
+		return found;
+	}
+
+	/**
+	 * Returns every Recipe, along with its Ingredients, read from the database rather than the
+	 * cache. The cache only sees writes made through this CoffeeMaker, so this is what a response
+	 * tagged with getFingerprint() must be made from.
+	 * 
+	 * @return All Recipes
+	 */
+	public List<Recipe> findAllFromDatabase() {
+		return recipeRepository.findAll();
+	}
+
+	/**
+	 * Returns a number that changes whenever a Recipe or one of its Ingredients is added, removed
+	 * or changed, by anyone, without loading them.
+	 * 
+	 * @return the fingerprint of the recipe book
+	 */
+	public long getFingerprint() {
+		return fingerprint(recipeRepository.fingerprint());
+	}
+
+	/**
+	 * Returns the name and price of every Recipe, without loading the Recipes or their
+	 * Ingredients.
+	 * 
+	 * @return Name and price of each Recipe
+	 */
+	public List<RecipeSummary> findSummaries() {
+		return recipeRepository.findSummaries();
+	}
+
+	/**
+	 * Returns one page of Recipes, in ID order, along with their Ingredients. The page is found by
+	 * ID first, so that only the Recipes on it are loaded.
+	 * 
+	 * @param page Index of the page, from 0
+	 * @param size Most Recipes on a page
+	 * 
+	 * @return The page
+	 */
+	@Override
+	public Page<Recipe> findPage(final int page, final int size) {
+		final Page<Long> ids = recipeRepository.findIds(PageRequest.of(page, size, Sort.by("id")));
+
+		return new PageImpl<>(recipeRepository.findWithIngredients(ids.getContent()),
+				ids.getPageable(), ids.getTotalElements());
+	}
+
+	/**
+	 * Returns the Recipes that come after an ID, in ID order, along with their Ingredients. Pass
+	 * the ID of the last Recipe from one call to get the next lot.
+	 * 
+	 * @param after ID to start after
+	 * @param size  Most Recipes to return
+	 * 
+	 * @return Found Recipes
+	 */
+	public List<Recipe> findAfter(final Long after, final int size) {
+		final List<Long> ids = recipeRepository.findIdsAfter(after, PageRequest.of(0, size));
+
+		return ids.isEmpty() ? new ArrayList<>() : recipeRepository.findWithIngredients(ids);
+	}
+
+	/**
+	 * Hands every Recipe, along with its Ingredients, to an action in ID order, reading them from
+	 * the database a batch at a time rather than all at once.
+	 * 
+	 * @param action What to do with each Recipe
+	 */
+	public void streamAll(final Consumer<? super Recipe> action) {
+		forEach(recipeRepository.streamAll(), action);
 	}
 }
@@ -1,12 +1,29 @@
 package edu.ncsu.csc.CoffeeMaker.services;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import edu.ncsu.csc.CoffeeMaker.models.DomainObject;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 
 /**
  * The Service class is responsible for providing CRUD operations against the database. It gives us
@@ -17,6 +34,19 @@ import edu.ncsu.csc.CoffeeMaker.models.DomainObject;
  * Each Service class requires an appropriate *Repository instance (ie, UserService needs a
  * UserRepository; IngredientService needs an IngredientRepository) with the `@Autowired` annotation
  * on it. You'll also need to implement `getRepository()` to return this field.
+ * 
+ * A Service can also cache what it reads, so that records that rarely change don't have to be
+ * loaded from the database on every request. Caching is off unless a subclass turns it on with
+ * `setCache()`. Every write through the Service empties its caches, and the Service doesn't use
+ * them for the rest of a transaction that has written, so that a rollback can't leave anything
+ * stale behind. A record read from the database is only cached if nothing was written while it was
+ * being read, since it may be older than the write. Subclasses can keep their own caches (by name,
+ * say) by overriding `invalidate()`, checking `isCaching()`, and filling them with `fill()`.
+ * 
+ * Each Service also counts its writes in a revision number. The revision only sees writes made
+ * through this Service in this process, so it is only used to look after in-process state; the
+ * API's ETags are worked out from the data itself (see `fingerprint()`), as other CoffeeMaker
+ * instances may be writing to the same database.
  *
  * @param <T> Type of entity that will be handled by this service
  * @param <K> Type of the key for this entity
@@ -27,6 +57,54 @@ import edu.ncsu.csc.CoffeeMaker.models.DomainObject;
  */
 abstract public class Service<T extends DomainObject, K> {
 
+	/**
+	 * Key findAll() is cached under.
+	 */
+	private static final String ALL = "all";
+
+	/**
+	 * Registry for the cache metrics.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * EntityManager for the current transaction.
+	 */
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * Whether save(), saveAll(), delete() and deleteAll() write to the database straight away. If
+	 * false, writes are held until the end of the transaction (or an explicit flush()), so that all
+	 * of a transaction's inserts and updates go out together in JDBC batches; constraint violations
+	 * then surface at commit rather than from save().
+	 */
+	@Value("${coffeemaker.service.flush-on-save:true}")
+	private boolean flushOnSave = true;
+
+	/**
+	 * Records cached by ID, or null if this Service doesn't cache.
+	 */
+	private volatile ServiceCache<K, T> cache;
+
+	/**
+	 * Cached result of findAll(), or null if this Service doesn't cache.
+	 */
+	private volatile ServiceCache<String, List<T>> queries;
+
+	/**
+	 * Changes every time records are written through this Service, and again when the transaction
+	 * that wrote them is over.
+	 */
+	private final AtomicLong revision = new AtomicLong();
+
+	/**
+	 * Held while moving the revision on and emptying the caches, and while filling them, so that a
+	 * record can't be cached between the two.
+	 */
+	private final Object fillLock = new Object();
+
 	/**
 	 * Returns the Repository that Spring uses for interacting with the database. This is the only
 	 * method that _must_ be overridden in child Service classes.
@@ -37,12 +115,18 @@ abstract public class Service<T extends DomainObject, K> {
 
 	/**
 	 * Saves the provided object into the database. If the object already exists, `save()` will
-	 * perform an in-place update, overwriting the existing record.
+	 * perform an in-place update, overwriting the existing record. Unless
+	 * `coffeemaker.service.flush-on-save` is false, the object is written out immediately.
 	 *
 	 * @param obj The object to save into the database
 	 */
 	public void save(final T obj) {
-		getRepository().saveAndFlush(obj);
+		if (flushOnSave) {
+			getRepository().saveAndFlush(obj);
+		} else {
+			getRepository().save(obj);
+		}
+		written();
 	}
 
 	/**
@@ -52,7 +136,58 @@ abstract public class Service<T extends DomainObject, K> {
 	 * @return All records stored in the database
 	 */
 	public List<T> findAll() {
-		return getRepository().findAll();
+		if (!isCaching()) {
+			return getRepository().findAll();
+		}
+
+		List<T> all = queries.get(ALL);
+
+		if (all == null) {
+			final long seen = getRevision();
+			all = getRepository().findAll();
+			fill(queries, ALL, all, seen);
+		}
+
+		return new ArrayList<>(all);
+	}
+
+	/**
+	 * Returns one page of the records of this type, in ID order. Unlike findAll(), this never uses
+	 * the cache.
+	 * 
+	 * @param page Index of the page, from 0
+	 * @param size Most records on a page
+	 * 
+	 * @return The page
+	 */
+	public Page<T> findPage(final int page, final int size) {
+		return getRepository().findAll(PageRequest.of(page, size, Sort.by("id")));
+	}
+
+	/**
+	 * Hands each record from a repository stream to an action, then detaches it, so that neither
+	 * the result nor the persistence context grows with the table. Must be called in the
+	 * transaction the stream was opened in; the stream is closed afterwards.
+	 * 
+	 * @param records Stream from a repository query
+	 * @param action  What to do with each record
+	 */
+	protected void forEach(final Stream<T> records, final Consumer<? super T> action) {
+		try (Stream<T> stream = records) {
+			stream.forEach(record -> {
+				action.accept(record);
+				entityManager.detach(record);
+			});
+		}
+	}
+
+	/**
+	 * Returns the EntityManager for the current transaction.
+	 * 
+	 * @return the EntityManager
+	 */
+	protected EntityManager getEntityManager() {
+		return entityManager;
 	}
 
 	/**
@@ -64,6 +199,19 @@ abstract public class Service<T extends DomainObject, K> {
 	 */
 	public void saveAll(final List<T> objects) {
 		getRepository().saveAll(objects);
+
+		if (flushOnSave) {
+			getRepository().flush();
+		}
+		written();
+	}
+
+	/**
+	 * Writes any changes held by the current transaction out to the database now. Only needed when
+	 * `coffeemaker.service.flush-on-save` is false and something has to see the changes before the
+	 * transaction ends (a native query, for example).
+	 */
+	public void flush() {
 		getRepository().flush();
 	}
 
@@ -75,6 +223,13 @@ abstract public class Service<T extends DomainObject, K> {
 	 */
 	public void delete(final T obj) {
 		getRepository().delete(obj);
+
+		if (flushOnSave) {
+			// Hibernate flushes inserts before deletes, so a later save of a record with the same
+			// unique name would otherwise collide with this one
+			getRepository().flush();
+		}
+		written();
 	}
 
 	/**
@@ -83,6 +238,11 @@ abstract public class Service<T extends DomainObject, K> {
 	 */
 	public void deleteAll() {
 		getRepository().deleteAll();
+
+		if (flushOnSave) {
+			getRepository().flush();
+		}
+		written();
 	}
 
 	/**
@@ -117,6 +277,10 @@ abstract public class Service<T extends DomainObject, K> {
 	 * @return If the object was found
 	 */
 	public boolean existsById(final K id) {
+		if (isCaching() && null != id && null != cache.get(id)) {
+			return true;
+		}
+
 		return getRepository().existsById(id);
 	}
 
@@ -132,12 +296,194 @@ abstract public class Service<T extends DomainObject, K> {
 			return null;
 		}
 
+		final boolean caching = isCaching();
+
+		if (caching) {
+			final T cached = cache.get(id);
+
+			if (null != cached) {
+				return cached;
+			}
+		}
+
+		final long seen = getRevision();
 		final Optional<T> res = getRepository().findById(id);
 
 		if (res.isPresent()) {
+			if (caching) {
+				fill(cache, id, res.get(), seen);
+			}
+
 			return res.get();
 		}
 
 		return null;
 	}
+
+	/**
+	 * Turns on caching for this Service: records found by ID, and the result of findAll(), are
+	 * kept until the next write. The cache's hits, misses, evictions and size are published as the
+	 * `coffeemaker.cache.*` metrics.
+	 * 
+	 * @param name  Name of the cache in the metrics
+	 * @param cache Cache for records found by ID
+	 */
+	public void setCache(final String name, final ServiceCache<K, T> cache) {
+		this.queries = monitor(name, "query", new LruServiceCache<>(1));
+		this.cache = monitor(name, "id", cache);
+	}
+
+	/**
+	 * Returns the cache of records found by ID.
+	 * 
+	 * @return the cache, or null if this Service doesn't cache
+	 */
+	public ServiceCache<K, T> getCache() {
+		return cache;
+	}
+
+	/**
+	 * Returns whether caches can be used right now: caching is on, and the current transaction (if
+	 * any) hasn't written through this Service.
+	 * 
+	 * @return true if caches can be read and filled
+	 */
+	protected boolean isCaching() {
+		return null != cache && !TransactionSynchronizationManager.hasResource(this);
+	}
+
+	/**
+	 * Empties this Service's caches. Subclasses that keep their own caches should override this to
+	 * empty them too.
+	 */
+	protected void invalidate() {
+		if (null != cache) {
+			cache.clear();
+			queries.clear();
+		}
+	}
+
+	/**
+	 * Caches a record read from the database, unless anything has been written through this
+	 * Service since the read began: the record may then predate the write, and caching it would
+	 * keep it until the next one. Take the revision with getRevision() before reading.
+	 * 
+	 * @param <CK>   Type of the cache's keys
+	 * @param <CV>   Type of the cached records
+	 * @param target Cache to fill
+	 * @param key    Key of the record
+	 * @param value  The record
+	 * @param seen   Revision from before the record was read
+	 */
+	protected <CK, CV> void fill(final ServiceCache<CK, CV> target, final CK key, final CV value,
+			final long seen) {
+		synchronized (fillLock) {
+			if (revision.get() == seen) {
+				target.put(key, value);
+			}
+		}
+	}
+
+	/**
+	 * Mixes a row of numbers from an aggregate query into a single number, for use in an ETag. Any
+	 * change to any of them changes the result.
+	 * 
+	 * @param rows Result of the query: one row of numbers
+	 * 
+	 * @return the fingerprint
+	 */
+	protected static long fingerprint(final List<Object[]> rows) {
+		long hash = 0;
+
+		for (Object column : rows.get(0)) {
+			hash = mix(hash, null == column ? -1 : ((Number) column).longValue());
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Mixes one more number into a fingerprint, with MurmurHash3's 64-bit mixing step so that
+	 * every number moves every bit.
+	 * 
+	 * @param hash  Fingerprint so far
+	 * @param value Number to mix in
+	 * 
+	 * @return the new fingerprint
+	 */
+	static long mix(final long hash, final long value) {
+		final long mixed = (Long.rotateLeft(hash, 31) ^ value) * 0xff51afd7ed558ccdL;
+
+		return mixed ^ mixed >>> 33;
+	}
+
+	/**
+	 * Returns the revision of the records behind this Service. It changes whenever they are written
+	 * through this Service, including when the writing transaction commits or rolls back.
+	 * 
+	 * @return current revision
+	 */
+	public long getRevision() {
+		return revision.get();
+	}
+
+	/**
+	 * Called after every write through this Service. Moves the revision on and empties the caches,
+	 * and stops the current transaction from using them until it is over, when both happen again
+	 * in case it rolled back.
+	 */
+	protected void written() {
+		moveOn();
+
+		if (TransactionSynchronizationManager.isSynchronizationActive()
+				&& !TransactionSynchronizationManager.hasResource(this)) {
+			TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+			final Service<T, K> service = this;
+
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(final int status) {
+							TransactionSynchronizationManager.unbindResourceIfPossible(service);
+							moveOn();
+						}
+					});
+		}
+	}
+
+	/**
+	 * Moves the revision on and empties the caches, so that no read that began before now can
+	 * fill them.
+	 */
+	private void moveOn() {
+		synchronized (fillLock) {
+			revision.incrementAndGet();
+			invalidate();
+		}
+	}
+
+	/**
+	 * Publishes a cache's statistics as metrics, tagged with the cache's name and what its records
+	 * are keyed by.
+	 * 
+	 * @param <C>   Type of the cache
+	 * @param name  Name of the cache
+	 * @param key   What the cache's records are keyed by
+	 * @param cache The cache
+	 * 
+	 * @return the cache
+	 */
+	protected <C extends ServiceCache<?, ?>> C monitor(final String name, final String key,
+			final C cache) {
+		FunctionCounter.builder("coffeemaker.cache.hits", cache, ServiceCache::hits)
+				.tags("cache", name, "key", key).register(registry);
+		FunctionCounter.builder("coffeemaker.cache.misses", cache, ServiceCache::misses)
+				.tags("cache", name, "key", key).register(registry);
+		FunctionCounter.builder("coffeemaker.cache.evictions", cache, ServiceCache::evictions)
+				.tags("cache", name, "key", key).register(registry);
+		Gauge.builder("coffeemaker.cache.size", cache, ServiceCache::size)
+				.tags("cache", name, "key", key).register(registry);
+
+		return cache;
+	}
 }
@@ -0,0 +1,65 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+/**
+ * A cache of records kept by a Service so that it doesn't have to go to the database for records
+ * it has already loaded. Services work with any implementation; LruServiceCache is the one they
+ * use by default.
+ * 
+ * Implementations must be safe to use from many threads at once, and must count their hits,
+ * misses, and evictions.
+ *
+ * @param <K> Type of the key records are cached under
+ * @param <V> Type of the cached records
+ */
+public interface ServiceCache<K, V> {
+
+	/**
+	 * Returns a cached record, counting a hit or a miss.
+	 * 
+	 * @param key Key of the record
+	 * 
+	 * @return The record, or null if it isn't cached
+	 */
+	V get(K key);
+
+	/**
+	 * Caches a record, evicting others if the cache is full.
+	 * 
+	 * @param key   Key of the record
+	 * @param value The record
+	 */
+	void put(K key, V value);
+
+	/**
+	 * Removes every record from the cache. Not counted as evictions.
+	 */
+	void clear();
+
+	/**
+	 * Returns the number of records cached.
+	 * 
+	 * @return number of records
+	 */
+	int size();
+
+	/**
+	 * Returns the number of lookups that found a record.
+	 * 
+	 * @return number of hits
+	 */
+	long hits();
+
+	/**
+	 * Returns the number of lookups that didn't find a record.
+	 * 
+	 * @return number of misses
+	 */
+	long misses();
+
+	/**
+	 * Returns the number of records evicted to make room for others.
+	 * 
+	 * @return number of evictions
+	 */
+	long evictions();
+}
@@ -0,0 +1,225 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.lang.reflect.Method;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityNotFoundException;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times every call into a Service or a Repository, so that slow requests can be traced to the
+ * database work behind them. Calls are recorded in the `coffeemaker.service.calls` and
+ * `coffeemaker.repository.calls` timers, tagged with the class and method called and the outcome,
+ * named after the HTTP status the API answers it with: `success`, `404` when nothing was found,
+ * `409` when the write clashed with another, or `error` for anything else. A full Recipe book
+ * (`507`) is found out from RecipeService.isFull() without any call failing, so it only shows in
+ * `http.server.requests`. Keeping the outcomes to a handful keeps the number of timers bounded.
+ * 
+ * The timers are looked up once per Service or Repository, method and outcome, and kept.
+ * 
+ * The API endpoints themselves are timed by Spring Boot, in `http.server.requests`, tagged with
+ * the URI and the HTTP status returned.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+	/**
+	 * Registry for the timers.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Timers already registered, by the Service or Repository (its proxy class) and method called,
+	 * with one slot per Outcome.
+	 */
+	private final ConcurrentMap<Class<?>, ConcurrentMap<Method, Timer[]>> timers =
+			new ConcurrentHashMap<>();
+
+	/**
+	 * What a call came to, and the tag it is recorded under.
+	 */
+	private enum Outcome {
+		/** The call did what was asked. */
+		SUCCESS("success"),
+		/** Nothing was found. */
+		NOT_FOUND("404"),
+		/** The write clashed with a constraint or another write. */
+		CONFLICT("409"),
+		/** Anything else went wrong. */
+		ERROR("error");
+
+		/**
+		 * Value of the `outcome` tag.
+		 */
+		private final String tag;
+
+		/**
+		 * Creates an Outcome.
+		 * 
+		 * @param tag Value of the `outcome` tag
+		 */
+		Outcome(final String tag) {
+			this.tag = tag;
+		}
+	}
+
+	/**
+	 * Times a call into a Service.
+	 * 
+	 * @param call The call
+	 * 
+	 * @return What the Service returned
+	 * 
+	 * @throws Throwable whatever the Service threw
+	 */
+	@Around("execution(public * *(..)) && bean(*Service)")
+	public Object timeService(final ProceedingJoinPoint call) throws Throwable {
+		return time("coffeemaker.service.calls", call);
+	}
+
+	/**
+	 * Times a call into a Repository.
+	 * 
+	 * @param call The call
+	 * 
+	 * @return What the Repository returned
+	 * 
+	 * @throws Throwable whatever the Repository threw
+	 */
+	@Around("execution(public * *(..)) && bean(*Repository)")
+	public Object timeRepository(final ProceedingJoinPoint call) throws Throwable {
+		return time("coffeemaker.repository.calls", call);
+	}
+
+	/**
+	 * Runs a call and records how long it took.
+	 * 
+	 * @param name Name of the timer
+	 * @param call The call
+	 * 
+	 * @return What the call returned
+	 * 
+	 * @throws Throwable whatever the call threw
+	 */
+	private Object time(final String name, final ProceedingJoinPoint call) throws Throwable {
+		final long start = System.nanoTime();
+		final Method method = ((MethodSignature) call.getSignature()).getMethod();
+		Outcome outcome = Outcome.ERROR;
+
+		try {
+			final Object result = call.proceed();
+			outcome = outcome(method, result);
+			return result;
+		} catch (final Throwable t) {
+			outcome = outcome(t);
+			throw t;
+		} finally {
+			timer(name, call, method, outcome).record(System.nanoTime() - start,
+					TimeUnit.NANOSECONDS);
+		}
+	}
+
+	/**
+	 * Works out the Outcome of a call that returned. Finders answer a miss with null or an empty
+	 * Optional; void methods return null too, but that isn't a miss.
+	 * 
+	 * @param method The method called
+	 * @param result What it returned
+	 * 
+	 * @return the Outcome
+	 */
+	private static Outcome outcome(final Method method, final Object result) {
+		if (void.class.equals(method.getReturnType())) {
+			return Outcome.SUCCESS;
+		}
+
+		return null == result || Optional.empty().equals(result) ? Outcome.NOT_FOUND
+				: Outcome.SUCCESS;
+	}
+
+	/**
+	 * Works out the Outcome of a call that threw.
+	 * 
+	 * @param thrown What the call threw
+	 * 
+	 * @return the Outcome
+	 */
+	private static Outcome outcome(final Throwable thrown) {
+		if (thrown instanceof EmptyResultDataAccessException
+				|| thrown instanceof EntityNotFoundException
+				|| thrown instanceof NoSuchElementException) {
+			return Outcome.NOT_FOUND;
+		}
+
+		if (thrown instanceof DataIntegrityViolationException
+				|| thrown instanceof ConcurrencyFailureException) {
+			return Outcome.CONFLICT;
+		}
+
+		return Outcome.ERROR;
+	}
+
+	/**
+	 * Finds the timer for a call and its Outcome, registering it the first time.
+	 * 
+	 * @param name Name of the timer
+	 * @param call The call
+	 * @param method The method called
+	 * @param outcome What it came to
+	 * 
+	 * @return the timer
+	 */
+	private Timer timer(final String name, final ProceedingJoinPoint call, final Method method,
+			final Outcome outcome) {
+		final Timer[] slots = timers
+				.computeIfAbsent(call.getThis().getClass(), type -> new ConcurrentHashMap<>())
+				.computeIfAbsent(method, m -> new Timer[Outcome.values().length]);
+		Timer timer = slots[outcome.ordinal()];
+
+		if (null == timer) {
+			// A race registers the same timer twice, which the registry answers with the same one
+			timer = Timer.builder(name).tags("class", owner(call), "method", method.getName(),
+					"outcome", outcome.tag).register(registry);
+			slots[outcome.ordinal()] = timer;
+		}
+
+		return timer;
+	}
+
+	/**
+	 * Names the Service or Repository a call was made on. Repositories are named by their
+	 * interface, since their implementation is shared.
+	 * 
+	 * @param call The call
+	 * 
+	 * @return simple name of the Service or Repository
+	 */
+	private static String owner(final ProceedingJoinPoint call) {
+		for (Class<?> type : call.getThis().getClass().getInterfaces()) {
+			if (Repository.class.isAssignableFrom(type)) {
+				return type.getSimpleName();
+			}
+		}
+
+		return call.getTarget().getClass().getSimpleName();
+	}
+}
@@ -0,0 +1,308 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * Inventory quantities guarded by per-Ingredient locks, used when `coffeemaker.inventory.mode` is
+ * `STRIPED`.
+ *
+ * An order locks only the Ingredients its Recipe uses (see IngredientLocks), checks them against an
+ * in-memory copy of the quantities, and writes what it takes straight to the Ingredient rows before
+ * letting go. Orders that share no Ingredients go ahead side by side, where with the Inventory
+ * entity every order conflicts with every other. Unlike the InventoryLedger, nothing is left to be
+ * written later: the database is up to date as soon as an order has been made.
+ *
+ * Restocks go through here too, with addQuantity(), so every write to a quantity is made under its
+ * lock. Adding, deleting and clearing Ingredients still go through InventoryService, and the
+ * controllers call reload() afterwards. The locks only cover this instance, so only one CoffeeMaker
+ * instance should use this mode against a database.
+ */
+@Component
+public class StripedInventory {
+
+	/**
+	 * InventoryService, used to load quantities from the database.
+	 */
+	@Autowired
+	private InventoryService inventoryService;
+
+	/**
+	 * IngredientService, used to write changed quantities to the database.
+	 */
+	@Autowired
+	private IngredientService ingredientService;
+
+	/**
+	 * How the CoffeeMaker is tracking Inventory. Only used in `STRIPED` mode.
+	 */
+	@Value("${coffeemaker.inventory.mode:ENTITY}")
+	private InventoryMode mode;
+
+	/**
+	 * How many locks to share out between Ingredients.
+	 */
+	@Value("${coffeemaker.inventory.striped.stripes:64}")
+	private int stripeCount;
+
+	/**
+	 * The per-Ingredient locks.
+	 */
+	private IngredientLocks locks;
+
+	/**
+	 * The quantities as they stand in the database, or null until they have been loaded. Loaded
+	 * only while every lock is held; its quantities only change under their Ingredient's lock.
+	 */
+	private volatile Stock stock;
+
+	/**
+	 * Creates the locks.
+	 */
+	@PostConstruct
+	void start() {
+		locks = new IngredientLocks(stripeCount);
+	}
+
+	/**
+	 * Whether orders and restocks should go through here.
+	 *
+	 * @return true if `coffeemaker.inventory.mode` is `STRIPED`
+	 */
+	public boolean isActive() {
+		return mode == InventoryMode.STRIPED;
+	}
+
+	/**
+	 * Takes all of the Ingredients needed to make a Recipe out of the Inventory, or none of them.
+	 *
+	 * @param recipe Recipe to make
+	 *
+	 * @return true if there was enough of every Ingredient and it has been taken
+	 */
+	public boolean consume(final Recipe recipe) {
+		final CompiledRecipe needs = recipe.compile();
+
+		return locked(locks.stripes(needs), current -> {
+			// Ingredients not in the Inventory have -1, so they never fit
+			if (!needs.fits(current.quantities)) {
+				return false;
+			}
+
+			final Long[] ids = new Long[needs.size()];
+			final int[] amounts = new int[needs.size()];
+
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = current.ids[needs.ingredient(i)];
+				amounts[i] = needs.quantity(i);
+			}
+
+			if (ids.length > 0 && !written(ingredientService.consume(ids, amounts))) {
+				return false;
+			}
+
+			needs.deduct(current.quantities);
+
+			return true;
+		});
+	}
+
+	/**
+	 * Adds to the quantity of an Ingredient, in the database and here. As with Ingredient, the
+	 * amount must be positive and the quantity can't go over Ingredient.MAX_QUANTITY.
+	 *
+	 * @param name   Ingredient name
+	 * @param amount amount to add
+	 *
+	 * @return true if the Ingredient is in the Inventory and the amount has been added; false if
+	 *         not, or if the amount would take it over the limit
+	 */
+	public boolean addQuantity(final String name, final int amount) {
+		final int id = IngredientDictionary.find(name.trim().toLowerCase());
+
+		if (id < 0 || amount < 1) {
+			return false;
+		}
+
+		return locked(new int[] { locks.stripe(id) }, current -> {
+			if (id >= current.quantities.length || current.quantities[id] < 0
+					|| current.quantities[id] > Ingredient.MAX_QUANTITY - amount) {
+				return false;
+			}
+
+			if (!written(ingredientService.consume(current.ids[id], -amount))) {
+				return false;
+			}
+
+			current.quantities[id] += amount;
+
+			return true;
+		});
+	}
+
+	/**
+	 * Forgets the quantities, so that they are loaded from the database when next needed. Call
+	 * this after Ingredients have been added to or removed from the Inventory. Waits for orders
+	 * that are being made to finish.
+	 */
+	public void reload() {
+		locks.lock(locks.all());
+
+		try {
+			stock = null;
+		} finally {
+			locks.unlock(locks.all());
+		}
+	}
+
+	/**
+	 * Runs an action against the quantities while holding some of the locks, loading the
+	 * quantities first if need be.
+	 *
+	 * @param <T>    what the action returns
+	 * @param held   Locks to hold, in ascending order
+	 * @param action What to do with the quantities
+	 *
+	 * @return what the action returned
+	 */
+	private <T> T locked(final int[] held, final Function<Stock, T> action) {
+		while (true) {
+			if (stock == null) {
+				load();
+			}
+
+			locks.lock(held);
+
+			try {
+				final Stock current = stock;
+
+				if (current != null) {
+					return action.apply(current);
+				}
+				// Reloaded since we looked; load again
+			} finally {
+				locks.unlock(held);
+			}
+		}
+	}
+
+	/**
+	 * Loads the quantities from the database, unless another thread just has. Takes every lock, so
+	 * must not be called while holding any.
+	 */
+	private void load() {
+		locks.lock(locks.all());
+
+		try {
+			if (stock == null) {
+				stock = Stock.of(inventoryService.getInventory());
+			}
+		} finally {
+			locks.unlock(locks.all());
+		}
+	}
+
+	/**
+	 * Checks the result of a write to the database. If it failed because an Ingredient has gone,
+	 * or the transaction it was made in later rolls back, the quantities here can no longer be
+	 * trusted and are loaded again when next needed.
+	 *
+	 * @param succeeded whether every row was written
+	 *
+	 * @return `succeeded`
+	 */
+	private boolean written(final boolean succeeded) {
+		if (!succeeded) {
+			// Set under the locks this thread holds; anyone else holding the old Stock is harmless
+			stock = null;
+		} else if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(final int status) {
+							if (status != TransactionSynchronization.STATUS_COMMITTED) {
+								reload();
+							}
+						}
+					});
+		}
+
+		return succeeded;
+	}
+
+	/**
+	 * The Inventory as it stands in the database, in arrays indexed by dense Ingredient ID. The
+	 * arrays are as long as the IngredientDictionary was when the Stock was loaded; slots for
+	 * Ingredients that aren't in the Inventory have a quantity of -1.
+	 */
+	private static final class Stock {
+
+		/**
+		 * Database ID of the Ingredient in each slot.
+		 */
+		final Long[] ids;
+
+		/**
+		 * Quantity in each slot, or -1 if the Ingredient isn't in the Inventory. Each slot is only
+		 * read or written while holding its Ingredient's lock.
+		 */
+		final int[] quantities;
+
+		/**
+		 * Creates a Stock.
+		 *
+		 * @param ids        Ingredient IDs
+		 * @param quantities quantities
+		 */
+		Stock(final Long[] ids, final int[] quantities) {
+			this.ids = ids;
+			this.quantities = quantities;
+		}
+
+		/**
+		 * Builds a Stock from the Inventory in the database.
+		 *
+		 * @param inventory Inventory from the database
+		 *
+		 * @return the Stock
+		 */
+		static Stock of(final Inventory inventory) {
+			final List<Ingredient> ingredients = inventory.getIngredients();
+			final int[] dense = new int[ingredients.size()];
+
+			for (int i = 0; i < dense.length; i++) {
+				dense[i] = IngredientDictionary.idOf(ingredients.get(i).getName());
+			}
+
+			final Long[] ids = new Long[IngredientDictionary.size()];
+			final int[] quantities = new int[ids.length];
+			Arrays.fill(quantities, -1);
+
+			for (int i = 0; i < dense.length; i++) {
+				// Keep the first of two Ingredients with the same name, as Inventory does
+				if (quantities[dense[i]] < 0) {
+					ids[dense[i]] = (Long) ingredients.get(i).getId();
+					quantities[dense[i]] = ingredients.get(i).getQuantity();
+				}
+			}
+
+			return new Stock(ids, quantities);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package edu.ncsu.csc.CoffeeMaker.services;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when the JVM has them (Java 21 and later). They are looked up
+ * reflectively so that the CoffeeMaker still builds and runs on older Java versions, where callers
+ * fall back to platform threads.
+ */
+public final class VirtualThreads {
+
+	/**
+	 * Not instantiated.
+	 */
+	private VirtualThreads() {
+	}
+
+	/**
+	 * Creates a factory for virtual threads, named with a prefix and a number counting up from 0.
+	 * 
+	 * @param prefix Start of each thread's name
+	 * 
+	 * @return the factory, or null if this JVM doesn't have virtual threads
+	 */
+	public static ThreadFactory factory(final String prefix) {
+		try {
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder,
+					prefix, 0L);
+
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		} catch (final ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,5 @@
+-- Version columns for optimistic locking of Ingredients and the Inventory. Rows that already exist
+-- start at version 0.
+ALTER TABLE ingredient ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+
+ALTER TABLE inventory ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,49 @@
+-- Schema as Hibernate's ddl-auto: update left it before migrations were introduced. Databases
+-- created that way are baselined at this version (spring.flyway.baseline-on-migrate) and skip this
+-- script, so it must not have anything they lack; later changes go in later versions.
+
+CREATE TABLE IF NOT EXISTS hibernate_sequence (
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO hibernate_sequence (next_val)
+    SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM hibernate_sequence);
+
+CREATE TABLE IF NOT EXISTS ingredient (
+    id BIGINT NOT NULL,
+    name VARCHAR(255),
+    quantity INTEGER NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS inventory (
+    id BIGINT NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS inventory_ingredients (
+    inventory_id BIGINT NOT NULL,
+    ingredients_id BIGINT NOT NULL,
+    CONSTRAINT uk_inventory_ingredients UNIQUE (ingredients_id),
+    CONSTRAINT fk_inventory_ingredients_ingredient FOREIGN KEY (ingredients_id)
+        REFERENCES ingredient (id),
+    CONSTRAINT fk_inventory_ingredients_inventory FOREIGN KEY (inventory_id)
+        REFERENCES inventory (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS recipe (
+    id BIGINT NOT NULL,
+    name VARCHAR(255),
+    price INTEGER,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS recipe_ingredients (
+    recipe_id BIGINT NOT NULL,
+    ingredients_id BIGINT NOT NULL,
+    CONSTRAINT uk_recipe_ingredients UNIQUE (ingredients_id),
+    CONSTRAINT fk_recipe_ingredients_ingredient FOREIGN KEY (ingredients_id)
+        REFERENCES ingredient (id),
+    CONSTRAINT fk_recipe_ingredients_recipe FOREIGN KEY (recipe_id)
+        REFERENCES recipe (id)
+) ENGINE = InnoDB;
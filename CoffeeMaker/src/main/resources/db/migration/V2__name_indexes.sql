@@ -0,0 +1,7 @@
+-- Recipes are looked up by name on every order, and names must be unique. Names are stored trimmed
+-- and lowercase, and the default collation compares them case-insensitively as well.
+CREATE UNIQUE INDEX uk_recipe_name ON recipe (name);
+
+-- Ingredient names repeat (each Recipe keeps its own copies of the Inventory's Ingredients), so
+-- this index speeds up lookups without making names unique.
+CREATE INDEX idx_ingredient_name ON ingredient (name);
@@ -0,0 +1,22 @@
+-- Append-only log of Inventory quantity changes, and periodic snapshots of the quantities, used
+-- when coffeemaker.inventory.mode is EVENTS. Neither table is ever updated in place.
+CREATE TABLE inventory_event (
+    id BIGINT NOT NULL,
+    ingredient VARCHAR(255),
+    kind VARCHAR(255),
+    amount INTEGER NOT NULL,
+    recorded_at DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_inventory_event_recorded_at ON inventory_event (recorded_at);
+
+CREATE TABLE inventory_snapshot (
+    id BIGINT NOT NULL,
+    last_event BIGINT NOT NULL,
+    taken_at DATETIME(6),
+    quantities TEXT,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE INDEX idx_inventory_snapshot_taken_at ON inventory_snapshot (taken_at);
@@ -0,0 +1,16 @@
+-- Each coffee machine has an Inventory of its own. The existing Inventory becomes machine 0, the
+-- CoffeeMaker's own, which /api/v1/inventory serves.
+ALTER TABLE inventory ADD COLUMN machine BIGINT NOT NULL DEFAULT 0;
+
+-- Earlier versions could end up with more than one Inventory row. Keep the oldest as machine 0 and
+-- number the rest from 1 in the order they were created, so that each machine has one Inventory
+-- and nothing is lost; the others can be read at /api/v1/machines/{machine}/inventory. The
+-- numbering is worked out in a grouped derived table, which MySQL builds before updating.
+UPDATE inventory inv
+    JOIN (SELECT later.id, COUNT(*) AS machine
+          FROM inventory later
+          JOIN inventory earlier ON earlier.id < later.id
+          GROUP BY later.id) numbered ON numbered.id = inv.id
+SET inv.machine = numbered.machine;
+
+CREATE UNIQUE INDEX uk_inventory_machine ON inventory (machine);
@@ -0,0 +1,139 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests the non-blocking endpoints under /api/v1/async (`coffeemaker.api.async.enabled=true`). Not
+ * transactional, as each request is answered on a worker thread, outside the test's transaction.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "coffeemaker.api.async.enabled=true")
+@AutoConfigureMockMvc
+public class APIAsyncTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Sets up an Inventory of 15 coffee and a Coffee Recipe.
+	 */
+	@BeforeEach
+	public void setup() {
+		service.deleteAll();
+
+		final Inventory ivt = iService.getInventory();
+		ivt.clearInventory();
+		ivt.addIngredient(new Ingredient("Coffee", 15));
+		iService.save(ivt);
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+		service.save(recipe);
+	}
+
+	/**
+	 * Cleans up after the tests.
+	 */
+	@AfterEach
+	public void cleanup() {
+		service.deleteAll();
+
+		final Inventory ivt = iService.getInventory();
+		ivt.clearInventory();
+		iService.save(ivt);
+	}
+
+	/**
+	 * Sends a request that is answered on a worker, and waits for the answer.
+	 *
+	 * @param sent the request
+	 *
+	 * @return the dispatch that writes the answer, to check it with andExpect()
+	 *
+	 * @throws Exception if the request fails
+	 */
+	private RequestBuilder answered(final RequestBuilder sent) throws Exception {
+		final MvcResult result = mvc.perform(sent).andExpect(request().asyncStarted())
+				.andReturn();
+
+		return asyncDispatch(result);
+	}
+
+	/**
+	 * The listings answer as their blocking counterparts do.
+	 *
+	 * @throws Exception from GET
+	 */
+	@Test
+	public void testListings() throws Exception {
+		mvc.perform(answered(get("/api/v1/async/recipes"))).andExpect(status().isOk())
+				.andExpect(jsonPath("$[0].name").value("Coffee"));
+
+		mvc.perform(answered(get("/api/v1/async/inventory"))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.ingredients[0].quantity").value(15));
+
+		mvc.perform(answered(get("/api/v1/async/ingredients"))).andExpect(status().isOk());
+	}
+
+	/**
+	 * Making coffee takes the Ingredients out of the Inventory and answers with the change, and
+	 * errors come back as they would from /api/v1/makecoffee.
+	 *
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testMakeCoffee() throws Exception {
+		mvc.perform(answered(post("/api/v1/async/makecoffee/Coffee")
+				.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(60))))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.message").value(10));
+
+		mvc.perform(answered(post("/api/v1/async/makecoffee/Covfefe")
+				.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(60))))
+				.andExpect(status().isNotFound());
+
+		Assertions.assertEquals(12, iService.getInventory().getIngredient("Coffee").getQuantity());
+	}
+}
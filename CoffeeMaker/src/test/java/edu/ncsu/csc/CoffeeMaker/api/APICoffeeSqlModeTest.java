@@ -0,0 +1,133 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.transaction.Transactional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests making coffee via POST requests when Ingredients are taken out of the Inventory with a
+ * conditional UPDATE (`coffeemaker.inventory.mode=SQL`).
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "coffeemaker.inventory.mode=SQL")
+@AutoConfigureMockMvc
+public class APICoffeeSqlModeTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Sets up the tests.
+	 */
+	@BeforeEach
+	public void setup() {
+		service.deleteAll();
+
+		final Inventory ivt = iService.getInventory();
+		ivt.clearInventory();
+		ivt.addIngredient(new Ingredient("Chocolate", 15));
+		ivt.addIngredient(new Ingredient("Coffee", 15));
+		ivt.addIngredient(new Ingredient("Milk", 15));
+		ivt.addIngredient(new Ingredient("Sugar", 15));
+		iService.save(ivt);
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+		recipe.addIngredient(new Ingredient("Milk", 1));
+		recipe.addIngredient(new Ingredient("Sugar", 1));
+		recipe.addIngredient(new Ingredient("Chocolate", 1));
+		service.save(recipe);
+	}
+
+	/**
+	 * Valid purchase takes every Ingredient out of the Inventory.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	@Transactional
+	public void testPurchaseBeverage() throws Exception {
+		mvc.perform(post("/api/v1/makecoffee/Coffee").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(60))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.message").value(10));
+
+		final Inventory ivt = iService.getInventory();
+		Assertions.assertEquals(12, ivt.getIngredient("Coffee").getQuantity());
+		Assertions.assertEquals(14, ivt.getIngredient("Milk").getQuantity());
+		Assertions.assertEquals(14, ivt.getIngredient("Sugar").getQuantity());
+		Assertions.assertEquals(14, ivt.getIngredient("Chocolate").getQuantity());
+	}
+
+	/**
+	 * Purchase that the Inventory can't cover is refused.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	@Transactional
+	public void testPurchaseInsufficientInventory() throws Exception {
+		final Inventory ivt = iService.getInventory();
+		ivt.setIngredient("Coffee", 2);
+		iService.save(ivt);
+
+		mvc.perform(post("/api/v1/makecoffee/Coffee").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isConflict())
+				.andExpect(jsonPath("$.message")
+						.value("Not enough Inventory or Ingredient not found in Inventory"));
+	}
+
+	/**
+	 * Purchase of a Recipe with an Ingredient that isn't in the Inventory is refused.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	@Transactional
+	public void testPurchaseMissingIngredient() throws Exception {
+		final Inventory ivt = iService.getInventory();
+		ivt.removeIngredient("Sugar");
+		iService.save(ivt);
+
+		mvc.perform(post("/api/v1/makecoffee/Coffee").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isConflict())
+				.andExpect(jsonPath("$.message")
+						.value("Not enough Inventory or Ingredient not found in Inventory"));
+	}
+}
@@ -0,0 +1,220 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+import edu.ncsu.csc.CoffeeMaker.services.StripedInventory;
+
+/**
+ * Tests making coffee and restocking when orders lock only the Ingredients they use
+ * (`coffeemaker.inventory.mode=STRIPED`). Not transactional, as each order is committed as it is
+ * made.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "coffeemaker.inventory.mode=STRIPED")
+@AutoConfigureMockMvc
+public class APICoffeeStripedModeTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Striped Inventory under test.
+	 */
+	@Autowired
+	private StripedInventory striped;
+
+	/**
+	 * Sets up an Inventory of 10 coffee, 5 milk and 10 tea, and a Latte and a Tea Recipe that have
+	 * no Ingredients in common.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@BeforeEach
+	public void setup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Coffee")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Milk")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Tea")).andExpect(status().isOk());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 9));
+		restock.addIngredient(new Ingredient("Milk", 4));
+		restock.addIngredient(new Ingredient("Tea", 9));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+
+		final Recipe latte = new Recipe();
+		latte.setName("Latte");
+		latte.setPrice(50);
+		latte.addIngredient(new Ingredient("Coffee", 3));
+		latte.addIngredient(new Ingredient("Milk", 1));
+		service.save(latte);
+
+		final Recipe tea = new Recipe();
+		tea.setName("Tea");
+		tea.setPrice(20);
+		tea.addIngredient(new Ingredient("Tea", 1));
+		service.save(tea);
+	}
+
+	/**
+	 * Cleans up after the tests.
+	 *
+	 * @throws Exception if DELETE fails
+	 */
+	@AfterEach
+	public void cleanup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+	}
+
+	/**
+	 * Making coffee writes the amounts taken straight to the database.
+	 *
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testPurchaseBeverage() throws Exception {
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(60))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.message").value(10));
+
+		final Inventory ivt = iService.getInventory();
+		Assertions.assertEquals(7, ivt.getIngredient("Coffee").getQuantity());
+		Assertions.assertEquals(4, ivt.getIngredient("Milk").getQuantity());
+		Assertions.assertEquals(10, ivt.getIngredient("Tea").getQuantity());
+	}
+
+	/**
+	 * A Recipe there isn't enough for is refused, and nothing is taken.
+	 *
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testPurchaseInsufficientInventory() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+					.content(TestUtils.asJsonString(50))).andExpect(status().isOk());
+		}
+
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isConflict());
+
+		final Inventory ivt = iService.getInventory();
+		Assertions.assertEquals(1, ivt.getIngredient("Coffee").getQuantity());
+		Assertions.assertEquals(2, ivt.getIngredient("Milk").getQuantity());
+	}
+
+	/**
+	 * Restocking can't take an Ingredient over 1000, the same limit as in the other modes; an
+	 * amount that would is left out, and the others are still added.
+	 *
+	 * @throws Exception from PUT
+	 */
+	@Test
+	public void testRestockLimit() throws Exception {
+		final Inventory tooMuch = new Inventory();
+		tooMuch.addIngredient(new Ingredient("Coffee", 991));
+		tooMuch.addIngredient(new Ingredient("Milk", 5));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(tooMuch))).andExpect(status().isOk());
+
+		Inventory ivt = iService.getInventory();
+		Assertions.assertEquals(10, ivt.getIngredient("Coffee").getQuantity());
+		Assertions.assertEquals(10, ivt.getIngredient("Milk").getQuantity());
+
+		final Inventory toTheLimit = new Inventory();
+		toTheLimit.addIngredient(new Ingredient("Coffee", 990));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(toTheLimit))).andExpect(status().isOk());
+
+		ivt = iService.getInventory();
+		Assertions.assertEquals(1000, ivt.getIngredient("Coffee").getQuantity());
+		Assertions.assertFalse(striped.addQuantity("Coffee", 1));
+	}
+
+	/**
+	 * Orders made at the same time, some sharing Ingredients and some not, never take more than
+	 * there is or lose an update.
+	 *
+	 * @throws Exception if an order fails
+	 */
+	@Test
+	public void testConcurrentOrders() throws Exception {
+		final Recipe latte = service.findByName("Latte");
+		final Recipe tea = service.findByName("Tea");
+		final ExecutorService pool = Executors.newFixedThreadPool(4);
+		final List<Callable<Boolean>> orders = new ArrayList<>();
+
+		for (int i = 0; i < 4; i++) {
+			orders.add(() -> striped.consume(latte));
+			orders.add(() -> striped.consume(latte));
+			orders.add(() -> striped.consume(tea));
+			orders.add(() -> striped.consume(tea));
+			orders.add(() -> striped.consume(tea));
+		}
+
+		int made = 0;
+
+		try {
+			for (Future<Boolean> order : pool.invokeAll(orders)) {
+				made += order.get() ? 1 : 0;
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		// 3 Lattes use up 9 of the 10 coffee, and all 10 teas can be made
+		Assertions.assertEquals(13, made);
+
+		final Inventory ivt = iService.getInventory();
+		Assertions.assertEquals(1, ivt.getIngredient("Coffee").getQuantity());
+		Assertions.assertEquals(2, ivt.getIngredient("Milk").getQuantity());
+		Assertions.assertEquals(0, ivt.getIngredient("Tea").getQuantity());
+	}
+}
@@ -4,6 +4,8 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.Arrays;
+
 import javax.transaction.Transactional;
 
 import org.junit.jupiter.api.Assertions;
@@ -18,6 +20,7 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
 import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.forms.OrderForm;
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
 import edu.ncsu.csc.CoffeeMaker.models.Inventory;
 import edu.ncsu.csc.CoffeeMaker.models.Recipe;
@@ -176,4 +179,26 @@ public class APICoffeeTest {
 
 		Assertions.assertNotNull(name);
 	}
+
+	/**
+	 * Batch of orders, some of which can't be filled.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	@Transactional
+	public void testPurchaseBatch() throws Exception {
+		mvc.perform(post("/api/v1/makecoffee").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(Arrays.asList(new OrderForm("Coffee", 60),
+						new OrderForm("Coffee", 40), new OrderForm("Covfefe", 50),
+						new OrderForm(" COFFEE ", 50)))))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(4))
+				.andExpect(jsonPath("$[0].status").value("success"))
+				.andExpect(jsonPath("$[0].message").value("10"))
+				.andExpect(jsonPath("$[1].message").value("Not enough money paid"))
+				.andExpect(jsonPath("$[2].message").value("Recipe does not exist"))
+				.andExpect(jsonPath("$[3].message").value("0"));
+
+		Assertions.assertEquals(9, iService.getInventory().getIngredient("Coffee").getQuantity());
+	}
 }
@@ -0,0 +1,185 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.DatabaseLimitAspect;
+import edu.ncsu.csc.CoffeeMaker.services.DatabasePermits;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryLedger;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests making coffee against the InventoryLedger (`coffeemaker.inventory.mode=LEDGER`) with a
+ * single DatabasePermit and one connection to spare. The ledger's background flush runs without a
+ * permit, so it keeps writing while requests hold them, and requests that have to wait for it
+ * (every change once the database is 1 ms behind) don't hold everything up. Not transactional, as
+ * each order is committed as it is made.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "coffeemaker.inventory.mode=LEDGER",
+		"coffeemaker.inventory.ledger.flush-interval-ms=50",
+		"coffeemaker.inventory.ledger.max-staleness-ms=1", "coffeemaker.threads.db-permits=1",
+		"coffeemaker.threads.db-wait-ms=5000", "spring.datasource.hikari.maximum-pool-size=2",
+		"spring.datasource.hikari.connection-timeout=2000" })
+@AutoConfigureMockMvc
+public class APIDatabaseLimitLedgerModeTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Inventory ledger under test.
+	 */
+	@Autowired
+	private InventoryLedger ledger;
+
+	/**
+	 * Holds the permits.
+	 */
+	@Autowired
+	private DatabaseLimitAspect limit;
+
+	/**
+	 * Sets up an Inventory of 200 coffee and an Espresso Recipe, which takes 3.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@BeforeEach
+	public void setup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Coffee")).andExpect(status().isOk());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 199));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+
+		final Recipe espresso = new Recipe();
+		espresso.setName("Espresso");
+		espresso.setPrice(20);
+		espresso.addIngredient(new Ingredient("Coffee", 3));
+		service.save(espresso);
+	}
+
+	/**
+	 * Cleans up after the tests.
+	 *
+	 * @throws Exception if DELETE fails
+	 */
+	@AfterEach
+	public void cleanup() throws Exception {
+		ledger.flush();
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+	}
+
+	/**
+	 * The background flush writes an order to the database while the only permit is taken.
+	 *
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testFlushWhilePermitsTaken() throws Exception {
+		final DatabasePermits permits = limit.getPermits();
+
+		permits.enter();
+
+		try {
+			// Made on this thread, which already holds the permit
+			mvc.perform(post("/api/v1/makecoffee/Espresso").contentType(MediaType.APPLICATION_JSON)
+					.content(TestUtils.asJsonString(20))).andExpect(status().isOk());
+
+			final long deadline = System.currentTimeMillis() + 2000;
+
+			while (coffeeInDatabase() != 197 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(20);
+			}
+
+			Assertions.assertEquals(197, coffeeInDatabase(),
+					"The flush should not wait for the permit");
+		} finally {
+			permits.exit();
+		}
+	}
+
+	/**
+	 * Orders made at the same time, which flush the ledger themselves once the database falls
+	 * behind, are all made.
+	 *
+	 * @throws Exception if an order fails
+	 */
+	@Test
+	public void testConcurrentOrders() throws Exception {
+		final ExecutorService pool = Executors.newFixedThreadPool(8);
+		final List<Callable<Integer>> orders = new ArrayList<>();
+
+		for (int i = 0; i < 40; i++) {
+			orders.add(() -> mvc.perform(post("/api/v1/makecoffee/Espresso")
+					.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(20)))
+					.andReturn().getResponse().getStatus());
+		}
+
+		try {
+			for (Future<Integer> order : pool.invokeAll(orders)) {
+				Assertions.assertEquals(200, order.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		ledger.flush();
+		Assertions.assertEquals(80, coffeeInDatabase());
+		Assertions.assertEquals(1, limit.getPermits().getAvailable());
+	}
+
+	/**
+	 * Reads how much coffee the database has, behind the ledger.
+	 *
+	 * @return quantity of coffee in the Ingredient row
+	 */
+	private int coffeeInDatabase() {
+		return iService.getInventory().getIngredient("Coffee").getQuantity();
+	}
+}
@@ -0,0 +1,135 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.services.DatabaseLimitAspect;
+import edu.ncsu.csc.CoffeeMaker.services.DatabasePermits;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+
+/**
+ * Tests requests that make more than one Service call when every DatabasePermit is taken, with as
+ * many connections as permits. GET /api/v1/inventory reads the Inventory's fingerprint and then the
+ * Inventory, in two Service calls. Not transactional, as the requests run on threads of their own.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "coffeemaker.threads.db-permits=1",
+		"coffeemaker.threads.db-wait-ms=5000", "spring.datasource.hikari.maximum-pool-size=1",
+		"spring.datasource.hikari.connection-timeout=2000" })
+@AutoConfigureMockMvc
+public class APIDatabaseLimitTest {
+
+	/**
+	 * Local MockMvc for GET requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService invService;
+
+	/**
+	 * Holds the permits.
+	 */
+	@Autowired
+	private DatabaseLimitAspect limit;
+
+	/**
+	 * Makes sure there is an Inventory to read.
+	 */
+	@BeforeEach
+	public void setup() {
+		final Inventory ivt = invService.getInventory();
+
+		if (ivt.getIngredient("Coffee") == null) {
+			ivt.addIngredient(new Ingredient("Coffee"));
+			invService.save(ivt);
+		}
+	}
+
+	/**
+	 * A request that is waiting for the only permit holds no connection, so the thread holding the
+	 * permit can still use the database, and the request is answered once the permit is free.
+	 *
+	 * @throws Exception if GET fails
+	 */
+	@Test
+	public void testWaitingRequestHoldsNoConnection() throws Exception {
+		final DatabasePermits permits = limit.getPermits();
+		final ExecutorService pool = Executors.newSingleThreadExecutor();
+		final Future<Integer> request;
+
+		permits.enter();
+
+		try {
+			request = pool.submit(() -> mvc.perform(get("/api/v1/inventory")).andReturn()
+					.getResponse().getStatus());
+
+			Thread.sleep(300);
+			Assertions.assertFalse(request.isDone(), "The request should wait for the permit");
+
+			// Times out on the pool's only connection if the waiting request has it
+			invService.getFingerprint();
+			invService.getInventory();
+		} finally {
+			permits.exit();
+		}
+
+		try {
+			Assertions.assertEquals(200, request.get(5, TimeUnit.SECONDS));
+		} finally {
+			pool.shutdownNow();
+		}
+
+		Assertions.assertEquals(1, permits.getAvailable());
+	}
+
+	/**
+	 * Requests made at the same time, each making two Service calls, are all answered rather than
+	 * each holding what the other needs until they time out.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		final ExecutorService pool = Executors.newFixedThreadPool(8);
+		final List<Callable<Integer>> requests = new ArrayList<>();
+
+		for (int i = 0; i < 40; i++) {
+			requests.add(() -> mvc.perform(get("/api/v1/inventory")).andReturn().getResponse()
+					.getStatus());
+		}
+
+		try {
+			for (Future<Integer> request : pool.invokeAll(requests)) {
+				Assertions.assertEquals(200, request.get());
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		Assertions.assertEquals(1, limit.getPermits().getAvailable());
+	}
+}
@@ -3,8 +3,13 @@ package edu.ncsu.csc.CoffeeMaker.api;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.util.List;
+
 import javax.transaction.Transactional;
 
 import org.junit.jupiter.api.Assertions;
@@ -188,4 +193,46 @@ public class APIIngredientTest {
 			Assertions.fail();
 		}
 	}
+
+	/**
+	 * Ingredients can be listed a page at a time, after an ID, or streamed as NDJSON.
+	 * 
+	 * @throws Exception if GET fails
+	 */
+	@Test
+	@Transactional
+	public void testIngredientListings() throws Exception {
+		ingService.deleteAll();
+		ingService.save(new Ingredient("Coffee", 1));
+		ingService.save(new Ingredient("Milk", 2));
+		ingService.save(new Ingredient("Sugar", 3));
+
+		mvc.perform(get("/api/v1/ingredients?page=0&size=2")).andExpect(status().isOk())
+				.andExpect(header().string("X-Total-Count", "3"))
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[0].name").value("coffee"));
+		mvc.perform(get("/api/v1/ingredients?page=1&size=2")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].name").value("sugar"));
+		mvc.perform(get("/api/v1/ingredients?page=0&size=0"))
+				.andExpect(status().isBadRequest());
+
+		final String next = mvc.perform(get("/api/v1/ingredients?after=0&size=2"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(2))
+				.andExpect(header().exists("X-Next-After")).andReturn().getResponse()
+				.getHeader("X-Next-After");
+		mvc.perform(get("/api/v1/ingredients?after=" + next + "&size=2"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].name").value("sugar"))
+				.andExpect(header().doesNotExist("X-Next-After"));
+
+		final String streamed = mvc
+				.perform(get("/api/v1/ingredients").accept("application/x-ndjson"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+				.andReturn().getResponse().getContentAsString();
+		final List<String> lines = List.of(streamed.trim().split("\n"));
+		Assertions.assertEquals(3, lines.size());
+		Assertions.assertTrue(lines.get(2).contains("\"sugar\""));
+	}
 }
@@ -0,0 +1,221 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryEventLog;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests making coffee and restocking when Inventory changes are appended to the event log
+ * (`coffeemaker.inventory.mode=EVENTS`). Not transactional, as the log's appends are committed as
+ * they happen. Snapshots are only taken when a test asks for one.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "coffeemaker.inventory.mode=EVENTS",
+		"coffeemaker.inventory.events.snapshot-interval-ms=600000" })
+@AutoConfigureMockMvc
+public class APIInventoryEventsModeTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Inventory event log under test.
+	 */
+	@Autowired
+	private InventoryEventLog events;
+
+	/**
+	 * Time at which the Inventory was last restocked in setup().
+	 */
+	private Instant restocked;
+
+	/**
+	 * Sets up an Inventory of 10 coffee and 5 milk, through the API so that it is logged.
+	 * 
+	 * @throws Exception if a request fails
+	 */
+	@BeforeEach
+	public void setup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Coffee")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Milk")).andExpect(status().isOk());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 9));
+		restock.addIngredient(new Ingredient("Milk", 4));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+		restocked = Instant.now();
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Latte");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+		recipe.addIngredient(new Ingredient("Milk", 1));
+		service.save(recipe);
+	}
+
+	/**
+	 * Cleans up after the tests.
+	 * 
+	 * @throws Exception if DELETE fails
+	 */
+	@AfterEach
+	public void cleanup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+	}
+
+	/**
+	 * Making coffee appends to the log, and the quantities survive being rebuilt from it.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testPurchaseBeverage() throws Exception {
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(60))).andExpect(status().isOk())
+				.andExpect(jsonPath("$.message").value(10));
+
+		Assertions.assertEquals(7, events.getQuantity("Coffee"));
+		Assertions.assertEquals(4, events.getQuantity("Milk"));
+
+		events.recover();
+		Assertions.assertEquals(7, events.getQuantity("Coffee"));
+		Assertions.assertEquals(4, events.getQuantity("Milk"));
+
+		mvc.perform(get("/api/v1/inventory/events?size=1")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(header().exists("X-Next-After"));
+	}
+
+	/**
+	 * A Recipe the log doesn't have enough for is refused, and nothing is taken.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testPurchaseInsufficientInventory() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+					.content(TestUtils.asJsonString(50))).andExpect(status().isOk());
+		}
+
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isConflict());
+
+		Assertions.assertEquals(1, events.getQuantity("Coffee"));
+		Assertions.assertEquals(2, events.getQuantity("Milk"));
+	}
+
+	/**
+	 * Adding and restocking an Ingredient are only appended to the log, and its row is created by
+	 * the next snapshot.
+	 * 
+	 * @throws Exception from POST or PUT
+	 */
+	@Test
+	public void testAddAndRestockThroughLog() throws Exception {
+		mvc.perform(post("/api/v1/inventory/Sugar")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Sugar")).andExpect(status().isConflict());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Sugar", 5));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+
+		Assertions.assertEquals(6, events.getQuantity("Sugar"));
+		Assertions.assertNull(iService.getInventory().getIngredient("Sugar"),
+				"The row should only be created by the snapshot");
+
+		events.snapshot();
+		Assertions.assertEquals(6, iService.getInventory().getIngredient("Sugar").getQuantity());
+		Assertions.assertEquals(10, iService.getInventory().getIngredient("Coffee").getQuantity());
+	}
+
+	/**
+	 * Restocking can't take an Ingredient in the log over 1000; an amount that would is left out,
+	 * and the others are still added.
+	 * 
+	 * @throws Exception from PUT
+	 */
+	@Test
+	public void testRestockLimit() throws Exception {
+		final Inventory tooMuch = new Inventory();
+		tooMuch.addIngredient(new Ingredient("Coffee", 991));
+		tooMuch.addIngredient(new Ingredient("Milk", 5));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(tooMuch))).andExpect(status().isOk());
+
+		Assertions.assertEquals(10, events.getQuantity("Coffee"));
+		Assertions.assertEquals(10, events.getQuantity("Milk"));
+
+		final Inventory toTheLimit = new Inventory();
+		toTheLimit.addIngredient(new Ingredient("Coffee", 990));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(toTheLimit))).andExpect(status().isOk());
+
+		Assertions.assertEquals(1000, events.getQuantity("Coffee"));
+		Assertions.assertFalse(events.restock("Coffee", 1));
+	}
+
+	/**
+	 * Snapshots write the quantities onto the Ingredient rows, and earlier quantities can be worked
+	 * out from the log.
+	 * 
+	 * @throws Exception from POST or GET
+	 */
+	@Test
+	public void testSnapshotAndHistory() throws Exception {
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isOk());
+
+		events.snapshot();
+		Assertions.assertEquals(7, iService.getInventory().getIngredient("Coffee").getQuantity());
+
+		mvc.perform(get("/api/v1/inventory?at=" + restocked)).andExpect(status().isOk())
+				.andExpect(jsonPath("$.coffee").value(10)).andExpect(jsonPath("$.milk").value(5));
+	}
+}
@@ -1,5 +1,7 @@
 package edu.ncsu.csc.CoffeeMaker.api;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -157,4 +159,45 @@ public class APIInventoryTest {
 						.content(TestUtils.asJsonString(ingredient2)))
 				.andExpect(status().isConflict());
 	}
+
+	/**
+	 * The Inventory carries an ETag, and a client that already has the current Inventory gets 304
+	 * until the Inventory changes.
+	 * 
+	 * @throws Exception if GET or PUT fails
+	 */
+	@Test
+	@Transactional
+	public void testInventoryETag() throws Exception {
+		final String etag = mvc.perform(get("/api/v1/inventory")).andExpect(status().isOk())
+				.andExpect(header().exists("ETag")).andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(get("/api/v1/inventory").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 5));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+
+		mvc.perform(get("/api/v1/inventory").header("If-None-Match", etag))
+				.andExpect(status().isOk());
+	}
+
+	/**
+	 * The summary view lists the name and quantity of each Inventory Ingredient, and nothing else.
+	 * 
+	 * @throws Exception if GET fails
+	 */
+	@Test
+	@Transactional
+	public void testInventorySummary() throws Exception {
+		final int size = invService.getInventory().getIngredients().size();
+
+		mvc.perform(get("/api/v1/inventory?view=summary")).andExpect(status().isOk())
+				.andExpect(header().exists("ETag")).andExpect(jsonPath("$.length()").value(size))
+				.andExpect(jsonPath("$[0].name").exists())
+				.andExpect(jsonPath("$[0].quantity").exists())
+				.andExpect(jsonPath("$[0].version").doesNotExist());
+	}
 }
@@ -0,0 +1,168 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryLedger;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests reading the Inventory when changes are written to the database later
+ * (`coffeemaker.inventory.mode=WRITE_BEHIND`). The ledger is never flushed on its own here, so the
+ * database stays behind for the whole test. Not transactional, as each order is committed as it is
+ * made.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = { "coffeemaker.inventory.mode=WRITE_BEHIND",
+		"coffeemaker.inventory.ledger.flush-interval-ms=600000",
+		"coffeemaker.inventory.ledger.flush-after=0",
+		"coffeemaker.inventory.ledger.max-staleness-ms=0" })
+@AutoConfigureMockMvc
+public class APIInventoryWriteBehindModeTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Inventory ledger under test.
+	 */
+	@Autowired
+	private InventoryLedger ledger;
+
+	/**
+	 * Sets up an Inventory of 10 coffee and 5 milk, and a Latte Recipe.
+	 *
+	 * @throws Exception if a request fails
+	 */
+	@BeforeEach
+	public void setup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Coffee")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Milk")).andExpect(status().isOk());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 9));
+		restock.addIngredient(new Ingredient("Milk", 4));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+
+		final Recipe latte = new Recipe();
+		latte.setName("Latte");
+		latte.setPrice(50);
+		latte.addIngredient(new Ingredient("Coffee", 3));
+		latte.addIngredient(new Ingredient("Milk", 1));
+		service.save(latte);
+	}
+
+	/**
+	 * Cleans up after the tests.
+	 *
+	 * @throws Exception if DELETE fails
+	 */
+	@AfterEach
+	public void cleanup() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+	}
+
+	/**
+	 * The Inventory is shown as the ledger has it, ahead of the database, and its ETag changes
+	 * when coffee is made even though the database hasn't.
+	 *
+	 * @throws Exception from GET or POST
+	 */
+	@Test
+	public void testInventoryAheadOfDatabase() throws Exception {
+		final String etag = mvc.perform(get("/api/v1/inventory")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.ingredients[?(@.name == 'coffee')].quantity",
+						Matchers.contains(10)))
+				.andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isOk());
+		Assertions.assertEquals(1, iService.getInventory().getIngredient("Coffee").getQuantity(),
+				"Neither the restock nor the order should have been written to the database yet");
+
+		final String changed = mvc.perform(get("/api/v1/inventory").header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.ingredients[?(@.name == 'coffee')].quantity",
+						Matchers.contains(7)))
+				.andExpect(jsonPath("$.ingredients[?(@.name == 'milk')].quantity",
+						Matchers.contains(4)))
+				.andReturn().getResponse().getHeader("ETag");
+		Assertions.assertNotEquals(etag, changed);
+
+		mvc.perform(get("/api/v1/inventory").header("If-None-Match", changed))
+				.andExpect(status().isNotModified());
+		mvc.perform(get("/api/v1/inventory").param("view", "summary"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[?(@.name == 'coffee')].quantity", Matchers.contains(7)));
+	}
+
+	/**
+	 * Restocking can't take an Ingredient in the ledger over 1000, the same limit as in the other
+	 * modes; an amount that would is left out, and the others are still added.
+	 *
+	 * @throws Exception from PUT or GET
+	 */
+	@Test
+	public void testRestockLimit() throws Exception {
+		final Inventory tooMuch = new Inventory();
+		tooMuch.addIngredient(new Ingredient("Coffee", 991));
+		tooMuch.addIngredient(new Ingredient("Milk", 5));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(tooMuch))).andExpect(status().isOk());
+
+		mvc.perform(get("/api/v1/inventory")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.ingredients[?(@.name == 'coffee')].quantity",
+						Matchers.contains(10)))
+				.andExpect(jsonPath("$.ingredients[?(@.name == 'milk')].quantity",
+						Matchers.contains(10)));
+
+		final Inventory toTheLimit = new Inventory();
+		toTheLimit.addIngredient(new Ingredient("Coffee", 990));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(toTheLimit))).andExpect(status().isOk());
+
+		Assertions.assertEquals(1000, ledger.getQuantity("Coffee"));
+		Assertions.assertFalse(ledger.addQuantity("Coffee", 1));
+	}
+}
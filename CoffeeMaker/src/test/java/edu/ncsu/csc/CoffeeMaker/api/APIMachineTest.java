@@ -0,0 +1,138 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.transaction.Transactional;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests the Inventories of separate coffee machines.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class APIMachineTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Sets up the tests.
+	 */
+	@BeforeEach
+	public void setup() {
+		final Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+		service.save(recipe);
+	}
+
+	/**
+	 * Each machine has an Inventory of its own, and coffee made on one machine only uses that
+	 * machine's Ingredients.
+	 *
+	 * @throws Exception from POST, PUT and GET
+	 */
+	@Test
+	@Transactional
+	public void testSeparateInventories() throws Exception {
+		mvc.perform(post("/api/v1/machines/1/inventory/Coffee")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/machines/2/inventory/Coffee")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/machines/1/inventory/Coffee"))
+				.andExpect(status().isConflict());
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 5));
+
+		mvc.perform(put("/api/v1/machines/1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+
+		mvc.perform(post("/api/v1/machines/1/makecoffee/Coffee")
+				.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(60)))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.message").value("10"));
+
+		mvc.perform(post("/api/v1/machines/2/makecoffee/Coffee")
+				.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(60)))
+				.andExpect(status().isConflict());
+
+		mvc.perform(get("/api/v1/machines/2/inventory")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.ingredients[0].quantity").value(1));
+
+		Assertions.assertEquals(3, iService.getInventory(1).getIngredient("coffee").getQuantity());
+		Assertions.assertEquals(1, iService.getInventory(2).getIngredient("coffee").getQuantity());
+	}
+
+	/**
+	 * Reading or ordering from a machine that has no Inventory doesn't create one.
+	 *
+	 * @throws Exception from GET and POST
+	 */
+	@Test
+	@Transactional
+	public void testMachineWithoutInventory() throws Exception {
+		final long machine = 7;
+
+		mvc.perform(get("/api/v1/machines/" + machine + "/inventory"))
+				.andExpect(status().isNotFound());
+		mvc.perform(post("/api/v1/machines/" + machine + "/makecoffee/Coffee")
+				.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(60)))
+				.andExpect(status().isConflict());
+		Assertions.assertNull(iService.findInventory(machine));
+
+		mvc.perform(post("/api/v1/machines/" + machine + "/inventory/Coffee"))
+				.andExpect(status().isOk());
+		mvc.perform(get("/api/v1/machines/" + machine + "/inventory")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.ingredients[0].name").value("coffee"));
+	}
+
+	/**
+	 * Machine 0 is the CoffeeMaker's own Inventory and isn't served here.
+	 *
+	 * @throws Exception from GET
+	 */
+	@Test
+	@Transactional
+	public void testDefaultMachine() throws Exception {
+		mvc.perform(get("/api/v1/machines/0/inventory")).andExpect(status().isNotFound());
+		mvc.perform(post("/api/v1/machines/0/makecoffee/Coffee")
+				.contentType(MediaType.APPLICATION_JSON).content(TestUtils.asJsonString(60)))
+				.andExpect(status().isNotFound());
+	}
+}
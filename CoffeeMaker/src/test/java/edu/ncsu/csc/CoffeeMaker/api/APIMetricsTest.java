@@ -0,0 +1,88 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Tests the metrics recorded for API, Service and Repository calls, and the scrape endpoint that
+ * publishes them.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "management.endpoints.web.exposure.include=prometheus")
+@AutoConfigureMockMvc
+public class APIMetricsTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Registry the metrics are recorded in.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Service and Repository calls are timed.
+	 * 
+	 * @throws Exception from GET
+	 */
+	@Test
+	public void testServiceCallsTimed() throws Exception {
+		mvc.perform(get("/api/v1/recipes")).andExpect(status().isOk());
+
+		Assertions.assertNotNull(registry.find("coffeemaker.service.calls")
+				.tags("class", "RecipeService", "method", "findAllFromDatabase", "outcome", "success")
+				.timer());
+		Assertions.assertNotNull(registry.find("coffeemaker.repository.calls")
+				.tags("class", "RecipeRepository", "outcome", "success").timer());
+	}
+
+	/**
+	 * A finder that comes back empty is recorded as a 404, and each call lands in the same timer.
+	 * 
+	 * @throws Exception from GET
+	 */
+	@Test
+	public void testNotFoundOutcome() throws Exception {
+		mvc.perform(get("/api/v1/recipes/no-such-recipe")).andExpect(status().isNotFound());
+		final Timer timer = registry.find("coffeemaker.service.calls")
+				.tags("class", "RecipeService", "method", "findByName", "outcome", "404").timer();
+		Assertions.assertNotNull(timer);
+		final long count = timer.count();
+
+		mvc.perform(get("/api/v1/recipes/no-such-recipe")).andExpect(status().isNotFound());
+		Assertions.assertEquals(count + 1, timer.count());
+	}
+
+	/**
+	 * The scrape endpoint publishes endpoint timings and the connection pool.
+	 * 
+	 * @throws Exception from GET
+	 */
+	@Test
+	public void testScrapeEndpoint() throws Exception {
+		mvc.perform(get("/api/v1/inventory")).andExpect(status().isOk());
+
+		mvc.perform(get("/actuator/prometheus")).andExpect(status().isOk())
+				.andExpect(content().string(Matchers.containsString("http_server_requests")))
+				.andExpect(content().string(Matchers.containsString("hikaricp_connections")))
+				.andExpect(content().string(Matchers.containsString("coffeemaker_service_calls")));
+	}
+}
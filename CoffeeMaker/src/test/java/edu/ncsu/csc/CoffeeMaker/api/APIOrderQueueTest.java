@@ -0,0 +1,133 @@
+package edu.ncsu.csc.CoffeeMaker.api;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests making coffee via POST requests when orders are queued and brewed in the background
+ * (`coffeemaker.orders.async=true`). The workers run outside of the test's transaction, so these
+ * tests aren't transactional and clean up after themselves in setup.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "coffeemaker.orders.async=true")
+@AutoConfigureMockMvc
+public class APIOrderQueueTest {
+
+	/**
+	 * Local MockMvc for POST, PUT, GET, DELETE requests.
+	 */
+	@Autowired
+	private MockMvc mvc;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService iService;
+
+	/**
+	 * Sets up the tests.
+	 */
+	@BeforeEach
+	public void setup() {
+		service.deleteAll();
+
+		final Inventory ivt = iService.getInventory();
+		ivt.clearInventory();
+		ivt.addIngredient(new Ingredient("Coffee", 15));
+		ivt.addIngredient(new Ingredient("Milk", 15));
+		iService.save(ivt);
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+		recipe.addIngredient(new Ingredient("Milk", 1));
+		service.save(recipe);
+	}
+
+	/**
+	 * Queued order is brewed and can be polled until it is done.
+	 * 
+	 * @throws Exception from POST or GET
+	 */
+	@Test
+	public void testQueuedOrder() throws Exception {
+		final String queued = mvc
+				.perform(post("/api/v1/makecoffee/Coffee").contentType(MediaType.APPLICATION_JSON)
+						.content(TestUtils.asJsonString(60)))
+				.andExpect(status().isAccepted()).andExpect(jsonPath("$.recipe").value("coffee"))
+				.andReturn().getResponse().getContentAsString();
+
+		final String id = new Gson().fromJson(queued, JsonObject.class).get("id").getAsString();
+
+		JsonObject order = null;
+
+		for (int i = 0; i < 100; i++) {
+			order = new Gson().fromJson(mvc.perform(get("/api/v1/orders/" + id))
+					.andExpect(status().isOk()).andReturn().getResponse().getContentAsString(),
+					JsonObject.class);
+
+			if ("DONE".equals(order.get("status").getAsString())) {
+				break;
+			}
+
+			Thread.sleep(50);
+		}
+
+		Assertions.assertEquals("DONE", order.get("status").getAsString());
+		Assertions.assertEquals(10, order.get("change").getAsInt());
+		Assertions.assertEquals(12, iService.getInventory().getIngredient("Coffee").getQuantity());
+	}
+
+	/**
+	 * Payment is checked before the order is queued.
+	 * 
+	 * @throws Exception from POST
+	 */
+	@Test
+	public void testNotEnoughMoney() throws Exception {
+		mvc.perform(post("/api/v1/makecoffee/Coffee").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(40))).andExpect(status().isConflict())
+				.andExpect(jsonPath("$.message").value("Not enough money paid"));
+	}
+
+	/**
+	 * Unknown orders are not found.
+	 * 
+	 * @throws Exception from GET
+	 */
+	@Test
+	public void testUnknownOrder() throws Exception {
+		mvc.perform(get("/api/v1/orders/nope")).andExpect(status().isNotFound());
+	}
+}
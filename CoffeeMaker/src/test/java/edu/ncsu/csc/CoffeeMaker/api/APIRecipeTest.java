@@ -1,5 +1,7 @@
 package edu.ncsu.csc.CoffeeMaker.api;
 
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
@@ -13,11 +15,15 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 
 import edu.ncsu.csc.CoffeeMaker.common.TestUtils;
 import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
 import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.repositories.RecipeRepository;
 import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
 
 /**
@@ -34,6 +40,13 @@ public class APIRecipeTest {
 	@Autowired
 	private RecipeService service;
 
+	/**
+	 * RecipeRepository, for writing Recipes the way another CoffeeMaker sharing the database would:
+	 * without this one's RecipeService knowing.
+	 */
+	@Autowired
+	private RecipeRepository recipeRepository;
+
 	/**
 	 * Local MockMvc for POST, PUT, GET, DELETE requests.
 	 */
@@ -251,4 +264,193 @@ public class APIRecipeTest {
 			Assertions.fail("Deleting a non-existent Recipe returned unexpected status");
 		}
 	}
+
+	/**
+	 * Recipe listings carry an ETag, and a client that already has the current Recipes gets 304
+	 * until a Recipe changes.
+	 * 
+	 * @throws Exception if GET or POST fails
+	 */
+	@Test
+	@Transactional
+	public void testRecipesETag() throws Exception {
+		service.deleteAll();
+
+		final String etag = mvc.perform(get("/api/v1/recipes")).andExpect(status().isOk())
+				.andExpect(header().exists("ETag")).andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(get("/api/v1/recipes").header("If-None-Match", etag))
+				.andExpect(status().isNotModified()).andExpect(header().string("ETag", etag));
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Latte");
+		recipe.setPrice(40);
+		recipe.addIngredient(new Ingredient("Milk", 3));
+		mvc.perform(post("/api/v1/recipes").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(recipe))).andExpect(status().isOk());
+
+		final String changed = mvc.perform(get("/api/v1/recipes").header("If-None-Match", etag))
+				.andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+		Assertions.assertNotEquals(etag, changed, "Writing a Recipe should change the ETag");
+	}
+
+	/**
+	 * The Recipes' ETag comes from the data, so a Recipe written by another CoffeeMaker sharing the
+	 * database changes it too, and the new Recipe is in the response.
+	 * 
+	 * @throws Exception if GET fails
+	 */
+	@Test
+	@Transactional
+	public void testRecipesETagOtherInstance() throws Exception {
+		service.deleteAll();
+
+		final String etag = mvc.perform(get("/api/v1/recipes")).andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Mocha");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Chocolate", 2));
+		recipeRepository.saveAndFlush(recipe);
+
+		final String changed = mvc.perform(get("/api/v1/recipes").header("If-None-Match", etag))
+				.andExpect(status().isOk()).andExpect(jsonPath("$[0].name").value("Mocha"))
+				.andReturn().getResponse().getHeader("ETag");
+		Assertions.assertNotEquals(etag, changed,
+				"A Recipe written behind the RecipeService's back should change the ETag");
+
+		mvc.perform(get("/api/v1/recipes").header("If-None-Match", changed))
+				.andExpect(status().isNotModified());
+	}
+
+	/**
+	 * Creating a Recipe whose name is taken is rejected by the database's unique
+	 * constraint. Not transactional, so that the failed insert doesn't poison the test's session.
+	 * 
+	 * @throws Exception if POST fails
+	 */
+	@Test
+	public void testDuplicateRecipeName() throws Exception {
+		service.deleteAll();
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Americano");
+		recipe.setPrice(30);
+		recipe.addIngredient(new Ingredient("Coffee", 2));
+		mvc.perform(post("/api/v1/recipes").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(recipe))).andExpect(status().isOk());
+
+		recipe.setName(" AMERICANO ");
+		mvc.perform(post("/api/v1/recipes").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(recipe))).andExpect(status().isConflict());
+
+		Assertions.assertEquals(1, service.findAll().size());
+		service.deleteAll();
+	}
+
+	/**
+	 * The summary view lists Recipe names and prices without their Ingredients, and has its own
+	 * ETag.
+	 * 
+	 * @throws Exception if GET fails
+	 */
+	@Test
+	@Transactional
+	public void testRecipeSummaries() throws Exception {
+		service.deleteAll();
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Mocha");
+		recipe.setPrice(45);
+		recipe.addIngredient(new Ingredient("Chocolate", 2));
+		service.save(recipe);
+
+		final String etag = mvc.perform(get("/api/v1/recipes?view=summary"))
+				.andExpect(status().isOk()).andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].name").value("mocha"))
+				.andExpect(jsonPath("$[0].price").value(45))
+				.andExpect(jsonPath("$[0].ingredients").doesNotExist()).andReturn().getResponse()
+				.getHeader("ETag");
+
+		mvc.perform(get("/api/v1/recipes").header("If-None-Match", etag))
+				.andExpect(status().isOk());
+		mvc.perform(get("/api/v1/recipes?view=summary").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+	}
+
+	/**
+	 * With the capacity set to 0 there is no limit on Recipes.
+	 * 
+	 * @throws Exception if POST fails
+	 */
+	@Test
+	@Transactional
+	public void testUnlimitedCapacity() throws Exception {
+		final RecipeService target = AopTestUtils.getTargetObject(service);
+		final Object capacity = ReflectionTestUtils.getField(target, "capacity");
+		ReflectionTestUtils.setField(target, "capacity", 0);
+
+		try {
+			service.deleteAll();
+
+			for (int n = 0; n < 5; n++) {
+				final Recipe recipe = new Recipe();
+				recipe.setName("Coffee " + n);
+				recipe.setPrice(10);
+				recipe.addIngredient(new Ingredient("Coffee", 1));
+				mvc.perform(post("/api/v1/recipes").contentType(MediaType.APPLICATION_JSON)
+						.content(TestUtils.asJsonString(recipe))).andExpect(status().isOk());
+			}
+
+			Assertions.assertEquals(5, service.count());
+		} finally {
+			ReflectionTestUtils.setField(target, "capacity", capacity);
+		}
+	}
+
+	/**
+	 * The available Recipes and their servings follow the Inventory as it is restocked and used
+	 * up. Not transactional, as changes are only picked up once they have been committed.
+	 * 
+	 * @throws Exception if a request fails
+	 */
+	@Test
+	public void testAvailableRecipes() throws Exception {
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Latte");
+		recipe.setPrice(50);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+		recipe.addIngredient(new Ingredient("Milk", 1));
+		mvc.perform(post("/api/v1/recipes").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(recipe))).andExpect(status().isOk());
+
+		mvc.perform(post("/api/v1/inventory/Coffee")).andExpect(status().isOk());
+		mvc.perform(post("/api/v1/inventory/Milk")).andExpect(status().isOk());
+		mvc.perform(get("/api/v1/recipes/available")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(0));
+
+		final Inventory restock = new Inventory();
+		restock.addIngredient(new Ingredient("Coffee", 2));
+		mvc.perform(put("/api/v1/inventory").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(restock))).andExpect(status().isOk());
+		mvc.perform(get("/api/v1/recipes/available")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(1))
+				.andExpect(jsonPath("$[0].name").value("latte"));
+		mvc.perform(get("/api/v1/recipes/servings")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.latte").value(1));
+
+		mvc.perform(post("/api/v1/makecoffee/Latte").contentType(MediaType.APPLICATION_JSON)
+				.content(TestUtils.asJsonString(50))).andExpect(status().isOk());
+		mvc.perform(get("/api/v1/recipes/available")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(0));
+		mvc.perform(get("/api/v1/recipes/servings")).andExpect(status().isOk())
+				.andExpect(jsonPath("$.latte").value(0));
+
+		service.deleteAll();
+		mvc.perform(delete("/api/v1/inventory")).andExpect(status().isOk());
+	}
 }
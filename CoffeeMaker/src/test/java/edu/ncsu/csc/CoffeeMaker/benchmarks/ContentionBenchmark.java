@@ -0,0 +1,168 @@
+package edu.ncsu.csc.CoffeeMaker.benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.IngredientLocks;
+
+/**
+ * Benchmark for orders made at the same time from several threads, comparing one lock for the
+ * whole Inventory (`global`, as with the Inventory entity) against per-Ingredient locks
+ * (`striped`, as in `STRIPED` mode). Each order takes its Recipe's locks the way StripedInventory
+ * does, checks and takes the Ingredients, and then spends `writeTokens` of CPU work holding the
+ * locks to stand in for the write to the database, before putting the Ingredients back.
+ *
+ * In the `disjoint` mix every thread makes a Recipe with Ingredients of its own, like tea and
+ * espresso; in the `overlapping` mix every Recipe also needs one shared Ingredient, so orders queue
+ * for it whichever locking is used. Striped locking should scale with the threads on the disjoint
+ * mix and match global locking on the overlapping one. Run with
+ * `mvn -P benchmark process-test-classes -Djmh.args="ContentionBenchmark"`; see the `benchmark`
+ * profile in pom.xml.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class ContentionBenchmark {
+
+	/**
+	 * `global` for a single lock, `striped` for per-Ingredient locks.
+	 */
+	@Param({ "global", "striped" })
+	public String locking;
+
+	/**
+	 * `disjoint` if no two threads' Recipes share an Ingredient, `overlapping` if they all share
+	 * one.
+	 */
+	@Param({ "disjoint", "overlapping" })
+	public String mix;
+
+	/**
+	 * CPU work done while holding the locks, standing in for the database write.
+	 */
+	@Param({ "100", "1000" })
+	public long writeTokens;
+
+	/**
+	 * Most threads the benchmark can be run with.
+	 */
+	private static final int MAX_THREADS = 64;
+
+	/**
+	 * The locks.
+	 */
+	private IngredientLocks locks;
+
+	/**
+	 * Quantity of each Ingredient, by dense ID. Each slot is only touched under its lock.
+	 */
+	private int[] stock;
+
+	/**
+	 * One Recipe for each thread.
+	 */
+	private CompiledRecipe[] recipes;
+
+	/**
+	 * Hands each thread its Recipe.
+	 */
+	private final AtomicInteger nextThread = new AtomicInteger();
+
+	/**
+	 * Builds the Recipes and the stock.
+	 */
+	@Setup
+	public void setup() {
+		locks = new IngredientLocks("global".equals(locking) ? 1 : 64);
+		recipes = new CompiledRecipe[MAX_THREADS];
+
+		for (int t = 0; t < MAX_THREADS; t++) {
+			final Recipe recipe = new Recipe();
+			recipe.setName("Contention" + t);
+			recipe.setPrice(50);
+			recipe.addIngredient(new Ingredient("Contention" + t + "a", 1));
+			recipe.addIngredient(new Ingredient("Contention" + t + "b", 2));
+
+			if ("overlapping".equals(mix)) {
+				recipe.addIngredient(new Ingredient("ContentionShared", 1));
+			}
+
+			recipes[t] = recipe.compile();
+		}
+
+		stock = new int[IngredientDictionary.size()];
+		Arrays.fill(stock, 1000);
+	}
+
+	/**
+	 * Which Recipe a thread makes.
+	 */
+	@State(Scope.Thread)
+	public static class Order {
+
+		/**
+		 * Index of this thread's Recipe.
+		 */
+		int index = -1;
+	}
+
+	/**
+	 * Makes the thread's Recipe under its locks, then puts the Ingredients back so that the stock
+	 * never runs out.
+	 *
+	 * @param order the thread's Recipe
+	 *
+	 * @return whether the Recipe was made
+	 */
+	@Benchmark
+	public boolean makeCoffee(final Order order) {
+		if (order.index < 0) {
+			order.index = nextThread.getAndIncrement() % MAX_THREADS;
+		}
+
+		final CompiledRecipe recipe = recipes[order.index];
+		final int[] held = locks.stripes(recipe);
+
+		locks.lock(held);
+
+		try {
+			if (!recipe.fits(stock)) {
+				return false;
+			}
+
+			recipe.deduct(stock);
+			Blackhole.consumeCPU(writeTokens);
+
+			for (int i = 0; i < recipe.size(); i++) {
+				stock[recipe.ingredient(i)] += recipe.quantity(i);
+			}
+
+			return true;
+		} finally {
+			locks.unlock(held);
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package edu.ncsu.csc.CoffeeMaker.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * Benchmarks for the Inventory operations used every time coffee is made or the Inventory is
+ * restocked. The Inventory and Recipe are plain objects, with no database involved.
+ * 
+ * The Recipe's Ingredients are spread evenly through the Inventory, so that lookups don't all hit
+ * the front of it. Run with `mvn -P benchmark process-test-classes`; see the `benchmark` profile
+ * in pom.xml.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InventoryBenchmark {
+
+	/**
+	 * Number of Ingredients in the Inventory.
+	 */
+	@Param({ "10", "100", "1000", "10000" })
+	public int inventorySize;
+
+	/**
+	 * Number of Ingredients in the Recipe.
+	 */
+	@Param({ "1", "4", "10" })
+	public int recipeSize;
+
+	/**
+	 * Inventory under test.
+	 */
+	private Inventory inventory;
+
+	/**
+	 * Recipe made from the Inventory.
+	 */
+	private Recipe recipe;
+
+	/**
+	 * Name of the Ingredient restocked by addQuantity, written in a different case from the stored
+	 * name as the API would pass it.
+	 */
+	private String restocked;
+
+	/**
+	 * Builds the Inventory and Recipe.
+	 */
+	@Setup
+	public void setup() {
+		inventory = new Inventory();
+
+		for (int i = 0; i < inventorySize; i++) {
+			inventory.addIngredient(new Ingredient("Ingredient" + i, 500));
+		}
+
+		recipe = new Recipe();
+		recipe.setName("Benchmark");
+		recipe.setPrice(50);
+
+		for (int i = 0; i < recipeSize; i++) {
+			recipe.addIngredient(new Ingredient("Ingredient" + (i * inventorySize / recipeSize), 1));
+		}
+
+		restocked = "INGREDIENT" + (inventorySize - 1);
+	}
+
+	/**
+	 * Checks whether the Recipe can be made.
+	 * 
+	 * @return whether there are enough Ingredients
+	 */
+	@Benchmark
+	public boolean enoughIngredients() {
+		return inventory.enoughIngredients(recipe);
+	}
+
+	/**
+	 * Makes the Recipe, then puts its Ingredients back so that the Inventory never runs out. The
+	 * put back costs one addQuantity per Recipe Ingredient, which addQuantity measures on its own.
+	 * 
+	 * @return whether the Recipe was made
+	 */
+	@Benchmark
+	public boolean useIngredients() {
+		final boolean made = inventory.useIngredients(recipe);
+
+		for (Ingredient ingredient : recipe.getIngredients()) {
+			inventory.addQuantity(ingredient.getName(), ingredient.getQuantity());
+		}
+
+		return made;
+	}
+
+	/**
+	 * Restocks one Ingredient, then takes the stock back out so that it never reaches the
+	 * Ingredient's maximum.
+	 * 
+	 * @return whether the Ingredient was restocked
+	 */
+	@Benchmark
+	public boolean addQuantity() {
+		final boolean added = inventory.addQuantity(restocked, 1);
+
+		inventory.useIngredient(restocked, 1);
+
+		return added;
+	}
+}
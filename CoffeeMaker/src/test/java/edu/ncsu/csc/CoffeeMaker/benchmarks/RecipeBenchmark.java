@@ -0,0 +1,99 @@
+package edu.ncsu.csc.CoffeeMaker.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * Benchmarks for the Recipe operations used when Recipes are compared and edited. Run with
+ * `mvn -P benchmark process-test-classes`; see the `benchmark` profile in pom.xml.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecipeBenchmark {
+
+	/**
+	 * Number of Ingredients in the Recipe.
+	 */
+	@Param({ "1", "4", "10", "100" })
+	public int recipeSize;
+
+	/**
+	 * Recipe under test.
+	 */
+	private Recipe recipe;
+
+	/**
+	 * Separately built Recipe equal to the one under test.
+	 */
+	private Recipe copy;
+
+	/**
+	 * Name of the last Ingredient in the Recipe, written in a different case from the stored name.
+	 */
+	private String last;
+
+	/**
+	 * Builds the Recipes.
+	 */
+	@Setup
+	public void setup() {
+		recipe = build();
+		copy = build();
+		last = "INGREDIENT" + (recipeSize - 1);
+	}
+
+	/**
+	 * Builds a Recipe with recipeSize Ingredients.
+	 * 
+	 * @return the Recipe
+	 */
+	private Recipe build() {
+		final Recipe built = new Recipe();
+		built.setName("Benchmark");
+		built.setPrice(50);
+
+		for (int i = 0; i < recipeSize; i++) {
+			built.addIngredient(new Ingredient("Ingredient" + i, 1 + i % 10));
+		}
+
+		return built;
+	}
+
+	/**
+	 * Compares two equal Recipes.
+	 * 
+	 * @return whether the Recipes are equal
+	 */
+	@Benchmark
+	public boolean equalRecipes() {
+		return recipe.equals(copy);
+	}
+
+	/**
+	 * Looks up the Recipe's last Ingredient.
+	 * 
+	 * @return the Ingredient
+	 */
+	@Benchmark
+	public Ingredient getIngredient() {
+		return recipe.getIngredient(last);
+	}
+}
@@ -0,0 +1,162 @@
+package edu.ncsu.csc.CoffeeMaker.benchmarks;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edu.ncsu.csc.CoffeeMaker.services.DatabasePermits;
+import edu.ncsu.csc.CoffeeMaker.services.VirtualThreads;
+
+/**
+ * Benchmark for a burst of `concurrency` requests arriving at once, handled either on a pool of
+ * 200 platform threads (`platform`, as Tomcat's `server.tomcat.threads.max` does) or on a virtual
+ * thread each (`virtual`, as with `coffeemaker.threads.virtual`). Each request waits `blockMs` for
+ * a response it doesn't need a database connection for, then holds one of 10 DatabasePermits (the
+ * size of the connection pool) for `dbMs` to stand in for its transaction.
+ *
+ * Measures the time to answer the whole burst. Platform threads should be held up by the waits
+ * once there are more requests than threads; virtual threads should only queue for the database.
+ * The `virtual` runs need Java 21 or later. Run with
+ * `mvn -P benchmark process-test-classes -Djmh.args="ThreadsBenchmark"`; see the `benchmark`
+ * profile in pom.xml.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ThreadsBenchmark {
+
+	/**
+	 * `platform` for Tomcat's thread pool, `virtual` for a virtual thread per request.
+	 */
+	@Param({ "platform", "virtual" })
+	public String threads;
+
+	/**
+	 * Requests in the burst.
+	 */
+	@Param({ "1000", "10000" })
+	public int concurrency;
+
+	/**
+	 * Milliseconds each request waits before using the database.
+	 */
+	@Param({ "5" })
+	public long blockMs;
+
+	/**
+	 * Milliseconds each request holds a database permit.
+	 */
+	@Param({ "0", "1" })
+	public long dbMs;
+
+	/**
+	 * Platform threads in the pool, as `server.tomcat.threads.max`.
+	 */
+	private static final int POOL_SIZE = 200;
+
+	/**
+	 * Database permits, as `spring.datasource.hikari.maximum-pool-size`.
+	 */
+	private static final int DB_PERMITS = 10;
+
+	/**
+	 * The pool of platform threads, or null for virtual threads.
+	 */
+	private ExecutorService pool;
+
+	/**
+	 * Runs each request.
+	 */
+	private Executor executor;
+
+	/**
+	 * The database permits.
+	 */
+	private DatabasePermits permits;
+
+	/**
+	 * Starts the threads.
+	 */
+	@Setup
+	public void setup() {
+		permits = new DatabasePermits(DB_PERMITS, 60000);
+
+		if ("platform".equals(threads)) {
+			pool = Executors.newFixedThreadPool(POOL_SIZE);
+			executor = pool;
+			return;
+		}
+
+		final ThreadFactory virtual = VirtualThreads.factory("benchmark-");
+
+		if (virtual == null) {
+			throw new IllegalStateException("Virtual threads need Java 21 or later");
+		}
+
+		executor = command -> virtual.newThread(command).start();
+	}
+
+	/**
+	 * Stops the platform threads.
+	 */
+	@TearDown
+	public void teardown() {
+		if (pool != null) {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Answers a burst of requests.
+	 *
+	 * @return requests answered
+	 *
+	 * @throws InterruptedException if interrupted while waiting for the burst
+	 */
+	@Benchmark
+	public long handleBurst() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(concurrency);
+
+		for (int i = 0; i < concurrency; i++) {
+			executor.execute(() -> {
+				try {
+					Thread.sleep(blockMs);
+					permits.enter();
+
+					try {
+						Thread.sleep(dbMs);
+					} finally {
+						permits.exit();
+					}
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					done.countDown();
+				}
+			});
+		}
+
+		done.await();
+
+		return concurrency - done.getCount();
+	}
+}
@@ -0,0 +1,476 @@
+package edu.ncsu.csc.CoffeeMaker.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import edu.ncsu.csc.CoffeeMaker.CoffeeMakerApplication;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Load generator for the REST API. Starts the CoffeeMaker against an in-memory H2 database on a
+ * random port, fills it with a few Recipes and a stocked Inventory, then has many concurrent
+ * clients send a weighted mix of requests for a fixed time. At the end it prints, per endpoint, the
+ * throughput, the p50/p99/p999/max latency, and how many requests were rejected (4xx) or failed
+ * (5xx or no response).
+ * 
+ * Run it from the CoffeeMaker directory with
+ * 
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=edu.ncsu.csc.CoffeeMaker.load.LoadGenerator \
+ *     -Dload.clients=64 -Dload.duration=60
+ * </pre>
+ * 
+ * and raise load.clients between runs until throughput stops growing; that is the saturation
+ * point. Settings, all optional, are system properties:
+ * 
+ * <ul>
+ * <li>load.clients: number of concurrent clients (default 32)</li>
+ * <li>load.warmup: seconds to run before measuring (default 10)</li>
+ * <li>load.duration: seconds to measure (default 30)</li>
+ * <li>load.mix: relative weights of the endpoints (default
+ * "recipes=30,inventory=30,restock=10,makecoffee=30")</li>
+ * </ul>
+ * 
+ * Program arguments are passed on to the CoffeeMaker, so for example
+ * `--coffeemaker.inventory.mode=LEDGER` load tests the in-memory ledger. SQL mode uses MySQL-only
+ * SQL, so it can't be load tested against H2.
+ */
+public class LoadGenerator {
+
+	/**
+	 * Endpoints the clients call, in the order they are reported.
+	 */
+	private enum Endpoint {
+		/** GET /api/v1/recipes */
+		RECIPES("recipes", "GET /recipes"),
+		/** GET /api/v1/inventory */
+		INVENTORY("inventory", "GET /inventory"),
+		/** PUT /api/v1/inventory */
+		RESTOCK("restock", "PUT /inventory"),
+		/** POST /api/v1/makecoffee/{name} */
+		MAKECOFFEE("makecoffee", "POST /makecoffee/{name}");
+
+		/**
+		 * Name of the endpoint in load.mix.
+		 */
+		private final String key;
+
+		/**
+		 * Name of the endpoint in the report.
+		 */
+		private final String label;
+
+		/**
+		 * Creates an Endpoint.
+		 * 
+		 * @param key   Name of the endpoint in load.mix
+		 * @param label Name of the endpoint in the report
+		 */
+		Endpoint(final String key, final String label) {
+			this.key = key;
+			this.label = label;
+		}
+	}
+
+	/**
+	 * Recipes the clients order, all made from the same four Ingredients.
+	 */
+	private static final String[] RECIPES = { "Coffee", "Latte", "Mocha" };
+
+	/**
+	 * Ingredients in the Inventory.
+	 */
+	private static final String[] INGREDIENTS = { "coffee", "milk", "sugar", "chocolate" };
+
+	/**
+	 * Amount of each Ingredient taken by orders since the last restock. Restocks put back exactly
+	 * this, so no Ingredient is ever pushed past the 1000 an Ingredient can hold.
+	 */
+	private static final AtomicIntegerArray CONSUMED = new AtomicIntegerArray(INGREDIENTS.length);
+
+	/**
+	 * Latencies and outcomes seen by one client for one endpoint. Each client has its own, so no
+	 * synchronization is needed until the clients have finished.
+	 */
+	private static class Samples {
+
+		/**
+		 * Latencies in nanoseconds; only the first count are used.
+		 */
+		private long[] latencies = new long[1024];
+
+		/**
+		 * Number of measured requests.
+		 */
+		private int count;
+
+		/**
+		 * Number of requests answered with a 4xx status.
+		 */
+		private long rejected;
+
+		/**
+		 * Number of requests answered with a 5xx status or not answered at all.
+		 */
+		private long failed;
+
+		/**
+		 * Records one request.
+		 * 
+		 * @param latency Time the request took, in nanoseconds
+		 * @param status  HTTP status, or 0 if there was no response
+		 */
+		void record(final long latency, final int status) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, count * 2);
+			}
+
+			latencies[count++] = latency;
+
+			if (status == 0 || status >= 500) {
+				failed++;
+			} else if (status >= 400) {
+				rejected++;
+			}
+		}
+
+		/**
+		 * Adds another client's samples to these.
+		 * 
+		 * @param other The other client's samples
+		 */
+		void merge(final Samples other) {
+			latencies = Arrays.copyOf(latencies, count + other.count);
+			System.arraycopy(other.latencies, 0, latencies, count, other.count);
+			count += other.count;
+			rejected += other.rejected;
+			failed += other.failed;
+		}
+
+		/**
+		 * Returns a percentile of the latencies. The latencies must have been sorted.
+		 * 
+		 * @param percentile Percentile between 0 and 100
+		 * 
+		 * @return latency in milliseconds
+		 */
+		double percentile(final double percentile) {
+			if (count == 0) {
+				return 0;
+			}
+
+			final int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+
+			return latencies[Math.max(0, Math.min(count - 1, rank))] / 1e6;
+		}
+	}
+
+	/**
+	 * Runs the load test.
+	 * 
+	 * @param args Arguments for the CoffeeMaker
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the clients
+	 */
+	public static void main(final String[] args) throws InterruptedException {
+		final int clients = Integer.getInteger("load.clients", 32);
+		final long warmupNanos = Duration.ofSeconds(Integer.getInteger("load.warmup", 10)).toNanos();
+		final long durationNanos = Duration.ofSeconds(Integer.getInteger("load.duration", 30))
+				.toNanos();
+		final Endpoint[] mix = parseMix(
+				System.getProperty("load.mix", "recipes=30,inventory=30,restock=10,makecoffee=30"));
+
+		final List<String> appArgs = new ArrayList<>(Arrays.asList(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:coffeemaker;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"--spring.datasource.driver-class-name=org.h2.Driver",
+				"--spring.datasource.username=sa", "--spring.datasource.password=",
+				"--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+				"--spring.jpa.hibernate.ddl-auto=create-drop", "--spring.flyway.enabled=false",
+				"--spring.jpa.show-sql=false",
+				"--spring.devtools.restart.enabled=false"));
+		appArgs.addAll(Arrays.asList(args));
+
+		final ConfigurableApplicationContext context = SpringApplication
+				.run(CoffeeMakerApplication.class, appArgs.toArray(new String[0]));
+
+		try {
+			seed(context);
+
+			final String base = "http://localhost:"
+					+ context.getEnvironment().getProperty("local.server.port") + "/api/v1";
+			final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+					.connectTimeout(Duration.ofSeconds(5)).build();
+
+			final Samples[][] samples = new Samples[clients][];
+			final Thread[] threads = new Thread[clients];
+			final long start = System.nanoTime();
+			final long measureFrom = start + warmupNanos;
+			final long end = measureFrom + durationNanos;
+
+			for (int i = 0; i < clients; i++) {
+				final Samples[] mine = new Samples[Endpoint.values().length];
+
+				for (int e = 0; e < mine.length; e++) {
+					mine[e] = new Samples();
+				}
+
+				samples[i] = mine;
+				threads[i] = new Thread(() -> drive(http, base, mix, measureFrom, end, mine),
+						"load-client-" + i);
+				threads[i].start();
+			}
+
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			report(clients, durationNanos, samples);
+		} finally {
+			context.close();
+		}
+	}
+
+	/**
+	 * Parses load.mix into a table to draw endpoints from: each endpoint appears as many times as
+	 * its weight.
+	 * 
+	 * @param mix Comma-separated endpoint=weight pairs
+	 * 
+	 * @return endpoints, repeated by weight
+	 */
+	private static Endpoint[] parseMix(final String mix) {
+		final List<Endpoint> table = new ArrayList<>();
+
+		for (String pair : mix.split(",")) {
+			final String[] parts = pair.trim().split("=");
+			Endpoint endpoint = null;
+
+			for (Endpoint candidate : Endpoint.values()) {
+				if (candidate.key.equals(parts[0].trim())) {
+					endpoint = candidate;
+				}
+			}
+
+			if (endpoint == null || parts.length != 2) {
+				throw new IllegalArgumentException("Invalid load.mix entry: " + pair);
+			}
+
+			for (int i = Integer.parseInt(parts[1].trim()); i > 0; i--) {
+				table.add(endpoint);
+			}
+		}
+
+		if (table.isEmpty()) {
+			throw new IllegalArgumentException("load.mix has no weights");
+		}
+
+		return table.toArray(new Endpoint[0]);
+	}
+
+	/**
+	 * Stocks the Inventory and creates the Recipes the clients order.
+	 * 
+	 * @param context The running CoffeeMaker
+	 */
+	private static void seed(final ConfigurableApplicationContext context) {
+		final InventoryService inventoryService = context.getBean(InventoryService.class);
+		final RecipeService recipeService = context.getBean(RecipeService.class);
+
+		final Inventory inventory = inventoryService.getInventory();
+
+		for (String ingredient : INGREDIENTS) {
+			inventory.addIngredient(new Ingredient(ingredient, 500));
+		}
+
+		inventoryService.save(inventory);
+
+		for (int i = 0; i < RECIPES.length; i++) {
+			final Recipe recipe = new Recipe();
+			recipe.setName(RECIPES[i]);
+			recipe.setPrice(50);
+
+			for (int j = 0; j <= i; j++) {
+				recipe.addIngredient(new Ingredient(INGREDIENTS[j], 1));
+			}
+
+			recipeService.save(recipe);
+		}
+	}
+
+	/**
+	 * Sends requests from one client until the test ends.
+	 * 
+	 * @param http        HTTP client
+	 * @param base        Base URL of the API
+	 * @param mix         Endpoints to draw from
+	 * @param measureFrom When warmup ends, from System.nanoTime()
+	 * @param end         When the test ends, from System.nanoTime()
+	 * @param samples     Where to record this client's requests, by endpoint
+	 */
+	private static void drive(final HttpClient http, final String base, final Endpoint[] mix,
+			final long measureFrom, final long end, final Samples[] samples) {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+		for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+			final Endpoint endpoint = mix[random.nextInt(mix.length)];
+			final int recipe = random.nextInt(RECIPES.length);
+			final int[] restock = endpoint == Endpoint.RESTOCK ? takeConsumed() : null;
+			final HttpRequest request = request(base, endpoint, recipe, restock);
+
+			int status;
+			final long sent = System.nanoTime();
+
+			try {
+				status = http.send(request, BodyHandlers.discarding()).statusCode();
+			} catch (final IOException e) {
+				status = 0;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+
+			final long received = System.nanoTime();
+
+			if (endpoint == Endpoint.MAKECOFFEE && status == 200) {
+				// Recipe i takes one each of the first i + 1 Ingredients. Queued orders (202) are
+				// not counted: putting back too little only makes later orders 409, too much fails
+				for (int i = 0; i <= recipe; i++) {
+					CONSUMED.incrementAndGet(i);
+				}
+			} else if (restock != null && status != 200) {
+				// Not put back, so the next restock has to
+				for (int i = 0; i < restock.length; i++) {
+					CONSUMED.addAndGet(i, restock[i]);
+				}
+			}
+
+			if (sent >= measureFrom && received <= end) {
+				samples[endpoint.ordinal()].record(received - sent, status);
+			}
+		}
+	}
+
+	/**
+	 * Takes the amounts consumed since the last restock, for the next restock to put back.
+	 * 
+	 * @return amount of each Ingredient to add
+	 */
+	private static int[] takeConsumed() {
+		final int[] amounts = new int[INGREDIENTS.length];
+
+		for (int i = 0; i < amounts.length; i++) {
+			amounts[i] = CONSUMED.getAndSet(i, 0);
+		}
+
+		return amounts;
+	}
+
+	/**
+	 * Builds the next request for an endpoint.
+	 * 
+	 * @param base     Base URL of the API
+	 * @param endpoint Endpoint to call
+	 * @param recipe   Index of the Recipe to order, for makecoffee
+	 * @param restock  Amount of each Ingredient to add, for restock
+	 * 
+	 * @return the request
+	 */
+	private static HttpRequest request(final String base, final Endpoint endpoint,
+			final int recipe, final int[] restock) {
+		final HttpRequest.Builder builder = HttpRequest.newBuilder().timeout(Duration.ofSeconds(30))
+				.header("Content-Type", "application/json");
+
+		switch (endpoint) {
+			case RECIPES:
+				return builder.uri(URI.create(base + "/recipes")).GET().build();
+			case INVENTORY:
+				return builder.uri(URI.create(base + "/inventory")).GET().build();
+			case RESTOCK:
+				// Puts back what the orders since the last restock have taken out
+				final StringBuilder body = new StringBuilder("{\"ingredients\":[");
+				String separator = "";
+
+				for (int i = 0; i < INGREDIENTS.length; i++) {
+					// Quantities must be positive, so Ingredients nobody has used are left out
+					if (restock[i] > 0) {
+						body.append(separator).append("{\"name\":\"").append(INGREDIENTS[i])
+								.append("\",\"quantity\":").append(restock[i]).append('}');
+						separator = ",";
+					}
+				}
+
+				return builder.uri(URI.create(base + "/inventory"))
+						.PUT(BodyPublishers.ofString(body.append("]}").toString())).build();
+			default:
+				return builder.uri(URI.create(base + "/makecoffee/" + RECIPES[recipe]))
+						.POST(BodyPublishers.ofString("60")).build();
+		}
+	}
+
+	/**
+	 * Prints throughput, latency percentiles and error counts for each endpoint and overall.
+	 * 
+	 * @param clients       Number of clients
+	 * @param durationNanos Length of the measured part of the test
+	 * @param samples       Samples recorded by each client, by endpoint
+	 */
+	private static void report(final int clients, final long durationNanos,
+			final Samples[][] samples) {
+		final double seconds = durationNanos / 1e9;
+		final Samples total = new Samples();
+
+		System.out.printf("%nCoffeeMaker load test: %d clients, %.0f s measured%n", clients,
+				seconds);
+		System.out.printf("%-24s %9s %10s %9s %9s %9s %9s %8s %8s%n", "endpoint", "requests",
+				"req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "4xx", "errors");
+
+		for (Endpoint endpoint : Endpoint.values()) {
+			final Samples merged = new Samples();
+
+			for (Samples[] client : samples) {
+				merged.merge(client[endpoint.ordinal()]);
+			}
+
+			total.merge(merged);
+			print(endpoint.label, merged, seconds);
+		}
+
+		print("total", total, seconds);
+	}
+
+	/**
+	 * Prints one line of the report.
+	 * 
+	 * @param label   Name of the line
+	 * @param samples Samples to summarize; sorted in place
+	 * @param seconds Length of the measured part of the test
+	 */
+	private static void print(final String label, final Samples samples, final double seconds) {
+		Arrays.sort(samples.latencies, 0, samples.count);
+
+		System.out.printf("%-24s %9d %10.1f %9.2f %9.2f %9.2f %9.2f %8d %8d%n", label,
+				samples.count, samples.count / seconds, samples.percentile(50),
+				samples.percentile(99), samples.percentile(99.9), samples.percentile(100),
+				samples.rejected, samples.failed);
+	}
+}
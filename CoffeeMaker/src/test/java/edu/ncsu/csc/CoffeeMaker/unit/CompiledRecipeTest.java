@@ -0,0 +1,161 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+
+/**
+ * Tests CompiledRecipe.java and IngredientDictionary.java
+ */
+public class CompiledRecipeTest {
+
+	/**
+	 * Creates a Recipe with the provided Ingredients.
+	 * 
+	 * @param ingredients Ingredients for the Recipe
+	 * 
+	 * @return the Recipe
+	 */
+	private static Recipe recipe(final Ingredient... ingredients) {
+		final Recipe recipe = new Recipe();
+		recipe.setName("Compiled");
+		recipe.setPrice(10);
+
+		for (Ingredient ingredient : ingredients) {
+			recipe.addIngredient(ingredient);
+		}
+
+		return recipe;
+	}
+
+	/**
+	 * Names get one dense ID each, which never changes.
+	 */
+	@Test
+	public void testDictionary() {
+		final int coffee = IngredientDictionary.idOf("coffee");
+
+		Assertions.assertEquals(coffee, IngredientDictionary.idOf("coffee"));
+		Assertions.assertEquals(coffee, IngredientDictionary.find("coffee"));
+		Assertions.assertNotEquals(coffee, IngredientDictionary.idOf("oat milk"));
+		Assertions.assertTrue(IngredientDictionary.size() > IngredientDictionary.find("oat milk"));
+		Assertions.assertEquals(-1, IngredientDictionary.find("never used in a recipe"));
+	}
+
+	/**
+	 * Compiled Ingredients are sorted by ID, and Ingredients listed twice are combined.
+	 */
+	@Test
+	public void testCompile() {
+		final CompiledRecipe compiled = recipe(new Ingredient("Sugar", 2), new Ingredient("Milk", 3),
+				new Ingredient("Sugar", 1)).compile();
+
+		Assertions.assertEquals(2, compiled.size());
+		Assertions.assertTrue(compiled.ingredient(0) < compiled.ingredient(1));
+
+		final int sugar = compiled.ingredient(0) == IngredientDictionary.find("sugar") ? 0 : 1;
+		Assertions.assertEquals(3, compiled.quantity(sugar));
+		Assertions.assertEquals(3, compiled.quantity(1 - sugar));
+	}
+
+	/**
+	 * A compiled Recipe fits a stock with enough of everything, and deducting takes it out.
+	 */
+	@Test
+	public void testFitsAndDeduct() {
+		final CompiledRecipe compiled = recipe(new Ingredient("Coffee", 2)).compile();
+		final int[] stock = new int[IngredientDictionary.size()];
+		stock[IngredientDictionary.find("coffee")] = 3;
+
+		Assertions.assertTrue(compiled.fits(stock));
+		compiled.deduct(stock);
+		Assertions.assertEquals(1, stock[IngredientDictionary.find("coffee")]);
+		Assertions.assertFalse(compiled.fits(stock));
+		Assertions.assertFalse(compiled.fits(new int[0]), "Missing Ingredients never fit");
+	}
+
+	/**
+	 * Servings are limited by the scarcest Ingredient, and missing Ingredients allow none.
+	 */
+	@Test
+	public void testServings() {
+		final CompiledRecipe compiled = recipe(new Ingredient("Coffee", 2), new Ingredient("Milk", 3))
+				.compile();
+		final int[] stock = new int[IngredientDictionary.size()];
+		stock[IngredientDictionary.find("coffee")] = 9;
+		stock[IngredientDictionary.find("milk")] = 7;
+
+		Assertions.assertEquals(2, compiled.servings(stock));
+
+		stock[IngredientDictionary.find("milk")] = -1;
+		Assertions.assertEquals(0, compiled.servings(stock));
+		Assertions.assertEquals(0, compiled.servings(new int[0]));
+		Assertions.assertEquals(Integer.MAX_VALUE, recipe().compile().servings(stock));
+	}
+
+	/**
+	 * Recompiles when Ingredients are added or removed, and not otherwise.
+	 */
+	@Test
+	public void testRecompile() {
+		final Ingredient milk = new Ingredient("Milk", 1);
+		final Recipe recipe = recipe(new Ingredient("Coffee", 1), milk);
+		final CompiledRecipe compiled = recipe.compile();
+
+		Assertions.assertSame(compiled, recipe.compile());
+
+		recipe.removeIngredient(milk);
+		Assertions.assertEquals(1, recipe.compile().size());
+
+		recipe.getIngredients().add(new Ingredient("Chocolate", 1));
+		Assertions.assertEquals(2, recipe.compile().size());
+	}
+
+	/**
+	 * Recompiles when an Ingredient's quantity changes or an Ingredient is swapped for another,
+	 * which leave the number of Ingredients as it was.
+	 */
+	@Test
+	public void testRecompileInPlace() {
+		final Recipe recipe = recipe(new Ingredient("Coffee", 1), new Ingredient("Milk", 1));
+		final CompiledRecipe compiled = recipe.compile();
+		final int coffee = compiled.ingredient(0) == IngredientDictionary.find("coffee") ? 0 : 1;
+
+		recipe.getIngredients().get(0).setQuantity(4);
+		Assertions.assertNotSame(compiled, recipe.compile());
+		Assertions.assertEquals(4, recipe.compile().quantity(coffee));
+
+		recipe.getIngredients().set(1, new Ingredient("Cinnamon", 2));
+		final int[] stock = new int[IngredientDictionary.idOf("cinnamon") + 1];
+		stock[IngredientDictionary.find("coffee")] = 4;
+		stock[IngredientDictionary.find("milk")] = 2;
+		Assertions.assertFalse(recipe.compile().fits(stock), "Milk was swapped for cinnamon");
+
+		stock[IngredientDictionary.find("cinnamon")] = 2;
+		Assertions.assertTrue(recipe.compile().fits(stock));
+	}
+
+	/**
+	 * Inventories check and take compiled Recipes, including Ingredients added after the Recipe
+	 * was compiled.
+	 */
+	@Test
+	public void testInventory() {
+		final Recipe recipe = recipe(new Ingredient("Coffee", 2), new Ingredient("Cardamom", 1));
+		recipe.compile();
+
+		final Inventory inventory = new Inventory();
+		inventory.addIngredient(new Ingredient("Coffee", 5));
+		Assertions.assertFalse(inventory.enoughIngredients(recipe));
+
+		inventory.addIngredient(new Ingredient("Cardamom", 2));
+		Assertions.assertTrue(inventory.useIngredients(recipe));
+		Assertions.assertEquals(3, inventory.getIngredient("coffee").getQuantity());
+		Assertions.assertEquals(1, inventory.getIngredient("cardamom").getQuantity());
+	}
+}
@@ -0,0 +1,122 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.TransientDataAccessResourceException;
+
+import edu.ncsu.csc.CoffeeMaker.services.DatabasePermits;
+
+/**
+ * Tests DatabasePermits.java
+ */
+public class DatabasePermitsTest {
+
+	/**
+	 * A thread already holding a permit doesn't need another for a nested call, and gives its
+	 * permit back only when it leaves the outermost one.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testNested() throws InterruptedException {
+		final DatabasePermits permits = new DatabasePermits(1, 100);
+
+		permits.enter();
+		permits.enter();
+		Assertions.assertEquals(0, permits.getAvailable());
+
+		permits.exit();
+		Assertions.assertEquals(0, permits.getAvailable());
+
+		permits.exit();
+		Assertions.assertEquals(1, permits.getAvailable());
+	}
+
+	/**
+	 * Another thread waits for a permit, and fails if none comes free in time.
+	 *
+	 * @throws Exception if interrupted while waiting
+	 */
+	@Test
+	public void testLimit() throws Exception {
+		final DatabasePermits permits = new DatabasePermits(1, 100);
+
+		permits.enter();
+
+		try {
+			Assertions.assertFalse(enterElsewhere(permits), "A second thread must wait");
+		} finally {
+			permits.exit();
+		}
+
+		Assertions.assertTrue(enterElsewhere(permits), "The permit must come free");
+		Assertions.assertEquals(1, permits.getAvailable());
+	}
+
+	/**
+	 * Work run without a permit gets through while another thread holds the only one, Service
+	 * calls inside it included, and leaves the permits as they were.
+	 *
+	 * @throws Exception if interrupted while waiting
+	 */
+	@Test
+	public void testRunWithoutPermit() throws Exception {
+		final DatabasePermits permits = new DatabasePermits(1, 100);
+
+		permits.enter();
+
+		try {
+			final boolean ran = CompletableFuture.supplyAsync(() -> {
+				final boolean[] entered = new boolean[1];
+
+				permits.runWithoutPermit(() -> {
+					try {
+						permits.enter();
+						entered[0] = true;
+						permits.exit();
+					} catch (final InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+
+				return entered[0];
+			}).get(5, TimeUnit.SECONDS);
+
+			Assertions.assertTrue(ran, "Work without a permit must not wait for one");
+			Assertions.assertEquals(0, permits.getAvailable());
+		} finally {
+			permits.exit();
+		}
+
+		Assertions.assertEquals(1, permits.getAvailable());
+	}
+
+	/**
+	 * Takes and gives back a permit on another thread.
+	 *
+	 * @param permits the permits
+	 *
+	 * @return true if the other thread got a permit, false if it timed out
+	 *
+	 * @throws Exception if interrupted while waiting
+	 */
+	private static boolean enterElsewhere(final DatabasePermits permits) throws Exception {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				permits.enter();
+				permits.exit();
+
+				return true;
+			} catch (final TransientDataAccessResourceException e) {
+				return false;
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+
+				return false;
+			}
+		}).get(5, TimeUnit.SECONDS);
+	}
+}
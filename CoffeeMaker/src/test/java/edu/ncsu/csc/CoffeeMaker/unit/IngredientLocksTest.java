@@ -0,0 +1,141 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc.CoffeeMaker.models.CompiledRecipe;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.IngredientDictionary;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.IngredientLocks;
+
+/**
+ * Tests IngredientLocks.java
+ */
+public class IngredientLocksTest {
+
+	/**
+	 * Compiles a Recipe that needs one of each of the named Ingredients.
+	 *
+	 * @param names Ingredient names
+	 *
+	 * @return the compiled Recipe
+	 */
+	private static CompiledRecipe recipe(final String... names) {
+		final Recipe recipe = new Recipe();
+		recipe.setName("Locked");
+		recipe.setPrice(10);
+
+		for (String name : names) {
+			recipe.addIngredient(new Ingredient(name, 1));
+		}
+
+		return recipe.compile();
+	}
+
+	/**
+	 * The number of locks is rounded up to a power of two, and every lock is listed once, in
+	 * order.
+	 */
+	@Test
+	public void testSize() {
+		Assertions.assertEquals(8, new IngredientLocks(5).size());
+		Assertions.assertEquals(1, new IngredientLocks(0).size());
+
+		final int[] all = new IngredientLocks(4).all();
+		Assertions.assertEquals(4, all.length);
+
+		for (int i = 0; i < all.length; i++) {
+			Assertions.assertEquals(i, all[i]);
+		}
+	}
+
+	/**
+	 * A Recipe's locks are listed in ascending order, once each, whichever order its Ingredients
+	 * are in.
+	 */
+	@Test
+	public void testCanonicalOrder() {
+		final IngredientLocks locks = new IngredientLocks(2);
+		final String[] names = { "lockedE", "lockedD", "lockedC", "lockedB", "lockedA" };
+		final int[] stripes = locks.stripes(recipe(names));
+
+		// Five Ingredients over two locks must share
+		Assertions.assertTrue(stripes.length <= 2);
+
+		for (int i = 1; i < stripes.length; i++) {
+			Assertions.assertTrue(stripes[i - 1] < stripes[i], "Locks must be in ascending order");
+		}
+
+		for (String name : names) {
+			final int stripe = locks.stripe(IngredientDictionary.idOf(name.toLowerCase()));
+			boolean listed = false;
+
+			for (int held : stripes) {
+				listed |= held == stripe;
+			}
+
+			Assertions.assertTrue(listed, name + "'s lock must be taken");
+		}
+
+		Assertions.assertEquals(0, locks.stripes(recipe()).length);
+	}
+
+	/**
+	 * Recipes with no lock in common can be made at the same time; one that shares a lock waits
+	 * for it.
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	@Test
+	public void testContention() throws InterruptedException {
+		final IngredientLocks locks = new IngredientLocks(1024);
+		final int[] espresso = locks.stripes(recipe("lockedEspresso"));
+		final int[] tea = locks.stripes(recipe("lockedTea"));
+		final int[] latte = locks.stripes(recipe("lockedEspresso", "lockedMilk"));
+
+		Assertions.assertNotEquals(espresso[0], tea[0]);
+
+		locks.lock(espresso);
+
+		try {
+			Assertions.assertTrue(lockElsewhere(locks, tea, 1000),
+					"A Recipe with no Ingredients in common must not wait");
+			Assertions.assertFalse(lockElsewhere(locks, latte, 100),
+					"A Recipe that shares an Ingredient must wait");
+		} finally {
+			locks.unlock(espresso);
+		}
+
+		Assertions.assertFalse(locks.isHeld(espresso[0]));
+		Assertions.assertTrue(lockElsewhere(locks, latte, 1000));
+	}
+
+	/**
+	 * Takes and releases locks on another thread.
+	 *
+	 * @param locks   the locks
+	 * @param held    locks to take
+	 * @param timeout how long to wait, in milliseconds
+	 *
+	 * @return true if the other thread got the locks within the timeout
+	 *
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	private static boolean lockElsewhere(final IngredientLocks locks, final int[] held,
+			final long timeout) throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(1);
+		final Thread thread = new Thread(() -> {
+			locks.lock(held);
+			locks.unlock(held);
+			done.countDown();
+		});
+		thread.setDaemon(true);
+		thread.start();
+
+		return done.await(timeout, TimeUnit.MILLISECONDS);
+	}
+}
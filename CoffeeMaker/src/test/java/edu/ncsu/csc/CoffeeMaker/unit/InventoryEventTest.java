@@ -0,0 +1,57 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc.CoffeeMaker.models.InventoryEvent;
+import edu.ncsu.csc.CoffeeMaker.models.InventoryEvent.Kind;
+
+/**
+ * Tests InventoryEvent.java
+ */
+public class InventoryEventTest {
+
+	/**
+	 * Folding events over a snapshot adds, restocks, consumes and clears Ingredients in order.
+	 */
+	@Test
+	public void testFold() {
+		final Map<String, Integer> snapshot = new HashMap<>();
+		snapshot.put("coffee", 10);
+
+		final Map<String, Integer> quantities = InventoryEvent.fold(snapshot,
+				List.of(new InventoryEvent("Milk", Kind.ADDED, 4),
+						new InventoryEvent("coffee", Kind.CONSUMED, 3),
+						new InventoryEvent("milk", Kind.RESTOCKED, 2),
+						new InventoryEvent("coffee", Kind.RESTOCKED, 1)));
+
+		Assertions.assertEquals(8, quantities.get("coffee"));
+		Assertions.assertEquals(6, quantities.get("milk"));
+
+		InventoryEvent.fold(quantities, List.of(new InventoryEvent("coffee", Kind.CLEARED, 0)));
+		Assertions.assertFalse(quantities.containsKey("coffee"));
+		Assertions.assertEquals(1, quantities.size());
+	}
+
+	/**
+	 * Events for Ingredients that aren't in the Inventory change nothing, and quantities never go
+	 * below 0.
+	 */
+	@Test
+	public void testFoldEdgeCases() {
+		final Map<String, Integer> quantities = new HashMap<>();
+		quantities.put("sugar", 1);
+
+		InventoryEvent.fold(quantities,
+				List.of(new InventoryEvent("Lemon", Kind.RESTOCKED, 5),
+						new InventoryEvent("lemon", Kind.CONSUMED, 5),
+						new InventoryEvent("sugar", Kind.CONSUMED, 2)));
+
+		Assertions.assertFalse(quantities.containsKey("lemon"));
+		Assertions.assertEquals(0, quantities.get("sugar"));
+	}
+}
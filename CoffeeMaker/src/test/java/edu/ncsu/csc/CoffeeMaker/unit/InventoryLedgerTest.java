@@ -0,0 +1,192 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryLedger;
+
+/**
+ * Tests InventoryLedger.java
+ */
+public class InventoryLedgerTest {
+
+	/**
+	 * Ledger under test.
+	 */
+	private InventoryLedger ledger;
+
+	/**
+	 * Loads the ledger with a small Inventory before each test.
+	 */
+	@BeforeEach
+	public void setup() {
+		final Inventory ivt = new Inventory();
+		ivt.addIngredient(new Ingredient("Coffee", 1000));
+		ivt.addIngredient(new Ingredient("Milk", 1000));
+		ivt.addIngredient(new Ingredient("Sugar", 2));
+
+		ledger = new InventoryLedger();
+		ledger.load(ivt);
+	}
+
+	/**
+	 * Creates a Recipe with the provided Ingredients.
+	 * 
+	 * @param name        Recipe name
+	 * @param ingredients Ingredients for the Recipe
+	 * 
+	 * @return the Recipe
+	 */
+	private static Recipe createRecipe(final String name, final Ingredient... ingredients) {
+		final Recipe recipe = new Recipe();
+		recipe.setName(name);
+		recipe.setPrice(50);
+
+		for (Ingredient ingredient : ingredients) {
+			recipe.addIngredient(ingredient);
+		}
+
+		return recipe;
+	}
+
+	/**
+	 * Tests reserving a Recipe there is enough Inventory for.
+	 */
+	@Test
+	public void testReserve() {
+		final Recipe latte = createRecipe("Latte", new Ingredient("Coffee", 3),
+				new Ingredient("Milk", 5));
+
+		Assertions.assertTrue(ledger.reserve(latte));
+		Assertions.assertEquals(997, ledger.getQuantity("Coffee"));
+		Assertions.assertEquals(995, ledger.getQuantity("milk"));
+		Assertions.assertEquals(-1, ledger.getQuantity("Lemon"));
+	}
+
+	/**
+	 * Tests that a Recipe that can't be made doesn't take any Ingredients at all.
+	 */
+	@Test
+	public void testReserveAllOrNothing() {
+		final Recipe sweet = createRecipe("Sweet Coffee", new Ingredient("Coffee", 3),
+				new Ingredient("Sugar", 3));
+		final Recipe lemon = createRecipe("Lemon Coffee", new Ingredient("Coffee", 3),
+				new Ingredient("Lemon", 1));
+
+		Assertions.assertFalse(ledger.reserve(sweet));
+		Assertions.assertFalse(ledger.reserve(lemon));
+		Assertions.assertEquals(1000, ledger.getQuantity("Coffee"));
+		Assertions.assertEquals(2, ledger.getQuantity("Sugar"));
+	}
+
+	/**
+	 * Tests that restocking adds to known Ingredients only.
+	 */
+	@Test
+	public void testRestock() {
+		ledger.restock(" SUGAR", 5);
+		ledger.restock("Lemon", 5);
+
+		Assertions.assertEquals(7, ledger.getQuantity("Sugar"));
+		Assertions.assertEquals(-1, ledger.getQuantity("Lemon"));
+	}
+
+	/**
+	 * Tests that write-behind restocks add to known Ingredients only, up to the quantity limit,
+	 * and can be used straight away.
+	 */
+	@Test
+	public void testAddQuantity() {
+		Assertions.assertTrue(ledger.addQuantity(" SUGAR", 5));
+		Assertions.assertFalse(ledger.addQuantity("Lemon", 5));
+		Assertions.assertFalse(ledger.addQuantity("Coffee", 1));
+		Assertions.assertFalse(ledger.addQuantity("Milk", 0));
+		Assertions.assertEquals(1000, ledger.getQuantity("Coffee"));
+		Assertions.assertEquals(7, ledger.getQuantity("Sugar"));
+
+		Assertions.assertTrue(ledger.reserve(createRecipe("Sweet", new Ingredient("Sugar", 7))));
+		Assertions.assertEquals(0, ledger.getQuantity("Sugar"));
+	}
+
+	/**
+	 * Tests that Ingredients far apart in the dictionary are tracked independently, and that
+	 * taking one leaves the others as they were.
+	 */
+	@Test
+	public void testManyIngredients() {
+		final Inventory ivt = new Inventory();
+
+		for (int i = 0; i < 100; i++) {
+			ivt.addIngredient(new Ingredient("Ledger" + i, 10));
+		}
+
+		ledger.load(ivt);
+
+		final Recipe wide = createRecipe("Wide", new Ingredient("Ledger0", 1),
+				new Ingredient("Ledger1", 2), new Ingredient("Ledger99", 3));
+
+		Assertions.assertTrue(ledger.reserve(wide));
+		Assertions.assertTrue(ledger.reserve(wide));
+		Assertions.assertEquals(8, ledger.getQuantity("Ledger0"));
+		Assertions.assertEquals(6, ledger.getQuantity("Ledger1"));
+		Assertions.assertEquals(10, ledger.getQuantity("Ledger50"));
+		Assertions.assertEquals(4, ledger.getQuantity("Ledger99"));
+
+		ledger.restock("Ledger50", 5);
+		Assertions.assertEquals(15, ledger.getQuantity("Ledger50"));
+		Assertions.assertEquals(8, ledger.getQuantity("Ledger0"));
+	}
+
+	/**
+	 * Tests that many threads ordering at once never take more than there is.
+	 * 
+	 * @throws InterruptedException if interrupted while waiting for the threads
+	 */
+	@Test
+	public void testConcurrentReserveNeverOversells() throws InterruptedException {
+		final Recipe espresso = createRecipe("Espresso", new Ingredient("Coffee", 3),
+				new Ingredient("Milk", 1));
+		final int threads = 8;
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicInteger made = new AtomicInteger();
+		final List<Thread> workers = new ArrayList<>();
+
+		for (int t = 0; t < threads; t++) {
+			final Thread worker = new Thread(() -> {
+				try {
+					start.await();
+				} catch (final InterruptedException e) {
+					return;
+				}
+
+				for (int i = 0; i < 100; i++) {
+					if (ledger.reserve(espresso)) {
+						made.incrementAndGet();
+					}
+				}
+			});
+			workers.add(worker);
+			worker.start();
+		}
+
+		start.countDown();
+
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		// 1000 Coffee at 3 per cup makes exactly 333 cups, however the orders interleave
+		Assertions.assertEquals(333, made.get());
+		Assertions.assertEquals(1, ledger.getQuantity("Coffee"));
+		Assertions.assertEquals(667, ledger.getQuantity("Milk"));
+	}
+}
@@ -0,0 +1,111 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ncsu.csc.CoffeeMaker.TestConfig;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryRetryPolicy;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Tests InventoryRetryPolicy.java
+ */
+@ExtendWith(SpringExtension.class)
+@EnableAutoConfiguration
+@SpringBootTest(classes = TestConfig.class)
+public class InventoryRetryPolicyTest {
+
+	/**
+	 * Local InventoryRetryPolicy.
+	 */
+	@Autowired
+	private InventoryRetryPolicy retryPolicy;
+
+	/**
+	 * Registry the policy records its counters in.
+	 */
+	@Autowired
+	private MeterRegistry registry;
+
+	/**
+	 * Returns the current value of one of the policy's counters.
+	 * 
+	 * @param name      Counter name
+	 * @param operation Operation tag
+	 * 
+	 * @return The count so far
+	 */
+	private double count(final String name, final String operation) {
+		return registry.counter(name, "operation", operation).count();
+	}
+
+	/**
+	 * Tests that an update that conflicts a couple of times is retried until it goes through.
+	 */
+	@Test
+	public void testRetriesUntilSuccess() {
+		final AtomicInteger attempts = new AtomicInteger();
+
+		final String result = retryPolicy.execute("testRetriesUntilSuccess", () -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new ObjectOptimisticLockingFailureException(Inventory.class, 1L);
+			}
+
+			return "made";
+		});
+
+		Assertions.assertEquals("made", result);
+		Assertions.assertEquals(3, attempts.get());
+		Assertions.assertEquals(2.0, count("coffeemaker.inventory.conflicts",
+				"testRetriesUntilSuccess"), 0.0);
+		Assertions.assertEquals(2.0, count("coffeemaker.inventory.retries",
+				"testRetriesUntilSuccess"), 0.0);
+		Assertions.assertEquals(0.0, count("coffeemaker.inventory.retries.exhausted",
+				"testRetriesUntilSuccess"), 0.0);
+	}
+
+	/**
+	 * Tests that an update that always conflicts gives up after the configured number of attempts.
+	 */
+	@Test
+	public void testGivesUp() {
+		final AtomicInteger attempts = new AtomicInteger();
+
+		Assertions.assertThrows(ObjectOptimisticLockingFailureException.class,
+				() -> retryPolicy.execute("testGivesUp", () -> {
+					attempts.incrementAndGet();
+					throw new ObjectOptimisticLockingFailureException(Inventory.class, 1L);
+				}));
+
+		Assertions.assertEquals(5, attempts.get());
+		Assertions.assertEquals(5.0, count("coffeemaker.inventory.conflicts", "testGivesUp"),
+				0.0);
+		Assertions.assertEquals(1.0,
+				count("coffeemaker.inventory.retries.exhausted", "testGivesUp"), 0.0);
+	}
+
+	/**
+	 * Tests that other failures are not retried.
+	 */
+	@Test
+	public void testOtherFailuresNotRetried() {
+		final AtomicInteger attempts = new AtomicInteger();
+
+		Assertions.assertThrows(IllegalArgumentException.class,
+				() -> retryPolicy.execute("testOtherFailuresNotRetried", () -> {
+					attempts.incrementAndGet();
+					throw new IllegalArgumentException("Quantity must not exceed 1000");
+				}));
+
+		Assertions.assertEquals(1, attempts.get());
+	}
+}
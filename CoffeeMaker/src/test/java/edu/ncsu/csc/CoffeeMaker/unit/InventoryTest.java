@@ -298,4 +298,112 @@ public class InventoryTest {
 		ivt.setId(id);
 		Assertions.assertEquals(id, ivt.getId());
 	}
+
+	/**
+	 * Reference implementation of the linear name scan that Inventory used before lookups were
+	 * indexed. Used to check that the index agrees with it.
+	 * 
+	 * @param i    Inventory to scan
+	 * @param name Ingredient name to search for
+	 * 
+	 * @return The first Ingredient with a matching name, null if none
+	 */
+	private static Ingredient linearScan(final Inventory i, final String name) {
+		for (Ingredient ingredient : i.getIngredients()) {
+			if (ingredient.getName().equals(name.trim().toLowerCase())) {
+				return ingredient;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Tests that indexed lookups match a linear scan, including for names that need to be
+	 * normalized and names that aren't in the Inventory.
+	 */
+	@Test
+	public void testIndexedLookupMatchesScan() {
+		final Inventory i = new Inventory();
+
+		for (int n = 0; n < 300; n++) {
+			Assertions.assertTrue(i.addIngredient(new Ingredient("Ingredient" + n, n % 1000 + 1)));
+		}
+
+		// Duplicates are rejected just like before
+		Assertions.assertFalse(i.addIngredient(new Ingredient("ingredient7", 5)));
+		Assertions.assertEquals(300, i.getIngredients().size());
+
+		final String[] names = { "Ingredient0", "ingredient150", "  INGREDIENT299 ", "Lemon",
+				"ingredient300" };
+
+		for (String name : names) {
+			Assertions.assertSame(linearScan(i, name), i.getIngredient(name), name);
+		}
+
+		Assertions.assertTrue(i.removeIngredient(" Ingredient150"));
+		Assertions.assertNull(i.getIngredient("ingredient150"));
+		Assertions.assertFalse(i.removeIngredient("ingredient150"));
+		Assertions.assertSame(linearScan(i, "ingredient151"), i.getIngredient("ingredient151"));
+
+		Assertions.assertTrue(i.setIngredient("INGREDIENT10", 42));
+		Assertions.assertEquals(42, linearScan(i, "ingredient10").getQuantity());
+		Assertions.assertTrue(i.addQuantity("Ingredient10 ", 8));
+		Assertions.assertEquals(50, linearScan(i, "ingredient10").getQuantity());
+
+		i.useIngredient("Ingredient10", 10);
+		Assertions.assertEquals(40, linearScan(i, "ingredient10").getQuantity());
+
+		i.clearInventory();
+		Assertions.assertNull(i.getIngredient("ingredient0"));
+		Assertions.assertTrue(i.addIngredient(new Ingredient("Ingredient0", 3)));
+		Assertions.assertSame(linearScan(i, "ingredient0"), i.getIngredient("ingredient0"));
+	}
+
+	/**
+	 * Tests that the index follows the Ingredients list when it is replaced or modified directly,
+	 * which is what Hibernate and JSON deserialization do.
+	 */
+	@Test
+	public void testIndexFollowsIngredientList() {
+		final Inventory i = new Inventory();
+		i.addIngredient(new Ingredient("Coffee", 5));
+
+		final List<Ingredient> replacement = new ArrayList<>();
+		replacement.add(new Ingredient("Milk", 7));
+		replacement.add(new Ingredient("Sugar", 9));
+		Assertions.assertTrue(i.setIngredients(replacement));
+
+		Assertions.assertNull(i.getIngredient("Coffee"));
+		Assertions.assertSame(linearScan(i, "Milk"), i.getIngredient("Milk"));
+
+		i.getIngredients().add(new Ingredient("Chocolate", 11));
+		Assertions.assertSame(linearScan(i, "Chocolate"), i.getIngredient("Chocolate"));
+
+		final Recipe recipe = new Recipe();
+		recipe.setName("Sweet Milk");
+		recipe.setPrice(5);
+		recipe.addIngredient(new Ingredient("Milk", 2));
+		recipe.addIngredient(new Ingredient("Sugar", 8));
+
+		Assertions.assertTrue(i.useIngredients(recipe));
+		Assertions.assertFalse(i.enoughIngredients(recipe));
+		Assertions.assertEquals(1, i.getIngredient("sugar").getQuantity());
+	}
+
+	/**
+	 * Tests that an Inventory loaded from the database has a working index.
+	 */
+	@Test
+	@Transactional
+	public void testIndexAfterLoad() {
+		final Inventory ivt = inventoryService.getInventory();
+
+		for (Ingredient ingredient : ivt.getIngredients()) {
+			Assertions.assertSame(ingredient, ivt.getIngredient(ingredient.getName()));
+		}
+
+		Assertions.assertSame(linearScan(ivt, "Chocolate"), ivt.getIngredient("Chocolate"));
+		Assertions.assertNull(ivt.getIngredient("Lemon"));
+	}
 }
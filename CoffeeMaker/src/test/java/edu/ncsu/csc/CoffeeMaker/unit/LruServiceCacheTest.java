@@ -0,0 +1,60 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import edu.ncsu.csc.CoffeeMaker.services.LruServiceCache;
+
+/**
+ * Tests LruServiceCache.java
+ */
+public class LruServiceCacheTest {
+
+	/**
+	 * Hits and misses are counted.
+	 */
+	@Test
+	public void testHitsAndMisses() {
+		final LruServiceCache<String, Integer> cache = new LruServiceCache<>(2);
+
+		Assertions.assertNull(cache.get("coffee"));
+		cache.put("coffee", 1);
+		Assertions.assertEquals(Integer.valueOf(1), cache.get("coffee"));
+		Assertions.assertEquals(Integer.valueOf(1), cache.get("coffee"));
+
+		Assertions.assertEquals(2, cache.hits());
+		Assertions.assertEquals(1, cache.misses());
+		Assertions.assertEquals(0, cache.evictions());
+	}
+
+	/**
+	 * The least recently used record is evicted when the cache is full.
+	 */
+	@Test
+	public void testEviction() {
+		final LruServiceCache<String, Integer> cache = new LruServiceCache<>(2);
+
+		cache.put("coffee", 1);
+		cache.put("milk", 2);
+		cache.get("coffee");
+		cache.put("sugar", 3);
+
+		Assertions.assertEquals(2, cache.size());
+		Assertions.assertEquals(1, cache.evictions());
+		Assertions.assertNull(cache.get("milk"));
+		Assertions.assertEquals(Integer.valueOf(1), cache.get("coffee"));
+		Assertions.assertEquals(Integer.valueOf(3), cache.get("sugar"));
+
+		cache.clear();
+		Assertions.assertEquals(0, cache.size());
+		Assertions.assertEquals(1, cache.evictions(), "Clearing the cache is not an eviction");
+	}
+
+	/**
+	 * Caches must hold at least one record.
+	 */
+	@Test
+	public void testInvalidSize() {
+		Assertions.assertThrows(IllegalArgumentException.class, () -> new LruServiceCache<>(0));
+	}
+}
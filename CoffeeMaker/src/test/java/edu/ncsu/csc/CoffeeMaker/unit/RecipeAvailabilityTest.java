@@ -0,0 +1,125 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ncsu.csc.CoffeeMaker.TestConfig;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Inventory;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.services.InventoryService;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeAvailability;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests RecipeAvailability.java, with loads and changes interleaved. Not transactional, as the
+ * changes are only applied once they have been committed.
+ */
+@ExtendWith(SpringExtension.class)
+@EnableAutoConfiguration
+@SpringBootTest(classes = TestConfig.class)
+public class RecipeAvailabilityTest {
+
+	/**
+	 * Local RecipeAvailability.
+	 */
+	@Autowired
+	private RecipeAvailability availability;
+
+	/**
+	 * Local InventoryService.
+	 */
+	@Autowired
+	private InventoryService inventoryService;
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService recipeService;
+
+	/**
+	 * Transaction manager, for making coffee in a transaction of our own.
+	 */
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/**
+	 * The Recipe made in the tests.
+	 */
+	private Recipe espresso;
+
+	/**
+	 * Puts 9 coffee in the Inventory and an Espresso, which takes 3, in the recipe book.
+	 */
+	@BeforeEach
+	public void setup() {
+		recipeService.deleteAll();
+
+		final Inventory inventory = inventoryService.getInventory();
+		inventory.clearInventory();
+		inventory.addIngredient(new Ingredient("Coffee", 9));
+		inventoryService.save(inventory);
+
+		espresso = new Recipe();
+		espresso.setName("Espresso");
+		espresso.setPrice(20);
+		espresso.addIngredient(new Ingredient("Coffee", 3));
+		recipeService.save(espresso);
+
+		availability.reload();
+		Assertions.assertEquals(Integer.valueOf(3), availability.getServings().get("espresso"));
+	}
+
+	/**
+	 * Another request loads everything after coffee has been made and committed but before the
+	 * change has been applied. The load already has the coffee taken out, so it mustn't be taken
+	 * out again.
+	 */
+	@Test
+	public void testLoadBetweenCommitAndChange() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			// Registered first, so it runs before RecipeAvailability hears about the coffee
+			TransactionSynchronizationManager
+					.registerSynchronization(new TransactionSynchronizationAdapter() {
+						@Override
+						public void afterCompletion(final int completion) {
+							availability.reload();
+							Assertions.assertEquals(Integer.valueOf(2),
+									availability.getServings().get("espresso"));
+						}
+					});
+
+			Assertions.assertTrue(inventoryService.consume(espresso));
+			availability.consumed(espresso);
+		});
+
+		Assertions.assertEquals(Integer.valueOf(2), availability.getServings().get("espresso"),
+				"The coffee made should only be taken out once");
+	}
+
+	/**
+	 * Without a load in between, the change is applied when the transaction commits.
+	 */
+	@Test
+	public void testChangeAppliedOnCommit() {
+		new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+			Assertions.assertTrue(inventoryService.consume(espresso));
+			availability.consumed(espresso);
+			Assertions.assertEquals(Integer.valueOf(3),
+					availability.getServings().get("espresso"), "Not committed yet");
+		});
+
+		Assertions.assertEquals(Integer.valueOf(2), availability.getServings().get("espresso"));
+	}
+}
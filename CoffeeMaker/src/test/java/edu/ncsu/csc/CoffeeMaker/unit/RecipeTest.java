@@ -322,4 +322,29 @@ public class RecipeTest {
 		int recipeHash = recipe.hashCode();
 		Assertions.assertNotNull(recipeHash);
 	}
+
+	/**
+	 * Recipes found by name are cached until the next write.
+	 */
+	@Test
+	public void testFindByNameCached() {
+		service.save(createRecipe("Coffee", 50, 3, 1, 1));
+
+		final long hits = service.getCache().hits();
+		final Recipe first = service.findByName("Coffee");
+		Assertions.assertSame(first, service.findByName(" COFFEE "),
+				"A Recipe found by name should be served from the cache the second time");
+		Assertions.assertEquals(hits, service.getCache().hits(),
+				"Lookups by name don't go through the ID cache");
+
+		Assertions.assertSame(service.findById(first.getId()), service.findById(first.getId()));
+		Assertions.assertEquals(hits + 1, service.getCache().hits());
+
+		first.setPrice(75);
+		service.save(first);
+		service.delete(first);
+		Assertions.assertNull(service.findByName("Coffee"),
+				"Deleting a Recipe should remove it from the cache");
+		Assertions.assertEquals(0, service.findAll().size());
+	}
 }
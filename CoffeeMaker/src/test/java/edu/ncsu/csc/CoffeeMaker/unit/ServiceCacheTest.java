@@ -0,0 +1,130 @@
+package edu.ncsu.csc.CoffeeMaker.unit;
+
+import static org.mockito.Mockito.doAnswer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ncsu.csc.CoffeeMaker.TestConfig;
+import edu.ncsu.csc.CoffeeMaker.models.Ingredient;
+import edu.ncsu.csc.CoffeeMaker.models.Recipe;
+import edu.ncsu.csc.CoffeeMaker.repositories.RecipeRepository;
+import edu.ncsu.csc.CoffeeMaker.services.RecipeService;
+
+/**
+ * Tests the read-through caches in Service.java, with reads and writes interleaved. Not
+ * transactional, as the write has to commit while the read is under way.
+ */
+@ExtendWith(SpringExtension.class)
+@EnableAutoConfiguration
+@SpringBootTest(classes = TestConfig.class)
+public class ServiceCacheTest {
+
+	/**
+	 * Local RecipeService.
+	 */
+	@Autowired
+	private RecipeService service;
+
+	/**
+	 * RecipeRepository, spied on to hold a read up until a write has committed.
+	 */
+	@SpyBean
+	private RecipeRepository repository;
+
+	/**
+	 * Empties the recipe book.
+	 */
+	@BeforeEach
+	public void setup() {
+		service.deleteAll();
+	}
+
+	/**
+	 * Creates a Coffee Recipe.
+	 * 
+	 * @param price Price of the Recipe
+	 * 
+	 * @return the Recipe
+	 */
+	private static Recipe coffee(final int price) {
+		final Recipe recipe = new Recipe();
+		recipe.setName("Coffee");
+		recipe.setPrice(price);
+		recipe.addIngredient(new Ingredient("Coffee", 3));
+
+		return recipe;
+	}
+
+	/**
+	 * A Recipe read while it is being edited (deleted and added again, as editRecipe does) isn't
+	 * cached, so the next lookup finds the edited Recipe rather than the deleted one.
+	 *
+	 * @throws Exception if the edit fails
+	 */
+	@Test
+	public void testReadDuringEdit() throws Exception {
+		service.save(coffee(50));
+
+		doAnswer(invocation -> {
+			// Read the old Recipe, then let the edit commit before it can be cached
+			final Object old = invocation.callRealMethod();
+
+			CompletableFuture.runAsync(() -> {
+				service.delete(service.findById(((Recipe) old).getId()));
+				service.save(coffee(75));
+			}).get(10, TimeUnit.SECONDS);
+
+			return old;
+		}).doCallRealMethod().when(repository).findByName("coffee");
+
+		final Recipe stale = service.findByName("Coffee");
+		Assertions.assertEquals(Integer.valueOf(50), stale.getPrice(),
+				"The read began before the edit");
+
+		final Recipe edited = service.findByName("Coffee");
+		Assertions.assertEquals(Integer.valueOf(75), edited.getPrice(),
+				"A Recipe read during a write must not be cached");
+		Assertions.assertNotEquals(stale.getId(), edited.getId());
+		Assertions.assertSame(edited, service.findByName("Coffee"),
+				"Reads with no write under way are cached as usual");
+	}
+
+	/**
+	 * findById() and findAll() don't cache what they read while a write is under way either.
+	 *
+	 * @throws Exception if the write fails
+	 */
+	@Test
+	public void testReadDuringWrite() throws Exception {
+		final Recipe recipe = coffee(50);
+		service.save(recipe);
+		final Long id = recipe.getId();
+
+		doAnswer(invocation -> {
+			final Object old = invocation.callRealMethod();
+
+			CompletableFuture.runAsync(() -> {
+				final Recipe changed = service.findById(id);
+				changed.setPrice(75);
+				service.save(changed);
+			}).get(10, TimeUnit.SECONDS);
+
+			return old;
+		}).doCallRealMethod().when(repository).findAll();
+
+		Assertions.assertEquals(Integer.valueOf(50), service.findAll().get(0).getPrice());
+		Assertions.assertEquals(Integer.valueOf(75), service.findAll().get(0).getPrice());
+		Assertions.assertEquals(Integer.valueOf(75), service.findById(id).getPrice());
+	}
+}